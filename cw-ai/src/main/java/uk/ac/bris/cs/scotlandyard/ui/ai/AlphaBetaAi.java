@@ -0,0 +1,124 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.TimeManager;
+import uk.ac.bris.cs.scotlandyard.model.TimeManager.Budget;
+
+/**
+ * A deterministic MrX that plays the move found by {@link AlphaBetaSearch}.
+ */
+public class AlphaBetaAi implements Ai {
+
+	private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(10);
+	private static final int TABLE_BITS = 20;
+	private static final int DEFAULT_CACHE_CAPACITY = 1 << 18;
+
+	private final Duration budget;
+	private final int cacheCapacity;
+	@Nullable private final Tablebase tablebase = Tablebase.standard();
+	private EvaluationCache cache;
+	private TimeManager time;
+	private GameGraph graph;
+	private AlphaBetaSearch search;
+	private AlphaBetaSearch.Result lastResult;
+
+	public AlphaBetaAi() { this(DEFAULT_BUDGET); }
+
+	/**
+	 * @param budget the time spent searching for a single move when the game gives no
+	 * {@link TimeManager}
+	 */
+	public AlphaBetaAi(Duration budget) { this(budget, DEFAULT_CACHE_CAPACITY); }
+
+	/**
+	 * @param budget the time spent searching for a single move when the game gives no
+	 * {@link TimeManager}
+	 * @param cacheCapacity the number of static evaluations kept between moves
+	 */
+	public AlphaBetaAi(Duration budget, int cacheCapacity) {
+		if (cacheCapacity < EvaluationCache.WAYS)
+			throw new IllegalArgumentException("cacheCapacity < " + EvaluationCache.WAYS);
+		this.budget = Objects.requireNonNull(budget);
+		this.cacheCapacity = cacheCapacity;
+	}
+
+	@Nonnull @Override public String name() { return "Mr X Alpha-Beta Ai"; }
+
+	@Override public void onStart() {
+		release();
+		time = null;
+		cache = new EvaluationCache(cacheCapacity);
+	}
+
+	@Override public void onStart(@Nonnull TimeManager time) {
+		onStart();
+		this.time = time;
+	}
+
+	@Override public void onTerminate() {
+		release();
+		cache = null;
+	}
+
+	private void release() {
+		graph = null;
+		search = null;
+		lastResult = null;
+	}
+
+	/**
+	 * @return the evaluation cache with its hit and eviction counters, if allocated
+	 */
+	@Nullable EvaluationCache evaluationCache() { return cache; }
+
+	/**
+	 * @return the move, score, depth reached and node rate of the last decision, if any
+	 */
+	@Nullable AlphaBetaSearch.Result lastResult() { return lastResult; }
+
+	/**
+	 * @return the depth the search for the last move completed, or 0 if that move was forced,
+	 * taken from the tablebase or no move has been picked since the game started
+	 */
+	public int lastDepth() { return lastResult == null ? 0 : lastResult.depth; }
+
+	/**
+	 * @return the nodes searched per second for the last move, or 0 if it was not searched
+	 */
+	public long lastNodesPerSecond() {
+		return lastResult == null ? 0 : lastResult.nodesPerSecond();
+	}
+
+	@Nonnull @Override public Move pickMove(
+			@Nonnull Board board,
+			@Nonnull AtomicBoolean terminate) {
+		var budget = time == null ? Budget.fixed(this.budget) : time.allocate(board);
+		var moves = board.getAvailableMoves().asList();
+		lastResult = null;
+		if (moves.size() == 1) return moves.get(0);
+		if (graph == null || !graph.isFor(board.getSetup().graph)) {
+			graph = new GameGraph(board.getSetup().graph);
+			if (cache == null) cache = new EvaluationCache(cacheCapacity);
+			else cache.clear();
+			search = new AlphaBetaSearch(graph, TABLE_BITS, cache);
+		}
+		// MrX's location is only known to him through the source of his moves
+		var state = SearchState.fromBoard(graph, board, moves.get(0).source());
+		int[] legal = moves.stream().mapToInt(Moves::encode).toArray();
+		int solved = tablebase == null ? Moves.NONE : tablebase.probe(state);
+		if (solved != Moves.NONE && Arrays.stream(legal).anyMatch(m -> m == solved))
+			return state.toMove(solved);
+		lastResult = search.search(state, legal, terminate, budget.soft, budget.hard);
+		return state.toMove(lastResult.move);
+	}
+}
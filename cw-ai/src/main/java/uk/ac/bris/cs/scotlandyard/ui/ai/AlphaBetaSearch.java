@@ -0,0 +1,393 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Iterative deepening, paranoid alpha-beta search over {@link SearchState}s.
+ * <br>
+ * Scores are from MrX's point of view: MrX maximises and every detective ply minimises, as if the
+ * detectives were one player that also knows where MrX is. Depth is counted in plies, so a full
+ * round with five detectives is six plies.
+ * <br>
+ * Moves are tried in the order: the best move from the {@link TranspositionTable}, two killer
+ * moves per ply, then by history score. When termination is requested or the deadline passes the
+ * current iteration is thrown away and the result of the deepest completed iteration is returned;
+ * the first iteration always completes.
+ */
+final class AlphaBetaSearch {
+
+	static final int WIN = 1_000_000;
+	static final int MAX_PLY = 64;
+
+	private static final int INFINITY = WIN + 1;
+	private static final int NODE_CHECK_MASK = 1023;
+	private static final int HISTORY_LIMIT = 1 << 24;
+
+	private final GameGraph graph;
+	private final TranspositionTable table;
+	private final EvaluationCache cache;
+	private final MovePruner pruner;
+	private final LeafEvaluator evaluator;
+	private final int[][] moves;
+	private final int[][] orders;
+	private final int[][] killers = new int[MAX_PLY][2];
+	private final int[] leafScores;
+	private final int[] leafColumns;
+	private final long[] leafKeys;
+	private final int[] batchScores;
+	private int[] history = new int[0];
+	private SearchState[] states;
+	private LeafBatch batch;
+	private AtomicBoolean terminate;
+	private long deadline;
+	private boolean abortable;
+	private boolean aborted;
+	private long nodes;
+
+	/**
+	 * @param graph the compact game graph
+	 * @param tableBits log2 of the number of transposition table slots
+	 * @param cache cache for static evaluations, kept across searches
+	 */
+	AlphaBetaSearch(@Nonnull GameGraph graph, int tableBits, @Nonnull EvaluationCache cache) {
+		this.graph = graph;
+		this.table = new TranspositionTable(tableBits);
+		this.cache = cache;
+		this.pruner = new MovePruner(graph);
+		this.evaluator = new DistanceEvaluator(graph);
+		this.leafScores = new int[graph.maxMoves()];
+		this.leafColumns = new int[graph.maxMoves()];
+		this.leafKeys = new long[graph.maxMoves()];
+		this.batchScores = new int[graph.maxMoves()];
+		this.moves = new int[MAX_PLY][graph.maxMoves()];
+		this.orders = new int[MAX_PLY][graph.maxMoves()];
+	}
+
+	/**
+	 * The outcome of one decision
+	 */
+	static final class Result {
+		final int move;
+		final int score;
+		final int depth;
+		final long nodes;
+		final long nanos;
+
+		Result(int move, int score, int depth, long nodes, long nanos) {
+			this.move = move;
+			this.score = score;
+			this.depth = depth;
+			this.nodes = nodes;
+			this.nanos = nanos;
+		}
+
+		long nodesPerSecond() {
+			return nanos == 0 ? 0 : nodes * TimeUnit.SECONDS.toNanos(1) / nanos;
+		}
+
+		@Override public String toString() {
+			return Moves.toString(move) + " score=" + score + " depth=" + depth +
+					" nodes=" + nodes + " nps=" + nodesPerSecond();
+		}
+	}
+
+	/**
+	 * Searches the given position until the deadline passes, termination is requested or the
+	 * outcome is decided.
+	 *
+	 * @param state the position
+	 * @param legal the encoded legal moves of the position, as given by the board
+	 * @param terminate flag that stops the search when set
+	 * @param deadline {@link System#nanoTime()} at which to stop
+	 * @return the best move of the deepest completed iteration
+	 */
+	@Nonnull Result search(@Nonnull SearchState state, @Nonnull int[] legal,
+	                       @Nonnull AtomicBoolean terminate, long deadline) {
+		return search(state, legal, terminate, deadline, deadline);
+	}
+
+	/**
+	 * Searches like {@link #search(SearchState, int[], AtomicBoolean, long)} but does not start
+	 * another iteration once the soft deadline has passed.
+	 *
+	 * @param soft {@link System#nanoTime()} after which no new iteration is started
+	 * @param deadline {@link System#nanoTime()} at which to abort the current iteration
+	 */
+	@Nonnull Result search(@Nonnull SearchState state, @Nonnull int[] legal,
+	                       @Nonnull AtomicBoolean terminate, long soft, long deadline) {
+		long start = System.nanoTime();
+		prepare(state);
+		this.terminate = terminate;
+		this.deadline = deadline;
+		this.abortable = false;
+		this.aborted = false;
+		this.nodes = 0;
+		for (int[] killer : killers) killer[0] = killer[1] = Moves.NONE;
+
+		var root = legal.clone();
+		root = Arrays.copyOf(root, pruner.prune(states[0], root, root.length));
+		var scores = new int[root.length];
+		boolean max = state.mrXToMove();
+		int bestMove = root[0];
+		int bestScore = 0;
+		int completed = 0;
+		int horizon = Math.min(MAX_PLY - 1,
+				(state.totalRounds() - state.round() + 1) * state.players());
+		for (int depth = 1; depth <= horizon; depth++) {
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			for (int i = 0; i < root.length; i++) {
+				states[1].copyFrom(states[0]);
+				states[1].play(root[i]);
+				int score = alphaBeta(1, depth - 1, alpha, beta);
+				if (aborted) break;
+				scores[i] = score;
+				if (max) alpha = Math.max(alpha, score);
+				else beta = Math.min(beta, score);
+			}
+			if (aborted) break;
+			sortRoot(root, scores, max);
+			bestMove = root[0];
+			bestScore = scores[0];
+			completed = depth;
+			abortable = true;
+			if (Math.abs(bestScore) > WIN - MAX_PLY) break;
+			if (System.nanoTime() - soft >= 0) break;
+		}
+		return new Result(bestMove, bestScore, completed, nodes, System.nanoTime() - start);
+	}
+
+	private void prepare(SearchState state) {
+		if (states == null || !states[0].sameGame(state)) {
+			states = new SearchState[MAX_PLY + 1];
+			for (int i = 0; i < states.length; i++) states[i] = state.copy();
+			batch = new LeafBatch(graph.maxMoves(), state.players() - 1);
+		}
+		states[0].copyFrom(state);
+		if (history.length != state.players() * 2 * graph.size())
+			history = new int[state.players() * 2 * graph.size()];
+	}
+
+	/**
+	 * Stable insertion sort of the root moves by score, best first for the side to move
+	 */
+	private static void sortRoot(int[] root, int[] scores, boolean max) {
+		for (int i = 1; i < root.length; i++) {
+			int move = root[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && (max ? scores[j] < score : scores[j] > score)) {
+				root[j + 1] = root[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			root[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+
+	private int alphaBeta(int ply, int depth, int alpha, int beta) {
+		var state = states[ply];
+		if ((++nodes & NODE_CHECK_MASK) == 0 && abortable &&
+				(terminate.get() || System.nanoTime() >= deadline)) {
+			aborted = true;
+			return 0;
+		}
+		if (state.isOver())
+			return state.winner() == SearchState.MRX_WON ? WIN - ply : ply - WIN;
+		if (depth == 0 || ply == MAX_PLY - 1) return cachedEvaluate(state);
+
+		long hash = state.hash();
+		long entry = table.probe(hash);
+		int tableMove = Moves.NONE;
+		if (entry != TranspositionTable.MISS) {
+			tableMove = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				switch (TranspositionTable.flag(entry)) {
+					case TranspositionTable.EXACT: return score;
+					case TranspositionTable.LOWER: alpha = Math.max(alpha, score); break;
+					case TranspositionTable.UPPER: beta = Math.min(beta, score); break;
+				}
+				if (alpha >= beta) return score;
+			}
+		}
+
+		int player = state.player();
+		boolean max = player == SearchState.MRX;
+		var buffer = moves[ply];
+		var order = orders[ply];
+		int count = pruner.prune(state, buffer, state.generateMoves(buffer, true));
+		if (depth == 1) return frontier(ply, count, alpha, beta, hash);
+		for (int i = 0; i < count; i++) order[i] = orderScore(ply, player, buffer[i], tableMove);
+
+		int originalAlpha = alpha;
+		int originalBeta = beta;
+		int best = max ? -INFINITY : INFINITY;
+		int bestMove = Moves.NONE;
+		var next = states[ply + 1];
+		for (int i = 0; i < count; i++) {
+			int move = pickNext(buffer, order, i, count);
+			next.copyFrom(state);
+			next.play(move);
+			int score = alphaBeta(ply + 1, depth - 1, alpha, beta);
+			if (aborted) return 0;
+			if (max ? score > best : score < best) {
+				best = score;
+				bestMove = move;
+			}
+			if (max) alpha = Math.max(alpha, score);
+			else beta = Math.min(beta, score);
+			if (alpha >= beta) {
+				rewardCutoff(ply, player, move, depth);
+				break;
+			}
+		}
+		store(hash, depth, ply, best, bestMove, originalAlpha, originalBeta);
+		return best;
+	}
+
+	/**
+	 * The last ply above the horizon: every child is scored, the decided ones directly and the
+	 * rest from the evaluation cache or, for the misses, in a single batch
+	 */
+	private int frontier(int ply, int count, int alpha, int beta, long hash) {
+		long before = nodes;
+		nodes += count;
+		if ((before | NODE_CHECK_MASK) < nodes && abortable &&
+				(terminate.get() || System.nanoTime() >= deadline)) {
+			aborted = true;
+			return 0;
+		}
+		var state = states[ply];
+		var next = states[ply + 1];
+		var buffer = moves[ply];
+		batch.clear();
+		for (int i = 0; i < count; i++) {
+			next.copyFrom(state);
+			next.play(buffer[i]);
+			if (next.isOver()) {
+				leafScores[i] = next.winner() == SearchState.MRX_WON ? WIN - (ply + 1) :
+						(ply + 1) - WIN;
+				continue;
+			}
+			long key = next.locationsHash();
+			int score = cache.get(key);
+			if (score != EvaluationCache.MISSING) {
+				leafScores[i] = score;
+				continue;
+			}
+			int column = batch.add(next);
+			leafColumns[column] = i;
+			leafKeys[column] = key;
+		}
+		if (batch.size() > 0) {
+			evaluator.evaluate(batch, batchScores);
+			for (int column = 0; column < batch.size(); column++) {
+				leafScores[leafColumns[column]] = batchScores[column];
+				cache.put(leafKeys[column], batchScores[column]);
+			}
+		}
+
+		int player = state.player();
+		boolean max = player == SearchState.MRX;
+		int best = max ? -INFINITY : INFINITY;
+		int bestMove = Moves.NONE;
+		for (int i = 0; i < count; i++) {
+			if (max ? leafScores[i] > best : leafScores[i] < best) {
+				best = leafScores[i];
+				bestMove = buffer[i];
+			}
+		}
+		if (max ? best >= beta : best <= alpha) rewardCutoff(ply, player, bestMove, 1);
+		store(hash, 1, ply, best, bestMove, alpha, beta);
+		return best;
+	}
+
+	private void store(long hash, int depth, int ply, int best, int bestMove, int alpha,
+	                   int beta) {
+		int flag = best <= alpha ? TranspositionTable.UPPER :
+				best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(hash, depth, flag, toTable(best, ply), bestMove);
+	}
+
+	private int orderScore(int ply, int player, int move, int tableMove) {
+		if (move == tableMove) return Integer.MAX_VALUE;
+		if (move == killers[ply][0]) return Integer.MAX_VALUE - 1;
+		if (move == killers[ply][1]) return Integer.MAX_VALUE - 2;
+		return history[historyIndex(player, move)];
+	}
+
+	/**
+	 * Selection step: swaps the best remaining move into place and returns it
+	 */
+	private static int pickNext(int[] buffer, int[] order, int from, int count) {
+		int best = from;
+		for (int i = from + 1; i < count; i++) if (order[i] > order[best]) best = i;
+		int move = buffer[best];
+		buffer[best] = buffer[from];
+		buffer[from] = move;
+		int score = order[best];
+		order[best] = order[from];
+		order[from] = score;
+		return move;
+	}
+
+	private void rewardCutoff(int ply, int player, int move, int depth) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int index = historyIndex(player, move);
+		history[index] += depth * depth;
+		if (history[index] > HISTORY_LIMIT) {
+			for (int i = 0; i < history.length; i++) history[i] >>= 1;
+		}
+	}
+
+	private int historyIndex(int player, int move) {
+		return (player * 2 + (Moves.isDouble(move) ? 1 : 0)) * graph.size() +
+				Moves.destination(move);
+	}
+
+	/**
+	 * Scores for decided games are stored relative to the node rather than the root so that they
+	 * stay correct when the position is reached at another ply
+	 */
+	private static int toTable(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score + ply;
+		if (score < MAX_PLY - WIN) return score - ply;
+		return score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		if (score > WIN - MAX_PLY) return score - ply;
+		if (score < MAX_PLY - WIN) return score + ply;
+		return score;
+	}
+
+	private int cachedEvaluate(SearchState state) {
+		long key = state.locationsHash();
+		int score = cache.get(key);
+		if (score == EvaluationCache.MISSING) {
+			score = evaluate(state);
+			cache.put(key, score);
+		}
+		return score;
+	}
+
+	/**
+	 * Static evaluation of an undecided position from MrX's point of view, see
+	 * {@link DistanceEvaluator}
+	 */
+	int evaluate(@Nonnull SearchState state) {
+		batch.clear();
+		batch.add(state);
+		evaluator.evaluate(batch, batchScores);
+		return batchScores[0];
+	}
+}
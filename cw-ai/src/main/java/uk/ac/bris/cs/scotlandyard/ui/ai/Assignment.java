@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Minimum cost assignment with the Hungarian algorithm, using row and column potentials and
+ * shortest augmenting paths, in O(rows^2 * columns) time.
+ */
+final class Assignment {
+
+	private Assignment() {}
+
+	/**
+	 * @param cost the cost of assigning each row to each column; must have at most as many rows
+	 * as columns
+	 * @return the column assigned to each row; no two rows share a column and the total cost is
+	 * the least possible
+	 */
+	@Nonnull static int[] minimumCost(@Nonnull long[][] cost) {
+		int rows = cost.length;
+		if (rows == 0) return new int[0];
+		int columns = cost[0].length;
+		if (rows > columns) throw new IllegalArgumentException("More rows than columns");
+		// index 0 is a virtual column used as the root of every augmenting path
+		var u = new long[rows + 1];
+		var v = new long[columns + 1];
+		var owner = new int[columns + 1];
+		var way = new int[columns + 1];
+		var min = new long[columns + 1];
+		var used = new boolean[columns + 1];
+		for (int row = 1; row <= rows; row++) {
+			owner[0] = row;
+			int column = 0;
+			Arrays.fill(min, Long.MAX_VALUE);
+			Arrays.fill(used, false);
+			do {
+				used[column] = true;
+				int current = owner[column];
+				long delta = Long.MAX_VALUE;
+				int next = 0;
+				for (int c = 1; c <= columns; c++) {
+					if (used[c]) continue;
+					long reduced = cost[current - 1][c - 1] - u[current] - v[c];
+					if (reduced < min[c]) {
+						min[c] = reduced;
+						way[c] = column;
+					}
+					if (min[c] < delta) {
+						delta = min[c];
+						next = c;
+					}
+				}
+				for (int c = 0; c <= columns; c++) {
+					if (used[c]) {
+						u[owner[c]] += delta;
+						v[c] -= delta;
+					} else {
+						min[c] -= delta;
+					}
+				}
+				column = next;
+			} while (owner[column] != 0);
+			do {
+				int previous = way[column];
+				owner[column] = owner[previous];
+				column = previous;
+			} while (column != 0);
+		}
+		var result = new int[rows];
+		for (int c = 1; c <= columns; c++) if (owner[c] != 0) result[owner[c] - 1] = c - 1;
+		return result;
+	}
+}
@@ -0,0 +1,133 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+
+/**
+ * Where MrX could be, as far as the detectives can tell from his travel log.
+ * <br>
+ * Starting from the possible start locations, every log entry moves the set along the routes the
+ * logged ticket can be used on, and a revealed location replaces the set. Stations held by a
+ * detective now are removed at the end; earlier detective locations are not known to the board
+ * and are ignored, which can only make the set larger than it needs to be.
+ */
+final class Belief {
+
+	private Belief() {}
+
+	/**
+	 * @param graph the compact game graph
+	 * @param log MrX's travel log
+	 * @param detectives the current detective locations
+	 * @param start where MrX may have started; if the log rules out all of them every station of
+	 * the graph is used instead
+	 * @return the stations MrX may be on, in ascending order
+	 */
+	@Nonnull static int[] possibleLocations(@Nonnull GameGraph graph,
+	                                        @Nonnull List<LogEntry> log,
+	                                        @Nonnull int[] detectives,
+	                                        @Nonnull Collection<Integer> start) {
+		var possible = new boolean[graph.size()];
+		for (int station : start)
+			if (station < graph.size() && graph.firstEdge(station) < graph.lastEdge(station))
+				possible[station] = true;
+		var result = follow(graph, log, detectives, possible);
+		if (result.length > 0) return result;
+		Arrays.fill(possible, true);
+		return follow(graph, log, detectives, possible);
+	}
+
+	/**
+	 * Splits the possible locations into clusters and picks a central station in each: centres
+	 * are first spread out by repeatedly taking the location furthest from all centres so far,
+	 * then every centre is moved to the medoid of the locations closest to it.
+	 *
+	 * @param graph the compact game graph
+	 * @param possible the possible locations
+	 * @param k the number of clusters wanted
+	 * @return at most k distinct centres, all of them possible locations
+	 */
+	@Nonnull static int[] clusterCentres(@Nonnull GameGraph graph,
+	                                     @Nonnull int[] possible,
+	                                     int k) {
+		var centres = new int[Math.min(k, possible.length)];
+		if (centres.length == 0) return centres;
+		var members = new boolean[possible.length];
+		Arrays.fill(members, true);
+		centres[0] = medoid(graph, possible, members);
+		var nearest = new int[possible.length];
+		for (int i = 0; i < possible.length; i++)
+			nearest[i] = graph.distance(centres[0], possible[i]);
+		for (int c = 1; c < centres.length; c++) {
+			int furthest = 0;
+			for (int i = 1; i < possible.length; i++)
+				if (nearest[i] > nearest[furthest]) furthest = i;
+			centres[c] = possible[furthest];
+			for (int i = 0; i < possible.length; i++)
+				nearest[i] = Math.min(nearest[i], graph.distance(centres[c], possible[i]));
+		}
+		var cluster = new int[possible.length];
+		for (int i = 0; i < possible.length; i++) {
+			for (int c = 1; c < centres.length; c++)
+				if (graph.distance(centres[c], possible[i]) <
+						graph.distance(centres[cluster[i]], possible[i])) cluster[i] = c;
+		}
+		for (int c = 0; c < centres.length; c++) {
+			for (int i = 0; i < possible.length; i++) members[i] = cluster[i] == c;
+			centres[c] = medoid(graph, possible, members);
+		}
+		return centres;
+	}
+
+	/**
+	 * @return the member with the least total distance to all other members
+	 */
+	private static int medoid(GameGraph graph, int[] possible, boolean[] members) {
+		int best = -1;
+		long bestTotal = Long.MAX_VALUE;
+		for (int i = 0; i < possible.length; i++) {
+			if (!members[i]) continue;
+			long total = 0;
+			for (int j = 0; j < possible.length; j++)
+				if (members[j]) total += graph.distance(possible[i], possible[j]);
+			if (total < bestTotal) {
+				bestTotal = total;
+				best = possible[i];
+			}
+		}
+		return best;
+	}
+
+	private static int[] follow(GameGraph graph, List<LogEntry> log, int[] detectives,
+	                            boolean[] possible) {
+		var next = new boolean[possible.length];
+		for (LogEntry entry : log) {
+			if (entry.location().isPresent()) {
+				Arrays.fill(possible, false);
+				possible[entry.location().get()] = true;
+				continue;
+			}
+			int ticket = 1 << entry.ticket().ordinal();
+			Arrays.fill(next, false);
+			for (int station = 0; station < possible.length; station++) {
+				if (!possible[station]) continue;
+				for (int e = graph.firstEdge(station); e < graph.lastEdge(station); e++)
+					if ((graph.tickets(e) & ticket) != 0) next[graph.target(e)] = true;
+			}
+			System.arraycopy(next, 0, possible, 0, possible.length);
+		}
+		for (int detective : detectives) possible[detective] = false;
+		int count = 0;
+		for (boolean p : possible) if (p) count++;
+		var result = new int[count];
+		count = 0;
+		for (int station = 0; station < possible.length; station++)
+			if (possible[station]) result[count++] = station;
+		return result;
+	}
+}
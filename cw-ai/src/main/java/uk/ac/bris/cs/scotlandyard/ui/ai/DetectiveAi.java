@@ -0,0 +1,260 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Detectives that close in on every station MrX could be on.
+ * <br>
+ * Each call works out MrX's possible locations from the travel log (see {@link Belief}) and plans
+ * a destination for every detective that still has to move this round. A plan is scored over the
+ * possible locations by how close the nearest detective gets, so detectives spread out to cover
+ * the set rather than all chasing its middle.
+ * <br>
+ * The plan is made once per round. The possible locations are split into one cluster per
+ * detective and detectives are matched to clusters so that the total distance is least (see
+ * {@link Assignment}); each detective starts with the move that gets it closest to its cluster.
+ * The plan is then improved one detective at a time until no change helps or termination is
+ * requested. The model asks for one detective move at a time, so the plan is kept and the
+ * remaining detectives of the round play their planned moves without planning again.
+ */
+public class DetectiveAi implements Ai {
+
+	/**
+	 * Score of a possible location by the distance of the nearest detective; further away costs one
+	 * point per hop
+	 */
+	private static final int[] PROXIMITY = {100, 40, 15, 0};
+
+	private final ImmutableList<Integer> start;
+	private GameGraph graph;
+	private ImmutableList<LogEntry> plannedLog;
+	private ImmutableMap<Detective, Integer> planned = ImmutableMap.of();
+
+	public DetectiveAi() { this(ScotlandYard.MRX_LOCATIONS); }
+
+	/**
+	 * @param start where MrX may start the game
+	 */
+	public DetectiveAi(Collection<Integer> start) {
+		this.start = ImmutableList.copyOf(Objects.requireNonNull(start));
+	}
+
+	@Nonnull @Override public String name() { return "Detectives Coverage Ai"; }
+
+	@Override public void onStart() { release(); }
+
+	@Override public void onTerminate() { release(); }
+
+	private void release() {
+		graph = null;
+		plannedLog = null;
+		planned = ImmutableMap.of();
+	}
+
+	@Nonnull @Override public Move pickMove(
+			@Nonnull Board board,
+			@Nonnull AtomicBoolean terminate) {
+		var moves = board.getAvailableMoves().asList();
+		if (moves.size() == 1) return moves.get(0);
+		if (moves.get(0).commencedBy().isMrX())
+			throw new IllegalArgumentException("Not a detective turn");
+		if (graph == null || !graph.isFor(board.getSetup().graph)) {
+			release();
+			graph = new GameGraph(board.getSetup().graph);
+		}
+		var cached = plannedMove(board, moves);
+		if (cached != null) return cached;
+
+		var detectives = board.getPlayers().stream()
+				.filter(Piece::isDetective)
+				.sorted(ScotlandYard.PIECE_VALUE_ORDER)
+				.map(Detective.class::cast)
+				.collect(ImmutableList.toImmutableList());
+		var locations = detectives.stream()
+				.mapToInt(d -> board.getDetectiveLocation(d).orElseThrow())
+				.toArray();
+		var possible = Belief.possibleLocations(graph, board.getMrXTravelLog(), locations, start);
+
+		var options = new ArrayList<List<SingleMove>>();
+		var movers = new ArrayList<Integer>();
+		for (int i = 0; i < detectives.size(); i++) {
+			var choices = destinations(board, detectives.get(i), moves);
+			if (choices.isEmpty()) continue;
+			options.add(choices);
+			movers.add(i);
+		}
+		var plan = plan(possible, locations, movers, options, terminate);
+		var destinations = ImmutableMap.<Detective, Integer>builder();
+		for (int m = 0; m < movers.size(); m++)
+			destinations.put(detectives.get(movers.get(m)), options.get(m).get(plan[m]).destination);
+		this.plannedLog = board.getMrXTravelLog();
+		this.planned = destinations.build();
+		return options.get(0).get(plan[0]);
+	}
+
+	/**
+	 * @return the move planned earlier this round for the first detective to move, if it is
+	 * still available
+	 */
+	@Nullable private Move plannedMove(Board board, List<Move> moves) {
+		if (!board.getMrXTravelLog().equals(plannedLog)) return null;
+		var detective = moves.stream()
+				.map(Move::commencedBy)
+				.min(ScotlandYard.PIECE_VALUE_ORDER)
+				.orElseThrow();
+		var destination = planned.get(detective);
+		if (destination == null) return null;
+		for (SingleMove move : destinations(board, (Detective) detective, moves))
+			if (move.destination == destination) return move;
+		return null;
+	}
+
+	/**
+	 * @return one move per reachable station for the detective, using the ticket it holds most of
+	 */
+	private static List<SingleMove> destinations(Board board, Detective detective,
+	                                             List<Move> moves) {
+		var tickets = board.getPlayerTickets(detective).orElseThrow();
+		var best = new ArrayList<SingleMove>();
+		for (Move move : moves) {
+			if (move.commencedBy() != detective) continue;
+			var single = (SingleMove) move;
+			int index = -1;
+			for (int i = 0; i < best.size(); i++)
+				if (best.get(i).destination == single.destination) index = i;
+			if (index < 0) best.add(single);
+			else if (tickets.getCount(single.ticket) >
+					tickets.getCount(best.get(index).ticket)) best.set(index, single);
+		}
+		return best;
+	}
+
+	/**
+	 * @return for every mover, the index of its chosen option
+	 */
+	private int[] plan(int[] possible, int[] locations, List<Integer> movers,
+	                   List<List<SingleMove>> options, AtomicBoolean terminate) {
+		var positions = locations.clone();
+		var choice = seed(possible, positions, movers, options);
+		long score = score(possible, positions);
+		boolean improved = true;
+		while (improved && !terminate.get()) {
+			improved = false;
+			for (int m = 0; m < movers.size() && !terminate.get(); m++) {
+				int previous = choice[m];
+				int best = bestOption(possible, positions, movers, options, m);
+				if (best == previous) continue;
+				long candidate = score(possible, positions);
+				if (candidate > score) {
+					score = candidate;
+					choice[m] = best;
+					improved = true;
+				} else {
+					positions[movers.get(m)] = options.get(m).get(previous).destination;
+				}
+			}
+		}
+		return choice;
+	}
+
+	/**
+	 * Matches detectives to clusters of possible locations and moves each towards its cluster;
+	 * detectives left without a cluster take the best option for coverage
+	 */
+	private int[] seed(int[] possible, int[] positions, List<Integer> movers,
+	                   List<List<SingleMove>> options) {
+		var centres = Belief.clusterCentres(graph, possible, movers.size());
+		var cost = new long[centres.length][movers.size()];
+		for (int c = 0; c < centres.length; c++)
+			for (int m = 0; m < movers.size(); m++)
+				cost[c][m] = graph.distance(positions[movers.get(m)], centres[c]);
+		var targets = new int[movers.size()];
+		Arrays.fill(targets, -1);
+		var assigned = Assignment.minimumCost(cost);
+		for (int c = 0; c < centres.length; c++) targets[assigned[c]] = centres[c];
+
+		var choice = new int[movers.size()];
+		for (int m = 0; m < movers.size(); m++) {
+			if (targets[m] < 0) continue;
+			int detective = movers.get(m);
+			int best = -1;
+			for (int o = 0; o < options.get(m).size(); o++) {
+				int destination = options.get(m).get(o).destination;
+				if (taken(positions, detective, destination)) continue;
+				if (best < 0 || graph.distance(destination, targets[m]) <
+						graph.distance(options.get(m).get(best).destination, targets[m])) best = o;
+			}
+			choice[m] = Math.max(best, 0);
+			positions[detective] = options.get(m).get(choice[m]).destination;
+		}
+		for (int m = 0; m < movers.size(); m++)
+			if (targets[m] < 0) choice[m] = bestOption(possible, positions, movers, options, m);
+		return choice;
+	}
+
+	/**
+	 * Picks the best option of one mover with the other detectives at the given positions, and
+	 * moves the mover there
+	 */
+	private int bestOption(int[] possible, int[] positions, List<Integer> movers,
+	                       List<List<SingleMove>> options, int mover) {
+		int detective = movers.get(mover);
+		int best = -1;
+		long bestScore = Long.MIN_VALUE;
+		for (int o = 0; o < options.get(mover).size(); o++) {
+			int destination = options.get(mover).get(o).destination;
+			if (taken(positions, detective, destination)) continue;
+			positions[detective] = destination;
+			long score = score(possible, positions);
+			if (score > bestScore) {
+				bestScore = score;
+				best = o;
+			}
+		}
+		// every option is planned for another detective
+		if (best < 0) best = 0;
+		positions[detective] = options.get(mover).get(best).destination;
+		return best;
+	}
+
+	private static boolean taken(int[] positions, int detective, int station) {
+		for (int i = 0; i < positions.length; i++)
+			if (i != detective && positions[i] == station) return true;
+		return false;
+	}
+
+	/**
+	 * @return how well detectives at the given positions cover the possible locations
+	 */
+	private long score(int[] possible, int[] positions) {
+		long score = 0;
+		for (int station : possible) {
+			int nearest = GameGraph.UNREACHABLE;
+			for (int position : positions)
+				nearest = Math.min(nearest, graph.distance(position, station));
+			score += nearest < PROXIMITY.length ? PROXIMITY[nearest] :
+					PROXIMITY.length - 1 - nearest;
+		}
+		return score;
+	}
+}
@@ -0,0 +1,133 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed capacity cache of static evaluations keyed by a 64 bit position hash.
+ * <br>
+ * Keys and values live in parallel primitive arrays with open addressing: a key may only sit in
+ * the {@link #WAYS} slots following its home slot. When all of them are full, one is evicted with
+ * the CLOCK policy: a hand sweeps the window, clearing the referenced bit of recently read slots
+ * and evicting the first slot whose bit is already clear. Slots are only ever overwritten, never
+ * emptied, so lookups need no tombstones.
+ * <br>
+ * Not thread safe.
+ */
+final class EvaluationCache {
+
+	/**
+	 * Returned by {@link #get} when the key is not cached
+	 */
+	static final int MISSING = Integer.MIN_VALUE;
+
+	static final int WAYS = 8;
+
+	private static final long EMPTY = 0;
+
+	private final long[] keys;
+	private final int[] values;
+	private final boolean[] referenced;
+	private final int mask;
+	private int hand;
+	private int size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param capacity the number of entries, rounded up to a power of two
+	 */
+	EvaluationCache(int capacity) {
+		if (capacity < WAYS) throw new IllegalArgumentException("capacity < " + WAYS);
+		int slots = Integer.highestOneBit(capacity - 1) << 1;
+		this.keys = new long[slots];
+		this.values = new int[slots];
+		this.referenced = new boolean[slots];
+		this.mask = slots - 1;
+	}
+
+	/**
+	 * @param key the position hash
+	 * @return the cached value or {@link #MISSING}
+	 */
+	int get(long key) {
+		key = nonEmpty(key);
+		int home = home(key);
+		for (int i = 0; i < WAYS; i++) {
+			int slot = (home + i) & mask;
+			if (keys[slot] == key) {
+				referenced[slot] = true;
+				hits++;
+				return values[slot];
+			}
+			if (keys[slot] == EMPTY) break;
+		}
+		misses++;
+		return MISSING;
+	}
+
+	/**
+	 * @param key the position hash
+	 * @param value the value, anything but {@link #MISSING}
+	 */
+	void put(long key, int value) {
+		key = nonEmpty(key);
+		int home = home(key);
+		for (int i = 0; i < WAYS; i++) {
+			int slot = (home + i) & mask;
+			if (keys[slot] == key || keys[slot] == EMPTY) {
+				if (keys[slot] == EMPTY) size++;
+				keys[slot] = key;
+				values[slot] = value;
+				return;
+			}
+		}
+		// two sweeps at most: the first clears every bit it passes
+		while (true) {
+			int slot = (home + hand) & mask;
+			hand = (hand + 1) % WAYS;
+			if (referenced[slot]) {
+				referenced[slot] = false;
+				continue;
+			}
+			keys[slot] = key;
+			values[slot] = value;
+			evictions++;
+			return;
+		}
+	}
+
+	void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(referenced, false);
+		size = 0;
+		hits = misses = evictions = 0;
+	}
+
+	int capacity() { return keys.length; }
+
+	int size() { return size; }
+
+	long hits() { return hits; }
+
+	long misses() { return misses; }
+
+	long evictions() { return evictions; }
+
+	/**
+	 * @return the fraction of lookups that were hits, 0 before the first lookup
+	 */
+	double hitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override public String toString() {
+		return String.format("EvaluationCache{size=%d/%d, hitRate=%.3f, evictions=%d}",
+				size, keys.length, hitRate(), evictions);
+	}
+
+	private int home(long key) { return (int) (key ^ key >>> 32) & mask; }
+
+	private static long nonEmpty(long key) { return key == EMPTY ? 1 : key; }
+}
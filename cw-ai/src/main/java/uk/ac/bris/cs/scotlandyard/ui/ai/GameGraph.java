@@ -0,0 +1,159 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * A compact, array backed copy of the game graph for use in search.
+ * <br>
+ * Stations are used directly as indices. Every edge carries a bit mask of the ticket ordinals that
+ * can be used to travel along it; {@link Ticket#SECRET} is always part of the mask as a secret
+ * ticket can be used on any route.
+ */
+final class GameGraph {
+
+	/**
+	 * Distance used for stations that cannot reach each other
+	 */
+	static final int UNREACHABLE = Byte.MAX_VALUE;
+
+	private static final int SECRET_BIT = 1 << Ticket.SECRET.ordinal();
+
+	private final ImmutableValueGraph<Integer, ImmutableSet<Transport>> source;
+	private final int size;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] masks;
+	private final byte[] distances;
+	private final int maxDegree;
+	private final long fingerprint;
+
+	GameGraph(@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		this.source = Objects.requireNonNull(graph);
+		int max = 0;
+		for (int node : graph.nodes()) {
+			if (node < 0 || node >= Moves.MAX_STATIONS)
+				throw new IllegalArgumentException("Station out of range: " + node);
+			max = Math.max(max, node);
+		}
+		this.size = max + 1;
+		this.offsets = new int[size + 1];
+		for (int node : graph.nodes()) offsets[node + 1] = graph.degree(node);
+		for (int i = 0; i < size; i++) offsets[i + 1] += offsets[i];
+		this.targets = new int[offsets[size]];
+		this.masks = new int[offsets[size]];
+		int degree = 0;
+		for (int node : graph.nodes()) {
+			int edge = offsets[node];
+			for (int adjacent : graph.adjacentNodes(node)) {
+				int mask = SECRET_BIT;
+				for (Transport t : graph.edgeValueOrDefault(node, adjacent, ImmutableSet.of()))
+					mask |= 1 << t.requiredTicket().ordinal();
+				targets[edge] = adjacent;
+				masks[edge] = mask;
+				edge++;
+			}
+			degree = Math.max(degree, edge - offsets[node]);
+		}
+		this.maxDegree = degree;
+		this.distances = new byte[size * size];
+		Arrays.fill(distances, (byte) UNREACHABLE);
+		int[] queue = new int[size];
+		for (int node : graph.nodes()) breadthFirst(node, queue);
+		long hash = size;
+		for (int i = 0; i <= size; i++) hash = hash * 31 + offsets[i];
+		for (int e = 0; e < targets.length; e++) hash = (hash * 31 + targets[e]) * 31 + masks[e];
+		this.fingerprint = hash;
+	}
+
+	private void breadthFirst(int start, int[] queue) {
+		int row = start * size;
+		int head = 0, tail = 0;
+		queue[tail++] = start;
+		distances[row + start] = 0;
+		while (head < tail) {
+			int node = queue[head++];
+			int next = distances[row + node] + 1;
+			for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+				int target = targets[e];
+				if (distances[row + target] == UNREACHABLE && next < UNREACHABLE) {
+					distances[row + target] = (byte) next;
+					queue[tail++] = target;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a hash of the stations and routes, for checking that data computed offline belongs
+	 * to this graph; computed once, so it is cheap enough to check on every probe
+	 */
+	long fingerprint() { return fingerprint; }
+
+	/**
+	 * @param graph the graph to compare with
+	 * @return whether this compact graph was built from the given graph
+	 */
+	boolean isFor(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return source == graph || source.equals(graph);
+	}
+
+	/**
+	 * @return one more than the largest station number
+	 */
+	int size() { return size; }
+
+	/**
+	 * @return the largest number of routes leaving any one station
+	 */
+	int maxDegree() { return maxDegree; }
+
+	/**
+	 * @return an upper bound on the number of moves a single player can have, including double
+	 * moves; useful for sizing move buffers
+	 */
+	int maxMoves() {
+		int singles = maxDegree * Moves.TRAVEL_TICKETS;
+		return singles + singles * singles;
+	}
+
+	/**
+	 * @param station the station
+	 * @return the index of the first route leaving the station
+	 */
+	int firstEdge(int station) { return offsets[station]; }
+
+	/**
+	 * @param station the station
+	 * @return one past the index of the last route leaving the station
+	 */
+	int lastEdge(int station) { return offsets[station + 1]; }
+
+	/**
+	 * @param edge the route index
+	 * @return the station at the other end of the route
+	 */
+	int target(int edge) { return targets[edge]; }
+
+	/**
+	 * @param edge the route index
+	 * @return a bit mask of ticket ordinals usable on the route
+	 */
+	int tickets(int edge) { return masks[edge]; }
+
+	/**
+	 * @param from the first station
+	 * @param to the second station
+	 * @return the least number of hops between the two stations, ignoring tickets, or
+	 * {@link #UNREACHABLE}
+	 */
+	int distance(int from, int to) { return distances[from * size + to]; }
+}
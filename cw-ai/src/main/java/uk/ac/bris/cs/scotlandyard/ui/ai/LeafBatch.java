@@ -0,0 +1,51 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Positions waiting for static evaluation, stored as one column per field so that a
+ * {@link LeafEvaluator} can score all of them in a few tight loops.
+ * <br>
+ * Column {@code i} of every array describes the {@code i}th position added since the last
+ * {@link #clear()}: MrX's location and each detective's location. A batch is sized for a fixed
+ * number of detectives and is not thread safe.
+ */
+final class LeafBatch {
+
+	final int[] mrX;
+	final int[][] detectives;
+	private int size;
+
+	/**
+	 * @param capacity the largest number of positions held at once
+	 * @param detectives the number of detectives in every position
+	 */
+	LeafBatch(int capacity, int detectives) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+		this.mrX = new int[capacity];
+		this.detectives = new int[detectives][capacity];
+	}
+
+	int size() { return size; }
+
+	int capacity() { return mrX.length; }
+
+	int detectives() { return detectives.length; }
+
+	void clear() { size = 0; }
+
+	/**
+	 * @param state an undecided position with the number of detectives this batch was sized for
+	 * @return the column the position was stored in
+	 */
+	int add(@Nonnull SearchState state) {
+		if (state.players() - 1 != detectives.length)
+			throw new IllegalArgumentException("Batch holds " + detectives.length +
+					" detectives, got " + (state.players() - 1));
+		int column = size++;
+		mrX[column] = state.location(SearchState.MRX);
+		for (int d = 0; d < detectives.length; d++)
+			detectives[d][column] = state.location(d + 1);
+		return column;
+	}
+}
@@ -0,0 +1,16 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Static evaluation of many undecided positions in one call.
+ */
+interface LeafEvaluator {
+
+	/**
+	 * @param batch the positions to score
+	 * @param scores receives the score of column {@code i} of the batch at index {@code i}, from
+	 * MrX's point of view; must hold at least {@link LeafBatch#size()} elements
+	 */
+	void evaluate(@Nonnull LeafBatch batch, @Nonnull int[] scores);
+}
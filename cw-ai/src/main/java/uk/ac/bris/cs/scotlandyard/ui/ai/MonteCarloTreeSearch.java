@@ -0,0 +1,463 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Monte Carlo tree search with UCT selection over {@link SearchState}s.
+ * <br>
+ * MrX searches with perfect information: simulated detectives know where he is, which makes the
+ * search pessimistic for him. Rollouts play complete games without allocating; detectives chase
+ * MrX greedily most of the time and MrX moves at random.
+ * <br>
+ * The tree is kept between calls to {@link #search}: when the position that comes back after the
+ * opponent's moves is found below the previously chosen move, that subtree becomes the new root.
+ * <br>
+ * With more than one worker the search is tree parallel. All workers share one tree; node
+ * statistics are atomic counters and a node is expanded by publishing its move list with a single
+ * compare-and-set, so no locks are taken. A worker adds a visit to every node on its way down
+ * before the result is known (a virtual loss), which steers the other workers to other branches
+ * until the result is added on the way back.
+ * <br>
+ * Termination: every worker checks the terminate flag and the deadline after each playout and
+ * stops as soon as either fires or any other worker has stopped. {@link #search} waits for all
+ * workers before reading the tree, so the answer is always based on finished playouts, and
+ * rethrows the first failure of any worker.
+ * <br>
+ * Between searches the committed subtree can be grown further with {@link #ponder}.
+ */
+final class MonteCarloTreeSearch implements AutoCloseable {
+
+	private static final double EXPLORATION = 0.7;
+
+	private final GameGraph graph;
+	private final SplittableRandom random;
+	private final Worker[] workers;
+	private final ExecutorService executor;
+	private SearchState rootState;
+	private Node root;
+	private long playouts;
+
+	/**
+	 * @param graph the compact game graph
+	 * @param seed seed for the random playouts
+	 * @param threads the number of workers; with 1 the search runs on the calling thread only
+	 */
+	MonteCarloTreeSearch(@Nonnull GameGraph graph, long seed, int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1");
+		this.graph = graph;
+		this.random = new SplittableRandom(seed);
+		this.workers = new Worker[threads];
+		this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1,
+				new ThreadFactoryBuilder()
+						.setNameFormat("mcts-worker-%d")
+						.setDaemon(true)
+						.build());
+	}
+
+	/**
+	 * A node of the search tree; the statistics are from the point of view of the player that
+	 * made {@link #move}
+	 */
+	static final class Node {
+		private static final AtomicIntegerFieldUpdater<Node> VISITS =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+		private static final AtomicIntegerFieldUpdater<Node> WINS =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "wins");
+		private static final AtomicIntegerFieldUpdater<Node> EXPANDED =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "expanded");
+		private static final AtomicReferenceFieldUpdater<Node, Children> CHILDREN =
+				AtomicReferenceFieldUpdater.newUpdater(Node.class, Children.class, "children");
+
+		final int move;
+		final int player;
+		volatile Children children;
+		volatile int expanded;
+		volatile int visits;
+		volatile int wins;
+
+		Node(int move, int player) {
+			this.move = move;
+			this.player = player;
+		}
+
+		/**
+		 * Publishes the moves of this node unless another worker got there first
+		 *
+		 * @param moves the moves in the order they should be expanded
+		 * @return the children that were published
+		 */
+		@Nonnull Children expandWith(int[] moves) {
+			var created = new Children(moves);
+			return CHILDREN.compareAndSet(this, null, created) ? created : children;
+		}
+
+		/**
+		 * @param length the number of moves of this node
+		 * @return the index of the move this worker may expand, or -1 if all are taken
+		 */
+		int claim(int length) {
+			while (true) {
+				int current = expanded;
+				if (current >= length) return -1;
+				if (EXPANDED.compareAndSet(this, current, current + 1)) return current;
+			}
+		}
+
+		void visit() { VISITS.incrementAndGet(this); }
+
+		void win() { WINS.incrementAndGet(this); }
+
+		@Nullable Node child(int move) {
+			var children = this.children;
+			if (children == null) return null;
+			for (int i = 0, n = Math.min(expanded, children.moves.length); i < n; i++) {
+				var child = children.nodes.get(i);
+				if (child != null && child.move == move) return child;
+			}
+			return null;
+		}
+
+		/**
+		 * Limits the children to the given moves, keeping the statistics of the ones already
+		 * expanded; must not run concurrently with a search
+		 */
+		void restrictTo(int[] legal, SplittableRandom random) {
+			var kept = new ArrayList<Node>();
+			for (int move : legal) {
+				var child = child(move);
+				if (child != null) kept.add(child);
+			}
+			var order = new int[legal.length];
+			int count = 0;
+			for (Node child : kept) order[count++] = child.move;
+			for (int move : legal) if (child(move) == null) order[count++] = move;
+			shuffle(order, kept.size(), order.length, random);
+			var restricted = new Children(order);
+			for (int i = 0; i < kept.size(); i++) restricted.nodes.set(i, kept.get(i));
+			this.children = restricted;
+			this.expanded = kept.size();
+		}
+	}
+
+	/**
+	 * The moves of a node in expansion order and the nodes created for them so far; a slot stays
+	 * empty between a worker claiming it and publishing its node
+	 */
+	static final class Children {
+		final int[] moves;
+		final AtomicReferenceArray<Node> nodes;
+
+		Children(int[] moves) {
+			this.moves = moves;
+			this.nodes = new AtomicReferenceArray<>(moves.length);
+		}
+	}
+
+	/**
+	 * @return total playouts run by this search so far
+	 */
+	long playouts() { return playouts; }
+
+	/**
+	 * @return the number of workers
+	 */
+	int threads() { return workers.length; }
+
+	/**
+	 * @return the visits of the current root, i.e. playouts that went into the current decision
+	 */
+	int rootVisits() { return root == null ? 0 : root.visits; }
+
+	/**
+	 * @return the current root, or null before the first search and after a reset
+	 */
+	@Nullable Node root() { return root; }
+
+	/**
+	 * Searches the given position until the deadline passes or termination is requested.
+	 *
+	 * @param state the position, with the searching side to move
+	 * @param legal the encoded legal moves of the position, as given by the board
+	 * @param terminate flag that stops the search when set
+	 * @param deadline {@link System#nanoTime()} at which to stop
+	 * @return the encoded move played most often from the root, sorted candidates can be read
+	 * through {@link #ranked()}
+	 */
+	int search(@Nonnull SearchState state, @Nonnull int[] legal,
+	           @Nonnull AtomicBoolean terminate, long deadline) {
+		reuseOrReset(state);
+		var pruned = legal.clone();
+		int count = workers[0].pruner.prune(state, pruned, pruned.length);
+		root.restrictTo(Arrays.copyOf(pruned, count), random);
+		run(terminate, deadline);
+		return ranked()[0];
+	}
+
+	/**
+	 * Keeps searching below the committed move while the opponents think, so that the next
+	 * {@link #search} finds a larger subtree to reuse; does nothing if no move was committed.
+	 *
+	 * @param stop flag that stops pondering when set
+	 * @param deadline {@link System#nanoTime()} at which to stop, bounding the size of the tree
+	 */
+	void ponder(@Nonnull AtomicBoolean stop, long deadline) {
+		if (root == null) return;
+		run(stop, deadline);
+	}
+
+	private void run(AtomicBoolean terminate, long deadline) {
+		var stop = new AtomicBoolean();
+		var futures = new ArrayList<Future<?>>(workers.length - 1);
+		for (int i = 1; i < workers.length; i++) {
+			var worker = workers[i];
+			futures.add(executor.submit(() -> worker.run(terminate, stop, deadline)));
+		}
+		RuntimeException failure = null;
+		try {
+			workers[0].run(terminate, stop, deadline);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		boolean interrupted = false;
+		for (var future : futures) {
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					// the tree must not be read while workers still write to it
+					stop.set(true);
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null) failure = new IllegalStateException(
+							"Search worker failed", e.getCause());
+					break;
+				}
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+		for (var worker : workers) {
+			playouts += worker.playouts;
+			worker.playouts = 0;
+		}
+		if (failure != null) {
+			reset();
+			throw failure;
+		}
+	}
+
+	/**
+	 * @return the expanded root moves ordered by visits, most visited first; the untried moves
+	 * follow in no particular order
+	 */
+	@Nonnull int[] ranked() {
+		var children = root.children;
+		var nodes = new ArrayList<Node>();
+		for (int i = 0, n = Math.min(root.expanded, children.moves.length); i < n; i++) {
+			var node = children.nodes.get(i);
+			if (node != null) nodes.add(node);
+		}
+		nodes.sort((a, b) -> Integer.compare(b.visits, a.visits));
+		var result = new int[children.moves.length];
+		int count = 0;
+		for (Node node : nodes) result[count++] = node.move;
+		for (int move : children.moves) if (root.child(move) == null) result[count++] = move;
+		return result;
+	}
+
+	/**
+	 * Commits to a root move so that the subtree below it can be reused on the next search
+	 *
+	 * @param move the encoded move actually played
+	 */
+	void commit(int move) {
+		var child = root.child(move);
+		if (child == null) {
+			reset();
+			return;
+		}
+		rootState.play(move);
+		root = child;
+	}
+
+	void reset() {
+		root = null;
+		rootState = null;
+	}
+
+	/**
+	 * Stops the worker threads; the search cannot be used afterwards
+	 */
+	@Override public void close() {
+		if (executor != null) executor.shutdownNow();
+	}
+
+	private void reuseOrReset(SearchState state) {
+		if (workers[0] == null || !workers[0].state.sameGame(state)) {
+			for (int i = 0; i < workers.length; i++) workers[i] = new Worker(state, random.split());
+		}
+		var node = root == null || !rootState.sameGame(state) ? null :
+				descend(state, workers[0].state);
+		if (node == null) {
+			node = new Node(Moves.NONE, SearchState.MRX);
+		}
+		root = node;
+		rootState = state.copy();
+	}
+
+	/**
+	 * Follows the opponent's moves from the committed root down to the given position by reading
+	 * which ticket each detective spent and where it went
+	 */
+	@Nullable private Node descend(SearchState actual, SearchState scratch) {
+		var node = root;
+		scratch.copyFrom(rootState);
+		while (!scratch.isOver() && !scratch.mrXToMove()) {
+			int player = scratch.player();
+			int move = Moves.NONE;
+			for (int t = 0; t < SearchState.TICKET_TYPES; t++) {
+				if (scratch.tickets(player, t) - actual.tickets(player, t) == 1)
+					move = Moves.single(t, actual.location(player));
+			}
+			node = move == Moves.NONE ? null : node.child(move);
+			if (node == null) return null;
+			scratch.play(move);
+		}
+		return scratch.samePosition(actual) ? node : null;
+	}
+
+	/**
+	 * Shuffles the moves between the given indices
+	 */
+	private static void shuffle(int[] moves, int from, int to, SplittableRandom random) {
+		for (int i = to - 1; i > from; i--) {
+			int j = from + random.nextInt(i - from + 1);
+			int move = moves[i];
+			moves[i] = moves[j];
+			moves[j] = move;
+		}
+	}
+
+	/**
+	 * The thread confined part of the search: a scratch position, buffers and a random source
+	 */
+	private final class Worker {
+		final SearchState state;
+		final SplittableRandom random;
+		final int[] buffer = new int[graph.maxMoves()];
+		final MovePruner pruner = new MovePruner(graph);
+		final RolloutEngine rollouts;
+		Node[] path = new Node[64];
+		long playouts;
+
+		Worker(SearchState state, SplittableRandom random) {
+			this.state = state.copy();
+			this.random = random;
+			this.rollouts = new RolloutEngine(graph, random.split(),
+					RolloutEngine.DEFAULT_CHASE, 0);
+		}
+
+		void run(AtomicBoolean terminate, AtomicBoolean stop, long deadline) {
+			try {
+				do {
+					iterate();
+				} while (!stop.get() && !terminate.get() && System.nanoTime() < deadline);
+			} finally {
+				stop.set(true);
+			}
+		}
+
+		private void iterate() {
+			state.copyFrom(rootState);
+			var node = root;
+			int depth = 0;
+			path[depth++] = node;
+			node.visit();
+			int result;
+			while (true) {
+				if (state.isOver()) {
+					result = state.winner() == SearchState.MRX_WON ? 1 : 0;
+					break;
+				}
+				var children = node.children;
+				if (children == null) {
+					var moves = Arrays.copyOf(buffer,
+							pruner.prune(state, buffer, state.generateMoves(buffer, true)));
+					// secret tickets are tried last, those that hide the most first
+					shuffle(moves, 0, pruner.ordinary(), random);
+					children = node.expandWith(moves);
+				}
+				int slot = node.claim(children.moves.length);
+				Node next;
+				if (slot >= 0) {
+					next = new Node(children.moves[slot], state.player());
+					children.nodes.set(slot, next);
+				} else {
+					next = select(node, children);
+					// every move is claimed but none published yet, play out from here instead
+					if (next == null) {
+						result = rollout();
+						break;
+					}
+				}
+				state.play(next.move);
+				next.visit();
+				if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+				path[depth++] = next;
+				if (slot >= 0) {
+					result = rollout();
+					break;
+				}
+				node = next;
+			}
+			for (int i = 0; i < depth; i++) {
+				var n = path[i];
+				if ((n.player == SearchState.MRX) == (result == 1)) n.win();
+			}
+			playouts++;
+		}
+
+		@Nullable private Node select(Node node, Children children) {
+			double log = Math.log(node.visits);
+			Node best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0, n = children.moves.length; i < n; i++) {
+				var child = children.nodes.get(i);
+				if (child == null) continue;
+				int visits = child.visits;
+				if (visits == 0) return child;
+				double value = (double) child.wins / visits +
+						EXPLORATION * Math.sqrt(log / visits);
+				if (value > bestValue) {
+					bestValue = value;
+					best = child;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Plays the game to the end
+		 *
+		 * @return 1 if MrX won, 0 otherwise
+		 */
+		private int rollout() {
+			return rollouts.play(state) == SearchState.MRX_WON ? 1 : 0;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Removes MrX moves that search does not need to tell apart and orders the rest.
+ * <br>
+ * Search treats MrX's location as known, so two double moves that end on the same station having
+ * used the same tickets lead to the same position whatever the intermediate station or the order
+ * of the tickets. Only one of them is kept: the one that tells the detectives the least.
+ * <br>
+ * What a move tells the detectives is measured by its spread, the number of stations MrX could
+ * have gone to given what they see: one for a move into a reveal round, the number of routes
+ * that take the shown ticket otherwise, or every route for a secret ticket. A double move
+ * multiplies the spread of its hidden legs. A secret ticket is dominated, and the move dropped,
+ * when a normal ticket on the same leg is legal and spreads at least as far; this covers secret
+ * tickets spent on reveal rounds and at stations served by one kind of transport only.
+ * <br>
+ * The kept moves that use no secret ticket come first, in their original order, followed by the
+ * ones that do, the widest spread first.
+ * <br>
+ * An instance keeps its scratch tables between calls and must not be shared between threads.
+ */
+final class MovePruner {
+
+	private static final int SECRET = Ticket.SECRET.ordinal();
+	private static final int[] NORMAL = {
+			Ticket.TAXI.ordinal(), Ticket.BUS.ordinal(), Ticket.UNDERGROUND.ordinal()};
+	private static final int TICKET_BITS = 3;
+
+	private final int[] reach;
+	private final Table legal;
+	private final Table transpositions;
+	private final int[] spreads;
+	private final long[] secrets;
+	private int ordinary;
+
+	/**
+	 * @param graph the compact game graph
+	 */
+	MovePruner(@Nonnull GameGraph graph) {
+		this.reach = new int[graph.size() * SearchState.TICKET_TYPES];
+		for (int station = 0; station < graph.size(); station++) {
+			for (int e = graph.firstEdge(station); e < graph.lastEdge(station); e++) {
+				for (int t = 0; t < SearchState.TICKET_TYPES; t++) {
+					if ((graph.tickets(e) & 1 << t) != 0)
+						reach[station * SearchState.TICKET_TYPES + t]++;
+				}
+			}
+		}
+		this.legal = new Table(graph.maxMoves());
+		this.transpositions = new Table(graph.maxMoves());
+		this.spreads = new int[graph.maxMoves()];
+		this.secrets = new long[graph.maxMoves()];
+	}
+
+	/**
+	 * Prunes and orders MrX's moves in place; moves of detectives are left untouched
+	 *
+	 * @param state the position the moves were generated for
+	 * @param moves the encoded moves
+	 * @param count the number of moves
+	 * @return the number of moves kept at the front of the array
+	 */
+	int prune(@Nonnull SearchState state, @Nonnull int[] moves, int count) {
+		ordinary = count;
+		if (!state.mrXToMove()) return count;
+		if (count <= 1) {
+			if (count == 1 && usesSecret(moves[0])) ordinary = 0;
+			return count;
+		}
+		int source = state.location(SearchState.MRX);
+		boolean revealFirst = state.isReveal(state.round());
+		boolean revealSecond = state.round() + 1 < state.totalRounds() &&
+				state.isReveal(state.round() + 1);
+
+		// every legal move, for finding the normal ticket alternatives of secret legs
+		legal.clear();
+		for (int i = 0; i < count; i++) legal.put(moves[i], i);
+		for (int i = 0; i < count; i++)
+			spreads[i] = spread(moves[i], source, revealFirst, revealSecond);
+
+		// drop dominated secret tickets and collapse transposed double moves
+		transpositions.clear();
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int spread = spreads[i];
+			if (dominated(move, source, revealFirst, revealSecond, spread)) continue;
+			if (Moves.isDouble(move)) {
+				int key = transposition(move);
+				int slot = transpositions.get(key);
+				if (slot >= 0) {
+					if (spread > spreads[slot]) {
+						moves[slot] = move;
+						spreads[slot] = spread;
+					}
+					continue;
+				}
+				transpositions.put(key, kept);
+			}
+			moves[kept] = move;
+			spreads[kept++] = spread;
+		}
+
+		// the moves without secret tickets first, then secret ones by spread, widest first
+		int secretCount = 0;
+		int front = 0;
+		for (int i = 0; i < kept; i++) {
+			if (usesSecret(moves[i])) {
+				secrets[secretCount++] = (long) -spreads[i] << 32 | moves[i] & 0xffffffffL;
+			} else {
+				moves[front++] = moves[i];
+			}
+		}
+		Arrays.sort(secrets, 0, secretCount);
+		for (int i = 0; i < secretCount; i++) moves[front + i] = (int) secrets[i];
+		ordinary = front;
+		return kept;
+	}
+
+	/**
+	 * @return the number of moves without secret tickets at the front after the last
+	 * {@link #prune}
+	 */
+	int ordinary() { return ordinary; }
+
+	/**
+	 * @return the number of stations the detectives have to consider after the move
+	 */
+	int spread(int move, int source, boolean revealFirst, boolean revealSecond) {
+		int first = revealFirst ? 1 : reach(source, Moves.ticket1(move));
+		if (!Moves.isDouble(move)) return first;
+		if (revealSecond) return 1;
+		return first * reach(Moves.destination1(move), Moves.ticket2(move));
+	}
+
+	private boolean dominated(int move, int source, boolean revealFirst, boolean revealSecond,
+	                          int spread) {
+		if (Moves.ticket1(move) == SECRET) {
+			for (int ticket : NORMAL) {
+				int alternative = Moves.isDouble(move) ?
+						Moves.doubleMove(ticket, Moves.destination1(move),
+								Moves.ticket2(move), Moves.destination2(move)) :
+						Moves.single(ticket, Moves.destination1(move));
+				if (legal.get(alternative) >= 0 &&
+						spread(alternative, source, revealFirst, revealSecond) >= spread)
+					return true;
+			}
+		}
+		if (Moves.isDouble(move) && Moves.ticket2(move) == SECRET) {
+			for (int ticket : NORMAL) {
+				int alternative = Moves.doubleMove(Moves.ticket1(move), Moves.destination1(move),
+						ticket, Moves.destination2(move));
+				if (legal.get(alternative) >= 0 &&
+						spread(alternative, source, revealFirst, revealSecond) >= spread)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private int reach(int station, int ticket) {
+		return reach[station * SearchState.TICKET_TYPES + ticket];
+	}
+
+	private static boolean usesSecret(int move) {
+		return Moves.ticket1(move) == SECRET ||
+				(Moves.isDouble(move) && Moves.ticket2(move) == SECRET);
+	}
+
+	/**
+	 * @return a key shared by all double moves that end on the same station with the same tickets
+	 */
+	private static int transposition(int move) {
+		int a = Moves.ticket1(move);
+		int b = Moves.ticket2(move);
+		return (Moves.destination2(move) << TICKET_BITS | Math.min(a, b)) << TICKET_BITS |
+				Math.max(a, b);
+	}
+
+	/**
+	 * An open addressing map from non-negative int keys to int values that is cleared in constant
+	 * time by moving to a new epoch
+	 */
+	private static final class Table {
+		private final int[] keys;
+		private final int[] values;
+		private final int[] stamps;
+		private final int mask;
+		private int epoch;
+
+		Table(int entries) {
+			int capacity = Integer.highestOneBit(entries * 2 - 1) << 1;
+			this.keys = new int[capacity];
+			this.values = new int[capacity];
+			this.stamps = new int[capacity];
+			this.mask = capacity - 1;
+		}
+
+		void clear() {
+			if (++epoch == 0) {
+				Arrays.fill(stamps, 0);
+				epoch = 1;
+			}
+		}
+
+		void put(int key, int value) {
+			int i = index(key);
+			while (stamps[i] == epoch) i = (i + 1) & mask;
+			stamps[i] = epoch;
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		/**
+		 * @return the value of the key or -1 if absent
+		 */
+		int get(int key) {
+			for (int i = index(key); stamps[i] == epoch; i = (i + 1) & mask)
+				if (keys[i] == key) return values[i];
+			return -1;
+		}
+
+		private int index(int key) { return (key * 0x9E3779B9) >>> 16 & mask; }
+	}
+}
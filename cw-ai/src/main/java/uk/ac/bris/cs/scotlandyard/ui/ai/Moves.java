@@ -0,0 +1,101 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.FunctionalVisitor;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Packs moves into a single int so that search can store and generate them without allocating.
+ * <br>
+ * From the least significant bit: the first destination, the first ticket, the second
+ * destination, the second ticket and a flag that marks double moves. The piece and source are
+ * implied by the position the move is played from.
+ */
+final class Moves {
+
+	private Moves() {}
+
+	static final int STATION_BITS = 10;
+	static final int MAX_STATIONS = 1 << STATION_BITS;
+
+	/**
+	 * Number of tickets that pay for a single hop: taxi, bus, underground and secret
+	 */
+	static final int TRAVEL_TICKETS = 4;
+
+	static final Ticket[] TICKETS = Ticket.values();
+
+	private static final int STATION_MASK = MAX_STATIONS - 1;
+	private static final int TICKET_BITS = 3;
+	private static final int TICKET_MASK = (1 << TICKET_BITS) - 1;
+	private static final int LEG_BITS = STATION_BITS + TICKET_BITS;
+	private static final int DOUBLE_FLAG = 1 << (2 * LEG_BITS);
+
+	/**
+	 * Marker for "no move"; never a valid encoding
+	 */
+	static final int NONE = -1;
+
+	static int single(int ticket, int destination) {
+		return destination | ticket << STATION_BITS;
+	}
+
+	static int doubleMove(int ticket1, int destination1, int ticket2, int destination2) {
+		return single(ticket1, destination1) | single(ticket2, destination2) << LEG_BITS
+				| DOUBLE_FLAG;
+	}
+
+	static boolean isDouble(int move) { return (move & DOUBLE_FLAG) != 0; }
+
+	static int ticket1(int move) { return move >>> STATION_BITS & TICKET_MASK; }
+
+	static int destination1(int move) { return move & STATION_MASK; }
+
+	static int ticket2(int move) { return move >>> (LEG_BITS + STATION_BITS) & TICKET_MASK; }
+
+	static int destination2(int move) { return move >>> LEG_BITS & STATION_MASK; }
+
+	/**
+	 * @param move the encoded move
+	 * @return where the player ends up after the whole move
+	 */
+	static int destination(int move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	/**
+	 * @param move the move
+	 * @return the encoded move
+	 */
+	static int encode(@Nonnull Move move) {
+		return move.visit(new FunctionalVisitor<>(
+				m -> single(m.ticket.ordinal(), m.destination),
+				m -> doubleMove(m.ticket1.ordinal(), m.destination1,
+						m.ticket2.ordinal(), m.destination2)));
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @param piece the piece making the move
+	 * @param source where the piece is before the move
+	 * @return the decoded move
+	 */
+	@Nonnull static Move decode(int move, @Nonnull Piece piece, int source) {
+		if (isDouble(move)) return new DoubleMove(piece, source,
+				TICKETS[ticket1(move)], destination1(move),
+				TICKETS[ticket2(move)], destination2(move));
+		return new SingleMove(piece, source, TICKETS[ticket1(move)], destination1(move));
+	}
+
+	static String toString(int move) {
+		if (move == NONE) return "NONE";
+		if (isDouble(move)) return "x2(" + TICKETS[ticket1(move)] + ", " + destination1(move) +
+				", " + TICKETS[ticket2(move)] + ", " + destination2(move) + ")";
+		return TICKETS[ticket1(move)] + "(" + destination1(move) + ")";
+	}
+}
@@ -1,164 +1,103 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.graph.EndpointPair;
-import com.google.common.graph.ImmutableValueGraph;
-import org.glassfish.grizzly.Transport;
 import uk.ac.bris.cs.scotlandyard.model.*;
 
 public class MrXAi implements Ai {
 
-	@Nonnull @Override public String name() { return "Mr X Ai"; }
+	private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(10);
+
+	private final Duration budget;
+	private final int threads;
+	// a table is solved for one or two detectives, so it never covers the standard five
+	@Nullable private final Tablebase tablebase = Tablebase.standard();
+	private TimeManager time;
+	private long seed = new Random().nextLong();
+	private GameGraph graph;
+	private MonteCarloTreeSearch search;
+
+	public MrXAi() { this(DEFAULT_BUDGET); }
 
 	/**
-	 * @param location a location on the board
-	 * @param board the game board
-	 * @return true if there is a detective on the given location
+	 * @param budget the time spent searching for a single move when the game gives no
+	 * {@link TimeManager}
 	 */
-	private boolean detectiveOn(Integer location, Board board) {
-		for (Piece piece : board.getPlayers()) {
-			if (piece.isDetective()) {
-				Piece.Detective detective = (Piece.Detective) piece;
-				if (board.getDetectiveLocation(detective).isPresent()) {
-					if (board.getDetectiveLocation(detective).get().equals(location)) {
-						return true;
-					}
-				}
-			}
-		}
-		return false;
-	}
+	public MrXAi(Duration budget) { this(budget, Runtime.getRuntime().availableProcessors()); }
 
 	/**
-	 * @param setA the first set
-	 * @param setB the second set
-	 * @return setA \ setB
+	 * @param budget the time spent searching for a single move when the game gives no
+	 * {@link TimeManager}
+	 * @param threads the number of search workers
 	 */
-	private Set<Integer> setMinus(Set<Integer> setA, Set<Integer> setB) {
-		return setA.stream()
-				   .filter(setB::contains)
-				   .collect(Collectors.toSet());
+	public MrXAi(Duration budget, int threads) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1");
+		this.budget = Objects.requireNonNull(budget);
+		this.threads = threads;
 	}
 
-	/**
-	 * @param start the start position from which to calculate distances
-	 * @param board the game board
-	 * @return
-	 */
-	private Integer shortestPath(Integer start, Board board) {
-		ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = board.getSetup().graph;
-		// dijkstra's algorithm
-		// initialise a set of visited nodes
-		Set<Integer> visited = new HashSet<>();
-		visited.add(start);
-		// initialise a set of detective positions
-		Set<Integer> detectivePositions = new HashSet<>();
-		// Initialise and fill a map of nodes to distances from start
-		Map<Integer, Integer> dist = new HashMap<Integer, Integer>();
-		for (Integer node : graph.nodes()) {
-			if (node.equals(start)) dist.put(node, 0);
-			else if (graph.hasEdgeConnecting(start, node)) dist.put(node, 1);
-			else dist.put(node, Integer.MAX_VALUE);
-		};
-		// repeat until all nodes have been visited
-		while (!graph.nodes().equals(visited)) {
-			// find the nearest node to the current node
-			Integer nearestDist = Integer.MAX_VALUE;
-			Integer nearestNode = null;
-			for (Integer node : setMinus(graph.nodes(), visited)) {
-				if (dist.get(node) <= nearestDist) {
-					nearestDist = dist.get(node);
-					nearestNode = node;
-				}
-			}
-			// set a new current node and add it to visited
-			Integer current = nearestNode;
-			visited.add(nearestNode);
-			if (detectiveOn(nearestNode, board)) {
-				detectivePositions.add(nearestNode);
-			}
-			assert current != null;
-			// update the distances for all unvisited nodes
-			for (Integer node : setMinus(graph.nodes(), visited)) {
-				Integer edge = Integer.MAX_VALUE;
-				if (graph.hasEdgeConnecting(current, node)) edge = 1;
-				if (dist.get(current) + edge < dist.get(node)) dist.replace(node, dist.get(current) + edge);
-			}
-		}
-		if (detectivePositions.stream().min(Integer::compare).isPresent()) {
-			return dist.get(detectivePositions.stream().min(Integer::compare).get());
-		}
-		else throw new RuntimeException("No detective minimum distance");
+	@Nonnull @Override public String name() { return "Mr X Ai"; }
+
+	@Override public void onStart() {
+		release();
+		time = null;
+		seed = new Random().nextLong();
 	}
 
-	/**
-	 * @param board the game board
-	 * @return mrX
-	 */
-	private Piece getMrX(Board board) {
-		for (Piece piece : board.getPlayers()) {
-			if (piece.isMrX()) return piece;
-		}
-		throw new RuntimeException("MrX not found");
+	@Override public void onStart(@Nonnull TimeManager time) {
+		onStart();
+		this.time = time;
 	}
 
 	/**
-	 * @param location the location of interest
-	 * @param board the game board
-	 * @return the number of possible moves from the location
+	 * Seeds the random playouts of the search; with one worker, a game in which the search always
+	 * runs the same number of playouts is then played the same way again
 	 */
-	private Integer getPossibleMoves(Integer location, Board board) {
-		Set<EndpointPair<Integer>> edges = board.getSetup().graph.incidentEdges(location);
-		Integer result = 0;
-		// get MrX's tickets or return 0 if he has none
-		if (board.getPlayerTickets(getMrX(board)).isPresent()) {
-			Board.TicketBoard tickets = board.getPlayerTickets(getMrX(board)).get();
-			// count the number of reachable nodes, given mrX's tickets
-			if (edges.isEmpty()) return 0;
-			else {
-				for (EndpointPair<Integer> edge : edges) {
-					if (board.getSetup().graph.edgeValue(edge).isPresent()) {
-						ImmutableSet<ScotlandYard.Transport> transports = board.getSetup().graph.edgeValue(edge).get();
-						boolean match = false;
-						for (ScotlandYard.Transport transport : transports) {
-							if (tickets.getCount(transport.requiredTicket()) > 0) {
-								match = true;
-							}
-						}
-						if (match) result++;
-					}
-				}
-				return result;
-			}
-		}
-		else return 0;
+	@Override public void onStart(@Nonnull TimeManager time, long seed) {
+		onStart(time);
+		this.seed = seed;
 	}
 
-	/**
-	 * @param location the location to move to
-	 * @param board the game board
-	 * @return the calculated 'score' of moving to that location
-	 */
-	private float score(Integer location, Board board) {
-		float result;
-		if (detectiveOn(location, board)) return 0.0f;
-		Integer nearestDetective = shortestPath(location, board);
-		Integer possibleMoves = getPossibleMoves(location, board);
-		return possibleMoves - nearestDetective;
+	@Override public void onTerminate() { release(); }
+
+	private void release() {
+		if (search != null) search.close();
+		graph = null;
+		search = null;
+	}
+
+	@Override public void ponder(@Nonnull Board board, @Nonnull AtomicBoolean stop) {
+		var limit = time == null ? budget : time.timeout();
+		if (search != null) search.ponder(stop, System.nanoTime() + limit.toNanos());
 	}
 
 	@Nonnull @Override public Move pickMove(
 			@Nonnull Board board,
 			@Nonnull AtomicBoolean terminate) {
-		// returns a random move, replace with your own implementation
+		var budget = time == null ? TimeManager.Budget.fixed(this.budget) : time.allocate(board);
 		var moves = board.getAvailableMoves().asList();
-		return moves.get(new Random().nextInt(moves.size()));
+		if (moves.size() == 1) return moves.get(0);
+		if (graph == null || !graph.isFor(board.getSetup().graph)) {
+			release();
+			graph = new GameGraph(board.getSetup().graph);
+			search = new MonteCarloTreeSearch(graph, seed, threads);
+		}
+		// MrX's location is only known to him through the source of his moves
+		var state = SearchState.fromBoard(graph, board, moves.get(0).source());
+		int[] legal = moves.stream().mapToInt(Moves::encode).toArray();
+		int solved = tablebase == null ? Moves.NONE : tablebase.probe(state);
+		if (solved != Moves.NONE && Arrays.stream(legal).anyMatch(m -> m == solved)) {
+			search.reset();
+			return state.toMove(solved);
+		}
+		// every playout is a finished piece of work, so the soft deadline is all the search needs
+		int move = search.search(state, legal, terminate, budget.soft);
+		search.commit(move);
+		return state.toMove(move);
 	}
 }
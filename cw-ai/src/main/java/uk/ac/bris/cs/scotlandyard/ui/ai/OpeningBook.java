@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Precomputed MrX moves for known positions, keyed by {@link SearchState#canonicalHash()}.
+ * <br>
+ * The binary format is big endian: the magic number, the format version and the entry count,
+ * followed by the keys in ascending order and then the encoded moves (see {@link Moves}) in the
+ * same order. Lookups are a binary search over the keys.
+ * <br>
+ * Books are written by {@link OpeningBookBuilder}, which books MrX's first move from every
+ * standard start position and nothing after it. No book is shipped, as one worth playing takes
+ * hours to build, so {@link MrXAi} searches every move.
+ */
+final class OpeningBook {
+
+	private static final int MAGIC = 0x53594f42;
+	private static final int VERSION = 1;
+
+	private final long[] keys;
+	private final int[] moves;
+
+	private OpeningBook(long[] keys, int[] moves) {
+		this.keys = keys;
+		this.moves = moves;
+	}
+
+	/**
+	 * @param entries encoded moves by position key
+	 * @return a book of the given entries
+	 */
+	@Nonnull static OpeningBook of(@Nonnull Map<Long, Integer> entries) {
+		var sorted = new TreeMap<>(entries);
+		var keys = new long[sorted.size()];
+		var moves = new int[sorted.size()];
+		int i = 0;
+		for (var entry : sorted.entrySet()) {
+			keys[i] = entry.getKey();
+			moves[i++] = entry.getValue();
+		}
+		return new OpeningBook(keys, moves);
+	}
+
+	/**
+	 * @param state the position
+	 * @return the encoded book move or {@link Moves#NONE}
+	 */
+	int lookup(@Nonnull SearchState state) {
+		if (keys.length == 0 || !state.mrXToMove()) return Moves.NONE;
+		int index = Arrays.binarySearch(keys, state.canonicalHash());
+		return index < 0 ? Moves.NONE : moves[index];
+	}
+
+	int size() { return keys.length; }
+
+	@Nonnull static OpeningBook read(@Nonnull InputStream stream) throws IOException {
+		var input = new DataInputStream(new BufferedInputStream(stream));
+		if (input.readInt() != MAGIC) throw new IOException("Not an opening book");
+		int version = input.readInt();
+		if (version != VERSION) throw new IOException("Unsupported book version " + version);
+		int count = input.readInt();
+		if (count < 0) throw new IOException("Negative entry count");
+		var keys = new long[count];
+		var moves = new int[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = input.readLong();
+			if (i > 0 && keys[i] <= keys[i - 1]) throw new IOException("Keys out of order");
+		}
+		for (int i = 0; i < count; i++) moves[i] = input.readInt();
+		return new OpeningBook(keys, moves);
+	}
+
+	void write(@Nonnull OutputStream stream) throws IOException {
+		var output = new DataOutputStream(new BufferedOutputStream(stream));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(keys.length);
+		for (long key : keys) output.writeLong(key);
+		for (int move : moves) output.writeInt(move);
+		output.flush();
+	}
+}
@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Builds the {@link OpeningBook} offline: every combination of a start location from
+ * {@link ScotlandYard#MRX_LOCATIONS} and five from {@link ScotlandYard#DETECTIVE_LOCATIONS}, with
+ * the default tickets, is searched with {@link AlphaBetaSearch} for a fixed time and the best first
+ * move is recorded. Detectives all start with the same tickets, so which detective stands where
+ * does not matter and each set of detective locations is searched once.
+ * <br>
+ * Only MrX's first move is booked. Booking his next move as well would mean searching the position
+ * after every joint reply of the five detectives to every booked move, thousands of positions for
+ * each of the start positions, so from the second round on MrX searches instead.
+ * <br>
+ * Usage: {@code OpeningBookBuilder <output> [millis per position] [threads]}
+ */
+public final class OpeningBookBuilder {
+
+	private static final int DETECTIVES = 5;
+	private static final int TABLE_BITS = 20;
+	private static final int CACHE_CAPACITY = 1 << 16;
+
+	private OpeningBookBuilder() {}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Usage: OpeningBookBuilder <output> [millis per position] [threads]");
+			System.exit(1);
+		}
+		var output = Paths.get(args[0]);
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) :
+				Runtime.getRuntime().availableProcessors();
+
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var graph = new GameGraph(setup.graph);
+		var positions = startPositions(graph, setup);
+		System.out.printf("Searching %d positions for %dms each on %d threads%n",
+				positions.size(), millis, threads);
+
+		var book = build(graph, positions, millis, threads);
+		try (var stream = Files.newOutputStream(output)) {
+			book.write(stream);
+		}
+		System.out.printf("Wrote %d entries to %s%n", book.size(), output);
+	}
+
+	/**
+	 * Searches each position for MrX's best move
+	 *
+	 * @param graph the compact game graph
+	 * @param positions the positions to book, all with MrX to move
+	 * @param millis the time spent searching each position
+	 * @param threads the number of positions searched at once
+	 * @return a book of the best move found for each position
+	 */
+	@Nonnull static OpeningBook build(@Nonnull GameGraph graph,
+	                                  @Nonnull List<SearchState> positions, long millis,
+	                                  int threads) throws InterruptedException {
+		Map<Long, Integer> entries = new ConcurrentHashMap<>();
+		var done = new AtomicInteger();
+		var searches = ThreadLocal.withInitial(() ->
+				new AlphaBetaSearch(graph, TABLE_BITS, new EvaluationCache(CACHE_CAPACITY)));
+		var executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("book-builder-%d").build());
+		try {
+			var futures = new ArrayList<Future<?>>();
+			for (SearchState position : positions) {
+				futures.add(executor.submit(() -> {
+					var buffer = new int[graph.maxMoves()];
+					var legal = Arrays.copyOf(buffer, position.generateMoves(buffer, true));
+					var result = searches.get().search(position, legal, new AtomicBoolean(),
+							System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+					entries.put(position.canonicalHash(), result.move);
+					int count = done.incrementAndGet();
+					if (count % 1000 == 0) System.out.printf("%d/%d%n", count, positions.size());
+				}));
+			}
+			for (var future : futures) future.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Search failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return OpeningBook.of(entries);
+	}
+
+	/**
+	 * @return every standard start position with MrX to move
+	 */
+	@Nonnull static List<SearchState> startPositions(@Nonnull GameGraph graph,
+	                                                 @Nonnull GameSetup setup) {
+		var pieces = ImmutableList.copyOf(ScotlandYard.DETECTIVES);
+		var locations = ScotlandYard.DETECTIVE_LOCATIONS;
+		var positions = new ArrayList<SearchState>();
+		var chosen = new int[DETECTIVES];
+		combinations(locations.size(), chosen, 0, 0, () -> {
+			var detectives = new ArrayList<Player>(DETECTIVES);
+			for (int i = 0; i < DETECTIVES; i++)
+				detectives.add(new Player(pieces.get(i),
+						ScotlandYard.defaultDetectiveTickets(), locations.get(chosen[i])));
+			for (int mrX : ScotlandYard.MRX_LOCATIONS) {
+				if (detectives.stream().anyMatch(d -> d.location() == mrX)) continue;
+				positions.add(SearchState.initial(graph, setup,
+						new Player(MrX.MRX, ScotlandYard.defaultMrXTickets(), mrX), detectives));
+			}
+		});
+		return positions;
+	}
+
+	private static void combinations(int n, int[] chosen, int index, int from, Runnable action) {
+		if (index == chosen.length) {
+			action.run();
+			return;
+		}
+		for (int i = from; i <= n - (chosen.length - index); i++) {
+			chosen[index] = i;
+			combinations(n, chosen, index + 1, i + 1, action);
+		}
+	}
+}
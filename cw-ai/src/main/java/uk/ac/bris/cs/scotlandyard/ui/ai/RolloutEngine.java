@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.SplittableRandom;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+
+/**
+ * Plays games to the end with fast, mostly random moves, for estimating who wins a position.
+ * <br>
+ * A playout works on a {@link SearchState} in place and draws moves from a buffer owned by the
+ * engine, so no objects are created per ply. Without bias every player picks uniformly among its
+ * single moves. With probability {@link #chase} a detective instead steps to the station closest
+ * to MrX, and with probability {@link #flee} MrX steps to the station farthest from the nearest
+ * detective; ties are broken at random.
+ * <br>
+ * An engine holds its own {@link SplittableRandom} and move buffer and must not be shared
+ * between threads; give every thread its own engine with a {@link SplittableRandom#split()} of a
+ * common source.
+ */
+final class RolloutEngine {
+
+	/**
+	 * How often detectives chase MrX greedily unless told otherwise
+	 */
+	static final double DEFAULT_CHASE = 0.8;
+
+	private final GameGraph graph;
+	private final SplittableRandom random;
+	private final double chase;
+	private final double flee;
+	private final int[] buffer;
+	private long plies;
+
+	/**
+	 * @param graph the compact game graph
+	 * @param random the random source of this engine
+	 * @param chase probability that a detective moves greedily towards MrX
+	 * @param flee probability that MrX moves greedily away from the nearest detective
+	 */
+	RolloutEngine(@Nonnull GameGraph graph, @Nonnull SplittableRandom random, double chase,
+	              double flee) {
+		if (chase < 0 || chase > 1) throw new IllegalArgumentException("chase not in [0, 1]");
+		if (flee < 0 || flee > 1) throw new IllegalArgumentException("flee not in [0, 1]");
+		this.graph = graph;
+		this.random = random;
+		this.chase = chase;
+		this.flee = flee;
+		this.buffer = new int[graph.maxMoves()];
+	}
+
+	/**
+	 * @return the number of moves played by this engine so far
+	 */
+	long plies() { return plies; }
+
+	/**
+	 * Plays the game on to the end, modifying the given position
+	 *
+	 * @param state the position
+	 * @return {@link SearchState#MRX_WON} or {@link SearchState#DETECTIVES_WON}
+	 */
+	int play(@Nonnull SearchState state) {
+		while (!state.isOver()) {
+			int count = state.generateMoves(buffer, false);
+			int move;
+			if (state.mrXToMove()) {
+				move = flee > 0 && random.nextDouble() < flee ?
+						farthest(state, count) : buffer[random.nextInt(count)];
+			} else {
+				move = chase > 0 && random.nextDouble() < chase ?
+						closest(state, count) : buffer[random.nextInt(count)];
+			}
+			state.play(move);
+			plies++;
+		}
+		return state.winner();
+	}
+
+	/**
+	 * Plays a game on to the end from a board; the board is converted once, after which the
+	 * playout allocates nothing
+	 *
+	 * @param board the game board
+	 * @param mrX where MrX is, known or assumed
+	 * @return {@link SearchState#MRX_WON} or {@link SearchState#DETECTIVES_WON}
+	 */
+	int play(@Nonnull Board board, int mrX) {
+		return play(SearchState.fromBoard(graph, board, mrX));
+	}
+
+	private int closest(SearchState state, int count) {
+		int target = state.location(SearchState.MRX);
+		int best = Moves.NONE;
+		int bestDistance = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < count; i++) {
+			int distance = graph.distance(Moves.destination(buffer[i]), target);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = buffer[i];
+				ties = 1;
+			} else if (distance == bestDistance && random.nextInt(++ties) == 0) {
+				best = buffer[i];
+			}
+		}
+		return best;
+	}
+
+	private int farthest(SearchState state, int count) {
+		int best = Moves.NONE;
+		int bestDistance = -1;
+		int ties = 0;
+		for (int i = 0; i < count; i++) {
+			int destination = Moves.destination(buffer[i]);
+			int nearest = Integer.MAX_VALUE;
+			for (int p = 1; p < state.players(); p++)
+				nearest = Math.min(nearest, graph.distance(state.location(p), destination));
+			if (nearest > bestDistance) {
+				bestDistance = nearest;
+				best = buffer[i];
+				ties = 1;
+			} else if (nearest == bestDistance && random.nextInt(++ties) == 0) {
+				best = buffer[i];
+			}
+		}
+		return best;
+	}
+}
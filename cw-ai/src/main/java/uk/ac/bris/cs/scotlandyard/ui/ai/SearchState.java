@@ -0,0 +1,421 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A mutable, primitive representation of a game position that can be played forward without
+ * allocating. MrX is always player 0, detectives follow in the order of
+ * {@link ScotlandYard#PIECE_VALUE_ORDER}.
+ * <br>
+ * The rules follow the game model: detectives give their used tickets to MrX, and the game is
+ * decided by the same checks in the same order, so a full travel log wins for MrX before a
+ * capture is looked at. A detective that cannot move stays in the round, as another detective
+ * may still make room for it; the round passes back to MrX once none of those left can move.
+ * Detectives always move in player order, the first one left that can move going next.
+ * <br>
+ * A position taken from a {@link Board} cannot tell a boxed-in detective that has yet to move
+ * from one that has moved, as the board only lists moves; such a detective is taken to have
+ * moved.
+ */
+final class SearchState {
+
+	static final int ONGOING = 0;
+	static final int MRX_WON = 1;
+	static final int DETECTIVES_WON = 2;
+
+	static final int MRX = 0;
+	static final int TICKET_TYPES = Moves.TICKETS.length;
+
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int TRAVEL_MASK = ~(1 << DOUBLE) & ((1 << TICKET_TYPES) - 1);
+
+	final GameGraph graph;
+	private final Piece[] pieces;
+	private final boolean[] reveal;
+	private final int[] locations;
+	private final int[] tickets;
+	private int round;
+	private int remaining;
+	private int mover;
+	private int winner;
+
+	private SearchState(GameGraph graph, Piece[] pieces, boolean[] reveal) {
+		this.graph = graph;
+		this.pieces = pieces;
+		this.reveal = reveal;
+		this.locations = new int[pieces.length];
+		this.tickets = new int[pieces.length * TICKET_TYPES];
+	}
+
+	/**
+	 * @param graph the compact graph of the board
+	 * @param board the board
+	 * @param mrXLocation where MrX is, the board only tells MrX himself through his moves
+	 * @return the position on the given board
+	 */
+	@Nonnull static SearchState fromBoard(@Nonnull GameGraph graph,
+	                                      @Nonnull Board board,
+	                                      int mrXLocation) {
+		var detectives = board.getPlayers().stream()
+				.filter(Piece::isDetective)
+				.sorted(ScotlandYard.PIECE_VALUE_ORDER)
+				.toArray(Piece[]::new);
+		var pieces = new Piece[detectives.length + 1];
+		pieces[MRX] = MrX.MRX;
+		System.arraycopy(detectives, 0, pieces, 1, detectives.length);
+		var rounds = board.getSetup().rounds;
+		var reveal = new boolean[rounds.size()];
+		for (int i = 0; i < reveal.length; i++) reveal[i] = rounds.get(i);
+
+		var state = new SearchState(graph, pieces, reveal);
+		for (int p = 0; p < pieces.length; p++) {
+			var piece = pieces[p];
+			state.locations[p] = p == MRX ? mrXLocation :
+					board.getDetectiveLocation((Detective) piece).orElseThrow();
+			var ticketBoard = board.getPlayerTickets(piece).orElseThrow();
+			for (int t = 0; t < TICKET_TYPES; t++)
+				state.tickets[p * TICKET_TYPES + t] = ticketBoard.getCount(Moves.TICKETS[t]);
+		}
+		state.round = board.getMrXTravelLog().size();
+		for (Move move : board.getAvailableMoves())
+			state.remaining |= 1 << state.indexOf(move.commencedBy());
+		if (!board.getWinner().isEmpty()) {
+			state.winner = board.getWinner().contains(MrX.MRX) ? MRX_WON : DETECTIVES_WON;
+		} else state.nextTurn();
+		return state;
+	}
+
+	/**
+	 * @param graph the compact graph of the setup
+	 * @param setup the game setup
+	 * @param mrX MrX
+	 * @param detectives the detectives
+	 * @return the position before the first move of the game
+	 */
+	@Nonnull static SearchState initial(@Nonnull GameGraph graph,
+	                                    @Nonnull GameSetup setup,
+	                                    @Nonnull Player mrX,
+	                                    @Nonnull List<Player> detectives) {
+		var players = new ArrayList<Player>(detectives);
+		players.sort(Comparator.comparing(Player::piece, ScotlandYard.PIECE_VALUE_ORDER));
+		players.add(0, mrX);
+		var pieces = players.stream().map(Player::piece).toArray(Piece[]::new);
+		var reveal = new boolean[setup.rounds.size()];
+		for (int i = 0; i < reveal.length; i++) reveal[i] = setup.rounds.get(i);
+
+		var state = new SearchState(graph, pieces, reveal);
+		for (int p = 0; p < pieces.length; p++) {
+			var player = players.get(p);
+			state.locations[p] = player.location();
+			for (int t = 0; t < TICKET_TYPES; t++)
+				state.tickets[p * TICKET_TYPES + t] =
+						player.tickets().getOrDefault(Moves.TICKETS[t], 0);
+		}
+		state.remaining = 1;
+		state.winner = state.decide();
+		return state;
+	}
+
+	/**
+	 * @return a copy of this position
+	 */
+	@Nonnull SearchState copy() {
+		var copy = new SearchState(graph, pieces, reveal);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+	/**
+	 * @param other the other position
+	 * @return whether both positions have the same players and rounds, so that one can be copied
+	 * into the other
+	 */
+	boolean sameGame(@Nonnull SearchState other) {
+		return graph == other.graph && Arrays.equals(pieces, other.pieces) &&
+				Arrays.equals(reveal, other.reveal);
+	}
+
+	/**
+	 * Overwrites this position with another one of the same game, without allocating
+	 *
+	 * @param other the position to copy
+	 */
+	void copyFrom(@Nonnull SearchState other) {
+		System.arraycopy(other.locations, 0, locations, 0, locations.length);
+		System.arraycopy(other.tickets, 0, tickets, 0, tickets.length);
+		round = other.round;
+		remaining = other.remaining;
+		mover = other.mover;
+		winner = other.winner;
+	}
+
+	/**
+	 * @param other the other position
+	 * @return whether both positions have the same locations, tickets, round and player to move
+	 */
+	boolean samePosition(@Nonnull SearchState other) {
+		return round == other.round && remaining == other.remaining &&
+				winner == other.winner &&
+				Arrays.equals(locations, other.locations) &&
+				Arrays.equals(tickets, other.tickets);
+	}
+
+	/**
+	 * @return a 64 bit hash of the locations, tickets, rounds and players to move; equal
+	 * positions have equal hashes
+	 */
+	long hash() {
+		long hash = mix(round | (long) reveal.length << 8 | (long) remaining << 16);
+		for (int p = 0; p < locations.length; p++) hash = mix(hash ^ pack(p));
+		return hash;
+	}
+
+	/**
+	 * @return like {@link #hash()}, but the same for positions that only differ in which
+	 * detective is where; detectives that still have to move this round are not told apart
+	 * either, so this is only meant for positions with MrX to move
+	 */
+	long canonicalHash() {
+		var detectives = new long[locations.length - 1];
+		for (int p = 1; p < locations.length; p++) detectives[p - 1] = pack(p);
+		Arrays.sort(detectives);
+		long hash = mix(round | (long) reveal.length << 8 | (mrXToMove() ? 1L : 0L) << 16);
+		hash = mix(hash ^ pack(MRX));
+		for (long detective : detectives) hash = mix(hash ^ detective);
+		return hash;
+	}
+
+	/**
+	 * @return the location and ticket counts of the player in one long
+	 */
+	private long pack(int player) {
+		long packed = locations[player];
+		int base = player * TICKET_TYPES;
+		for (int t = 0; t < TICKET_TYPES; t++)
+			packed |= (long) (tickets[base + t] & 0xFF) << (Moves.STATION_BITS + t * 8);
+		return packed;
+	}
+
+	/**
+	 * @return a 64 bit hash of the player locations only, for values that do not depend on
+	 * tickets or the round
+	 */
+	long locationsHash() {
+		long hash = 0;
+		for (int location : locations) hash = mix(hash ^ location);
+		return hash;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	int players() { return pieces.length; }
+
+	@Nonnull Piece piece(int player) { return pieces[player]; }
+
+	int indexOf(Piece piece) {
+		for (int p = 0; p < pieces.length; p++) if (pieces[p] == piece) return p;
+		throw new IllegalArgumentException("Unknown piece " + piece);
+	}
+
+	int location(int player) { return locations[player]; }
+
+	int tickets(int player, int ticket) { return tickets[player * TICKET_TYPES + ticket]; }
+
+	/**
+	 * @return the number of MrX moves made so far, i.e. the size of the travel log
+	 */
+	int round() { return round; }
+
+	int totalRounds() { return reveal.length; }
+
+	/**
+	 * @param round the zero based round
+	 * @return whether MrX is revealed after the move that fills the given round
+	 */
+	boolean isReveal(int round) { return reveal[round]; }
+
+	/**
+	 * @return {@link #ONGOING}, {@link #MRX_WON} or {@link #DETECTIVES_WON}
+	 */
+	int winner() { return winner; }
+
+	boolean isOver() { return winner != ONGOING; }
+
+	boolean mrXToMove() { return (remaining & 1) != 0; }
+
+	/**
+	 * @return the player to move; of the detectives that have not moved yet this round, the first
+	 * that can move
+	 */
+	int player() { return mover; }
+
+	/**
+	 * @param station the station
+	 * @return whether a detective stands on the station
+	 */
+	boolean occupied(int station) {
+		for (int p = 1; p < locations.length; p++) if (locations[p] == station) return true;
+		return false;
+	}
+
+	private int travelTickets(int player) {
+		int mask = 0;
+		int base = player * TICKET_TYPES;
+		for (int t = 0; t < TICKET_TYPES; t++) if (tickets[base + t] > 0) mask |= 1 << t;
+		return mask & TRAVEL_MASK;
+	}
+
+	/**
+	 * @param player the player
+	 * @return whether the player has at least one single move
+	 */
+	boolean hasMove(int player) {
+		int held = travelTickets(player);
+		if (held == 0) return false;
+		int location = locations[player];
+		for (int e = graph.firstEdge(location); e < graph.lastEdge(location); e++) {
+			if ((graph.tickets(e) & held) != 0 && !occupied(graph.target(e))) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the moves of the player to move into the buffer, which must hold at least
+	 * {@link GameGraph#maxMoves()} moves
+	 *
+	 * @param buffer the move buffer
+	 * @param doubles whether to include double moves
+	 * @return the number of moves written
+	 */
+	int generateMoves(@Nonnull int[] buffer, boolean doubles) {
+		if (winner != ONGOING) return 0;
+		int player = player();
+		int count = generateSingles(player, locations[player], buffer, 0, Moves.NONE);
+		if (doubles && player == MRX && tickets[DOUBLE] > 0 && round + 2 <= reveal.length) {
+			int location = locations[MRX];
+			for (int e = graph.firstEdge(location); e < graph.lastEdge(location); e++) {
+				int destination = graph.target(e);
+				if (occupied(destination)) continue;
+				int usable = graph.tickets(e) & travelTickets(MRX);
+				while (usable != 0) {
+					int ticket = Integer.numberOfTrailingZeros(usable);
+					usable &= usable - 1;
+					tickets[ticket]--;
+					count = generateSingles(MRX, destination, buffer, count,
+							Moves.single(ticket, destination));
+					tickets[ticket]++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private int generateSingles(int player, int from, int[] buffer, int count, int first) {
+		int held = travelTickets(player);
+		for (int e = graph.firstEdge(from); e < graph.lastEdge(from); e++) {
+			int destination = graph.target(e);
+			int usable = graph.tickets(e) & held;
+			if (usable == 0 || occupied(destination)) continue;
+			while (usable != 0) {
+				int ticket = Integer.numberOfTrailingZeros(usable);
+				usable &= usable - 1;
+				buffer[count++] = first == Moves.NONE ? Moves.single(ticket, destination) :
+						Moves.doubleMove(Moves.ticket1(first), Moves.destination1(first),
+								ticket, destination);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Plays a move generated for the player to move
+	 *
+	 * @param move the encoded move
+	 */
+	void play(int move) {
+		int player = player();
+		int base = player * TICKET_TYPES;
+		if (Moves.isDouble(move)) {
+			tickets[base + Moves.ticket1(move)]--;
+			tickets[base + Moves.ticket2(move)]--;
+			tickets[base + DOUBLE]--;
+			locations[player] = Moves.destination2(move);
+			round += 2;
+		} else {
+			int ticket = Moves.ticket1(move);
+			tickets[base + ticket]--;
+			locations[player] = Moves.destination1(move);
+			if (player == MRX) round++;
+			else tickets[ticket]++;
+		}
+		if (player == MRX) remaining = (1 << locations.length) - 2;
+		else remaining &= ~(1 << player);
+		nextTurn();
+		winner = decide();
+	}
+
+	/**
+	 * Picks the player to move from those left in the round, handing the round back to MrX when
+	 * none of the detectives left can move
+	 */
+	private void nextTurn() {
+		for (int left = remaining; left != 0; left &= left - 1) {
+			int p = Integer.numberOfTrailingZeros(left);
+			if (p == MRX || hasMove(p)) {
+				mover = p;
+				return;
+			}
+		}
+		remaining = 1;
+		mover = MRX;
+	}
+
+	private int decide() {
+		boolean stuck = true;
+		for (int p = 1; p < locations.length && stuck; p++) stuck = !hasMove(p);
+		if (stuck) return MRX_WON;
+		// a full log wins even if MrX was caught by the last detective to move, or is cornered
+		if (round == reveal.length && mrXToMove()) return MRX_WON;
+		if (mrXToMove() && !hasMove(MRX)) return DETECTIVES_WON;
+		if (occupied(locations[MRX])) return DETECTIVES_WON;
+		return ONGOING;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return the move for the player to move
+	 */
+	@Nonnull Move toMove(int move) {
+		int player = player();
+		return Moves.decode(move, pieces[player], locations[player]);
+	}
+
+	@Override public String toString() {
+		var builder = new StringBuilder("round ").append(round).append(':');
+		for (int p = 0; p < pieces.length; p++) {
+			builder.append(' ').append(pieces[p]).append('@').append(locations[p])
+					.append(Arrays.toString(
+							Arrays.copyOfRange(tickets, p * TICKET_TYPES, (p + 1) * TICKET_TYPES)));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,218 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Solved endgames for a fixed number of detectives, read from a memory mapped file.
+ * <br>
+ * The table is solved for a simplified game in which MrX only makes single moves without secret
+ * tickets, nobody runs out of tickets and the detectives know where MrX is and move together
+ * anywhere they like as long as they end up on different stations. A capture or a cornered MrX
+ * in the last round also counts for the detectives, where the game model lets a full travel log
+ * win for MrX if the last detective to move is the one that catches or corners him. Every one of
+ * these simplifications helps the detectives, so a position the table marks as won for MrX is won
+ * in the real game too, by playing {@link #probe}'s move as long as the preconditions hold: MrX to
+ * move, no more rounds left than the table covers, and every player holding at least one taxi,
+ * bus and underground ticket per remaining round. Positions the table marks as lost may still be
+ * saved with secret or double moves, so they are left to search.
+ * <br>
+ * The table only covers games with as many detectives as it was solved for, which the size of
+ * the file keeps to one or two; the standard game with five detectives is never covered.
+ * <br>
+ * The file holds a header followed by one byte per position: layer by layer for 1 to
+ * {@link #horizon()} rounds left, then by MrX's location and every detective location in turn.
+ * A byte is {@link #INVALID} for impossible positions, the number of rounds until the detectives
+ * capture MrX plus one, or, when MrX wins, the negated position plus one of the first winning
+ * route among those leaving his station, so that a probe reads its move without searching.
+ */
+final class Tablebase {
+
+	/**
+	 * The system property naming the table file used by {@link #standard()}
+	 */
+	static final String PROPERTY = "scotlandyard.tablebase";
+
+	static final byte INVALID = 0;
+
+	/**
+	 * The most routes a station may have for the table to name any of them as MrX's move
+	 */
+	static final int MAX_ROUTES = 128;
+
+	static final int HEADER = 32;
+
+	private static final int MAGIC = 0x53595442;
+	private static final int VERSION = 2;
+	private static final int TRAVEL_MASK = 1 << Ticket.TAXI.ordinal() |
+			1 << Ticket.BUS.ordinal() | 1 << Ticket.UNDERGROUND.ordinal();
+
+	private static final Supplier<Tablebase> STANDARD = Suppliers.memoize(() -> {
+		var property = System.getProperty(PROPERTY);
+		if (property == null) return null;
+		try {
+			return open(Paths.get(property));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open tablebase " + property, e);
+		}
+	});
+
+	private final ByteBuffer buffer;
+	private final long fingerprint;
+	private final int stations;
+	private final int detectives;
+	private final int horizon;
+
+	private Tablebase(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.fingerprint = buffer.getLong(8);
+		this.stations = buffer.getInt(16);
+		this.detectives = buffer.getInt(20);
+		this.horizon = buffer.getInt(24);
+	}
+
+	/**
+	 * @return the table named by the {@link #PROPERTY} system property, or null if it is not set
+	 */
+	@Nullable static Tablebase standard() { return STANDARD.get(); }
+
+	/**
+	 * @param path the table file
+	 * @return the table, mapped read only
+	 */
+	@Nonnull static Tablebase open(@Nonnull Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC)
+				throw new IOException("Not a tablebase");
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException("Unsupported tablebase version " + buffer.getInt(4));
+			var table = new Tablebase(buffer);
+			if (buffer.limit() != HEADER + size(table.stations, table.detectives, table.horizon))
+				throw new IOException("Truncated tablebase");
+			return table;
+		}
+	}
+
+	int detectives() { return detectives; }
+
+	int horizon() { return horizon; }
+
+	/**
+	 * @param state the position
+	 * @return a single move that wins for MrX, or {@link Moves#NONE} if the table does not cover
+	 * the position or MrX cannot be sure to win it
+	 */
+	int probe(@Nonnull SearchState state) {
+		int left = state.totalRounds() - state.round();
+		if (!covers(state, left)) return Moves.NONE;
+		var locations = new int[detectives];
+		for (int d = 0; d < detectives; d++) locations[d] = state.location(d + 1);
+		int mrX = state.location(SearchState.MRX);
+		byte value = value(left, mrX, locations);
+		if (!mrXWins(value)) return Moves.NONE;
+		int e = state.graph.firstEdge(mrX) + route(value);
+		return Moves.single(Integer.numberOfTrailingZeros(state.graph.tickets(e) & TRAVEL_MASK),
+				state.graph.target(e));
+	}
+
+	private boolean covers(SearchState state, int left) {
+		if (left < 1 || left > horizon || !state.mrXToMove() || state.isOver()) return false;
+		if (state.players() != detectives + 1 || state.graph.size() != stations ||
+				state.graph.fingerprint() != fingerprint) return false;
+		for (int p = 0; p < state.players(); p++) {
+			if (state.tickets(p, Ticket.TAXI.ordinal()) < left ||
+					state.tickets(p, Ticket.BUS.ordinal()) < left ||
+					state.tickets(p, Ticket.UNDERGROUND.ordinal()) < left) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the stored value of the position with MrX to move
+	 */
+	byte value(int left, int mrX, int[] locations) {
+		return buffer.get(Math.toIntExact(HEADER + index(stations, left, mrX, locations)));
+	}
+
+	/**
+	 * @return whether the stored value marks a position won by MrX
+	 */
+	static boolean mrXWins(byte value) { return value < 0; }
+
+	/**
+	 * @param route the position of MrX's winning route among those leaving his station
+	 * @return the stored value of a position won by MrX along the route
+	 */
+	static byte won(int route) { return (byte) (-route - 1); }
+
+	/**
+	 * @return the position of MrX's winning route among those leaving his station
+	 */
+	static int route(byte value) { return -value - 1; }
+
+	/**
+	 * @return whether one of the detectives before the given one already moved to the station
+	 */
+	static boolean taken(int[] to, int detective, int station) {
+		for (int d = 0; d < detective; d++) if (to[d] == station) return true;
+		return false;
+	}
+
+	/**
+	 * @return whether MrX on the station has no route to a station free of detectives
+	 */
+	static boolean cornered(GameGraph graph, int mrX, int[] detectives) {
+		for (int e = graph.firstEdge(mrX); e < graph.lastEdge(mrX); e++) {
+			if (travels(graph, e) && !taken(detectives, detectives.length, graph.target(e)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of position bytes, excluding the header
+	 */
+	static long size(int stations, int detectives, int horizon) {
+		long size = horizon;
+		for (int i = 0; i <= detectives; i++) size *= stations;
+		return size;
+	}
+
+	static long index(int stations, int left, int mrX, int[] locations) {
+		long index = (long) (left - 1) * stations + mrX;
+		for (int location : locations) index = index * stations + location;
+		return index;
+	}
+
+	/**
+	 * Writes the header of a table file
+	 */
+	static void writeHeader(MappedByteBuffer buffer, GameGraph graph, int detectives,
+	                        int horizon) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(8, graph.fingerprint());
+		buffer.putInt(16, graph.size());
+		buffer.putInt(20, detectives);
+		buffer.putInt(24, horizon);
+	}
+
+	static boolean travels(GameGraph graph, int edge) {
+		return (graph.tickets(edge) & TRAVEL_MASK) != 0;
+	}
+}
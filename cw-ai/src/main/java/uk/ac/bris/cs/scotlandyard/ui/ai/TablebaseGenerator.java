@@ -0,0 +1,171 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Solves the {@link Tablebase} for the standard map by retrograde analysis: the layer with one
+ * round left is solved first, and every further layer only looks up positions in the layer
+ * before it.
+ * <br>
+ * Usage: {@code TablebaseGenerator <output> [detectives] [rounds]}; the size of the file is
+ * rounds * stations^(detectives + 1) bytes, so this is only practical for one or two detectives.
+ */
+public final class TablebaseGenerator {
+
+	private static final int NOT_CAPTURED = Integer.MAX_VALUE;
+
+	private final GameGraph graph;
+	private final MappedByteBuffer buffer;
+	private final int stations;
+	private final int[] detectives;
+	private final int[] replies;
+
+	private TablebaseGenerator(GameGraph graph, MappedByteBuffer buffer, int detectives) {
+		this.graph = graph;
+		this.buffer = buffer;
+		this.stations = graph.size();
+		this.detectives = new int[detectives];
+		this.replies = new int[detectives];
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: TablebaseGenerator <output> [detectives] [rounds]");
+			System.exit(1);
+		}
+		var output = Paths.get(args[0]);
+		int detectives = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int horizon = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		var graph = new GameGraph(ScotlandYard.standardGraph());
+		long size = Tablebase.HEADER + Tablebase.size(graph.size(), detectives, horizon);
+		if (detectives < 1 || horizon < 1 || size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Table too large or empty: " + size + " bytes");
+		try (var channel = FileChannel.open(output, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			generate(graph, buffer, detectives, horizon);
+			buffer.force();
+		}
+		System.out.printf("Wrote %d bytes to %s%n", size, output);
+	}
+
+	/**
+	 * Fills the buffer, which must hold {@link Tablebase#HEADER} and
+	 * {@link Tablebase#size} bytes
+	 */
+	static void generate(@Nonnull GameGraph graph, @Nonnull MappedByteBuffer buffer,
+	                     int detectives, int horizon) {
+		for (int station = 0; station < graph.size(); station++) {
+			if (graph.lastEdge(station) - graph.firstEdge(station) > Tablebase.MAX_ROUTES)
+				throw new IllegalArgumentException("Station " + station + " has more than " +
+						Tablebase.MAX_ROUTES + " routes");
+		}
+		Tablebase.writeHeader(buffer, graph, detectives, horizon);
+		var generator = new TablebaseGenerator(graph, buffer, detectives);
+		for (int left = 1; left <= horizon; left++) {
+			long start = System.nanoTime();
+			int won = generator.layer(left);
+			System.out.printf("%d rounds left: %d positions won by MrX in %dms%n",
+					left, won, (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	/**
+	 * @return the number of positions won by MrX in the layer
+	 */
+	private int layer(int left) {
+		int won = 0;
+		for (int mrX = 0; mrX < stations; mrX++) {
+			Arrays.fill(detectives, 0);
+			do {
+				byte value = solve(left, mrX);
+				if (Tablebase.mrXWins(value)) won++;
+				buffer.put(Math.toIntExact(Tablebase.HEADER +
+						Tablebase.index(stations, left, mrX, detectives)), value);
+			} while (next(detectives));
+		}
+		return won;
+	}
+
+	private boolean next(int[] locations) {
+		for (int d = locations.length - 1; d >= 0; d--) {
+			if (++locations[d] < stations) return true;
+			locations[d] = 0;
+		}
+		return false;
+	}
+
+	private boolean valid(int mrX) {
+		if (!isStation(mrX)) return false;
+		for (int d = 0; d < detectives.length; d++) {
+			if (!isStation(detectives[d]) || detectives[d] == mrX) return false;
+			for (int other = 0; other < d; other++)
+				if (detectives[other] == detectives[d]) return false;
+		}
+		return true;
+	}
+
+	private boolean isStation(int station) {
+		return graph.firstEdge(station) < graph.lastEdge(station);
+	}
+
+	private boolean occupied(int station) {
+		for (int detective : detectives) if (detective == station) return true;
+		return false;
+	}
+
+	private byte solve(int left, int mrX) {
+		if (!valid(mrX)) return Tablebase.INVALID;
+		int longest = -1;
+		for (int e = graph.firstEdge(mrX); e < graph.lastEdge(mrX); e++) {
+			int destination = graph.target(e);
+			if (!Tablebase.travels(graph, e) || occupied(destination)) continue;
+			int rounds = capture(left, destination, 0);
+			if (rounds == NOT_CAPTURED) return Tablebase.won(e - graph.firstEdge(mrX));
+			longest = Math.max(longest, rounds);
+		}
+		// MrX without a move is caught right away
+		return (byte) (Math.max(longest, 0) + 1);
+	}
+
+	/**
+	 * @return the least number of rounds, this one included, in which the detectives can
+	 * capture MrX after he moved to the given station, or {@link #NOT_CAPTURED}
+	 */
+	private int capture(int left, int mrX, int detective) {
+		if (detective == detectives.length) {
+			if (left == 1) return Tablebase.cornered(graph, mrX, replies) ? 1 : NOT_CAPTURED;
+			byte value = buffer.get(Math.toIntExact(Tablebase.HEADER +
+					Tablebase.index(stations, left - 1, mrX, replies)));
+			return Tablebase.mrXWins(value) ? NOT_CAPTURED : value;
+		}
+		int from = detectives[detective];
+		int best = NOT_CAPTURED;
+		boolean moved = false;
+		for (int e = graph.firstEdge(from); e < graph.lastEdge(from); e++) {
+			int destination = graph.target(e);
+			if (!Tablebase.travels(graph, e) || Tablebase.taken(replies, detective, destination))
+				continue;
+			moved = true;
+			if (destination == mrX) return 1;
+			replies[detective] = destination;
+			best = Math.min(best, capture(left, mrX, detective + 1));
+			if (best == 1) break;
+		}
+		if (!moved) {
+			replies[detective] = from;
+			best = capture(left, mrX, detective + 1);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,89 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results keyed by {@link SearchState#hash()}.
+ * <br>
+ * Each slot holds the full key and one packed entry: the best move, the searched depth, the kind
+ * of bound and the score. A slot is overwritten by any other position, and by the same position
+ * unless the stored result came from a deeper search.
+ */
+final class TranspositionTable {
+
+	static final int EXACT = 1;
+	static final int LOWER = 2;
+	static final int UPPER = 3;
+
+	/**
+	 * Returned by {@link #probe} when the position is not in the table
+	 */
+	static final long MISS = 0;
+
+	private static final int MOVE_BITS = 28;
+	private static final int DEPTH_BITS = 8;
+	private static final int FLAG_BITS = 2;
+	private static final int SCORE_SHIFT = MOVE_BITS + DEPTH_BITS + FLAG_BITS;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+
+	/**
+	 * @param bits log2 of the number of slots
+	 */
+	TranspositionTable(int bits) {
+		if (bits < 1 || bits > 30) throw new IllegalArgumentException("bits out of range: " + bits);
+		this.keys = new long[1 << bits];
+		this.entries = new long[1 << bits];
+		this.mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * @param hash the position hash
+	 * @return the packed entry or {@link #MISS}
+	 */
+	long probe(long hash) {
+		int slot = (int) hash & mask;
+		return keys[slot] == hash ? entries[slot] : MISS;
+	}
+
+	/**
+	 * @param hash the position hash
+	 * @param depth the remaining depth the score was searched to
+	 * @param flag {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param score the score, which must fit in 26 bits
+	 * @param move the encoded best move or {@link Moves#NONE}
+	 */
+	void store(long hash, int depth, int flag, int score, int move) {
+		int slot = (int) hash & mask;
+		if (keys[slot] == hash && depth(entries[slot]) > depth) return;
+		keys[slot] = hash;
+		entries[slot] = (long) (move + 1)
+				| (long) (depth + 1) << MOVE_BITS
+				| (long) flag << (MOVE_BITS + DEPTH_BITS)
+				| (long) score << SCORE_SHIFT;
+	}
+
+	void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, MISS);
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	int capacity() { return keys.length; }
+
+	static int move(long entry) { return (int) (entry & ((1 << MOVE_BITS) - 1)) - 1; }
+
+	static int depth(long entry) {
+		return (int) (entry >>> MOVE_BITS & ((1 << DEPTH_BITS) - 1)) - 1;
+	}
+
+	static int flag(long entry) {
+		return (int) (entry >>> (MOVE_BITS + DEPTH_BITS) & ((1 << FLAG_BITS) - 1));
+	}
+
+	static int score(long entry) { return (int) (entry >> SCORE_SHIFT); }
+}
@@ -0,0 +1,41 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.detectives;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.mrX;
+
+/**
+ * Tests that {@link AlphaBetaAi} reports how deep and how fast it searched each move
+ */
+public class AlphaBetaAiTest {
+
+	@Test public void testReportsDepthAndNodeRateOfTheLastSearch() {
+		// a taxi ring of six with a bus across it
+		var map = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 1}},
+				new int[][]{{2, 5}});
+		GameState board = new MyGameStateFactory<>().build(SmallGames.setup(map, 6), mrX(1),
+				detectives(4));
+		var ai = new AlphaBetaAi(Duration.ofMillis(200));
+		ai.onStart();
+		assertThat(ai.lastDepth()).isZero();
+		assertThat(ai.lastNodesPerSecond()).isZero();
+
+		var move = ai.pickMove(board, new AtomicBoolean());
+		assertThat(board.getAvailableMoves()).contains(move);
+		assertThat(ai.lastDepth()).isPositive();
+		assertThat(ai.lastNodesPerSecond()).isPositive();
+
+		ai.onStart();
+		assertThat(ai.lastDepth()).isZero();
+		assertThat(ai.lastNodesPerSecond()).isZero();
+		ai.onTerminate();
+	}
+}
@@ -0,0 +1,51 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.map;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.start;
+
+/**
+ * Tests that {@link AlphaBetaSearch} finds the win when one is in reach
+ */
+public class AlphaBetaSearchTest {
+
+	@Test public void testDetectiveTakesTheCapture() {
+		// MrX's only way out of the dead end at 1 is to step next to the detective at 3
+		var map = map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {3, 5}, {3, 6}}, new int[0][]);
+		var graph = new GameGraph(map);
+		var state = start(graph, map, 2, 1, 3);
+		state.play(Moves.single(Ticket.TAXI.ordinal(), 2));
+		assertThat(state.mrXToMove()).isFalse();
+
+		var result = search(graph, state);
+		assertThat(Moves.destination(result.move)).isEqualTo(2);
+		assertThat(result.score).isEqualTo(1 - AlphaBetaSearch.WIN);
+	}
+
+	@Test public void testMrXEscapesInTheLastRound() {
+		// 2 is next to the detective at 4, 3 is out of its reach
+		var map = map(new int[][]{{1, 2}, {1, 3}, {2, 4}}, new int[0][]);
+		var graph = new GameGraph(map);
+		var state = start(graph, map, 1, 1, 4);
+
+		var result = search(graph, state);
+		assertThat(Moves.destination(result.move)).isEqualTo(3);
+		assertThat(result.score).isEqualTo(AlphaBetaSearch.WIN - 2);
+	}
+
+	private static AlphaBetaSearch.Result search(GameGraph graph, SearchState state) {
+		var buffer = new int[graph.maxMoves()];
+		var legal = Arrays.copyOf(buffer, state.generateMoves(buffer, true));
+		var search = new AlphaBetaSearch(graph, 10, new EvaluationCache(1 << 10));
+		return search.search(state, legal, new AtomicBoolean(),
+				System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+	}
+}
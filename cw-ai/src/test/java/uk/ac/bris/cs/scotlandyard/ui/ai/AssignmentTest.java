@@ -0,0 +1,74 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests that {@link Assignment} finds the cheapest assignment
+ */
+public class AssignmentTest {
+
+	@Test public void testKnownSquareMatrix() {
+		long[][] cost = {
+				{4, 1, 3},
+				{2, 0, 5},
+				{3, 2, 2}};
+		assertThat(Assignment.minimumCost(cost)).containsExactly(1, 0, 2);
+	}
+
+	@Test public void testGreedyChoiceIsNotTaken() {
+		// row 0 taking its cheapest column would force row 1 onto a cost of 100
+		long[][] cost = {
+				{1, 2},
+				{1, 100}};
+		assertThat(Assignment.minimumCost(cost)).containsExactly(1, 0);
+	}
+
+	@Test public void testMoreColumnsThanRows() {
+		long[][] cost = {
+				{9, 9, 1, 9},
+				{9, 2, 1, 9}};
+		assertThat(Assignment.minimumCost(cost)).containsExactly(2, 1);
+	}
+
+	@Test public void testMatchesEveryAssignmentOnRandomMatrices() {
+		var random = new Random(1);
+		for (int trial = 0; trial < 500; trial++) {
+			int columns = 1 + random.nextInt(6);
+			int rows = 1 + random.nextInt(columns);
+			var cost = new long[rows][columns];
+			for (long[] row : cost)
+				for (int c = 0; c < columns; c++) row[c] = random.nextInt(20);
+			var assigned = Assignment.minimumCost(cost);
+			assertThat(assigned).hasSize(rows).doesNotHaveDuplicates();
+			long total = 0;
+			for (int r = 0; r < rows; r++) total += cost[r][assigned[r]];
+			assertThat(total).isEqualTo(cheapest(cost, 0, new boolean[columns]));
+		}
+	}
+
+	@Test public void testEmptyAndTooManyRows() {
+		assertThat(Assignment.minimumCost(new long[0][])).isEmpty();
+		assertThatThrownBy(() -> Assignment.minimumCost(new long[][]{{1}, {2}}))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * @return the least total cost of the rows from the given one on, by trying every assignment
+	 */
+	private static long cheapest(long[][] cost, int row, boolean[] used) {
+		if (row == cost.length) return 0;
+		long best = Long.MAX_VALUE;
+		for (int c = 0; c < used.length; c++) {
+			if (used[c]) continue;
+			used[c] = true;
+			best = Math.min(best, cost[row][c] + cheapest(cost, row + 1, used));
+			used[c] = false;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests that {@link Belief} follows MrX's travel log to every station he could be on
+ */
+public class BeliefTest {
+
+	private static GameGraph graph;
+
+	@BeforeClass public static void setUp() {
+		// a taxi line 1 to 4, with buses from 2 to 5 and 4 to 6 and a taxi from 5 to 6
+		var map = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {5, 6}},
+				new int[][]{{2, 5}, {4, 6}});
+		graph = new GameGraph(map);
+	}
+
+	@Test public void testHiddenMovesFollowTheirTicket() {
+		assertThat(possible(List.of(LogEntry.hidden(TAXI)), new int[0], 2))
+				.containsExactly(1, 3);
+		assertThat(possible(List.of(LogEntry.hidden(BUS)), new int[0], 2))
+				.containsExactly(5);
+		assertThat(possible(List.of(LogEntry.hidden(TAXI), LogEntry.hidden(TAXI)), new int[0], 1))
+				.containsExactly(1, 3);
+	}
+
+	@Test public void testRevealReplacesTheSet() {
+		var log = List.of(LogEntry.hidden(TAXI), LogEntry.reveal(TAXI, 3), LogEntry.hidden(TAXI));
+		assertThat(possible(log, new int[]{4}, 1, 5)).containsExactly(2);
+		assertThat(possible(log.subList(0, 2), new int[0], 1, 5)).containsExactly(3);
+	}
+
+	@Test public void testSecretMoveFollowsEveryRoute() {
+		var log = List.of(LogEntry.reveal(TAXI, 2), LogEntry.hidden(SECRET));
+		assertThat(possible(log, new int[0], 1)).containsExactly(1, 3, 5);
+		assertThat(possible(log, new int[]{3}, 1)).containsExactly(1, 5);
+	}
+
+	@Test public void testImpossibleStartFallsBackToEveryStation() {
+		// there is no bus from 1, so MrX cannot have started there
+		assertThat(possible(List.of(LogEntry.hidden(BUS)), new int[]{6}, 1))
+				.containsExactly(2, 4, 5);
+	}
+
+	@Test public void testClustersAreCentredOnPossibleLocations() {
+		var possible = new int[]{1, 2, 5, 6};
+		assertThat(Belief.clusterCentres(graph, possible, 1)).hasSize(1).containsAnyOf(2, 5);
+		var centres = Belief.clusterCentres(graph, possible, 2);
+		assertThat(centres).hasSize(2).doesNotHaveDuplicates();
+		assertThat(possible).contains(centres);
+		assertThat(Belief.clusterCentres(graph, possible, 8)).containsExactlyInAnyOrder(possible);
+		assertThat(Belief.clusterCentres(graph, new int[0], 2)).isEmpty();
+	}
+
+	private static int[] possible(List<LogEntry> log, int[] detectives, Integer... start) {
+		return Belief.possibleLocations(graph, log, detectives, ImmutableList.copyOf(start));
+	}
+}
@@ -0,0 +1,73 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.detectives;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.mrX;
+
+/**
+ * Tests that {@link DetectiveAi} moves onto the stations MrX's travel log leaves him
+ */
+public class DetectiveAiTest {
+
+	private static ImmutableValueGraph<Integer, ImmutableSet<Transport>> map;
+
+	@BeforeClass public static void setUp() {
+		// a taxi line 1 to 4, with buses from 2 to 5 and 4 to 6 and a taxi from 5 to 6
+		map = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {5, 6}},
+				new int[][]{{2, 5}, {4, 6}});
+	}
+
+	@Test public void testCapturesMrXOnceRevealed() {
+		var setup = new GameSetup(map, ImmutableList.of(true, false));
+		GameState board = new MyGameStateFactory<>().build(setup, mrX(1), detectives(3, 6));
+		board = board.advance(single(board, Ticket.TAXI, 2));
+
+		var move = (SingleMove) new DetectiveAi().pickMove(board, new AtomicBoolean());
+		assertThat(move.commencedBy()).isEqualTo(Detective.RED);
+		assertThat(move.destination).isEqualTo(2);
+	}
+
+	@Test public void testCoversBothStationsASecretMoveCouldReach() {
+		// from 2 a secret ticket reaches 1, 3 and 5, and 3 is held by a detective; the best cover
+		// is one detective next to 1 and the other on 5
+		var setup = SmallGames.setup(map, 2);
+		GameState board = new MyGameStateFactory<>().build(setup, mrX(2), detectives(3, 6));
+		board = board.advance(single(board, Ticket.SECRET, 1));
+
+		var ai = new DetectiveAi(List.of(2));
+		var red = (SingleMove) ai.pickMove(board, new AtomicBoolean());
+		assertThat(red.commencedBy()).isEqualTo(Detective.RED);
+		assertThat(red.destination).isEqualTo(2);
+		board = board.advance(red);
+		var green = (SingleMove) ai.pickMove(board, new AtomicBoolean());
+		assertThat(green.commencedBy()).isEqualTo(Detective.GREEN);
+		assertThat(green.destination).isEqualTo(5);
+	}
+
+	private static Move single(GameState board, Ticket ticket, int destination) {
+		return board.getAvailableMoves().stream()
+				.filter(m -> m instanceof SingleMove)
+				.map(SingleMove.class::cast)
+				.filter(m -> m.ticket == ticket && m.destination == destination)
+				.findFirst().orElseThrow();
+	}
+}
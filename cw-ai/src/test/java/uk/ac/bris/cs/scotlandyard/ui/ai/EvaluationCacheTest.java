@@ -0,0 +1,59 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests the counters of {@link EvaluationCache} and that its CLOCK eviction spares the entries
+ * read since the hand last passed them
+ */
+public class EvaluationCacheTest {
+
+	@Test public void testHitsAndMissesAreCounted() {
+		var cache = new EvaluationCache(EvaluationCache.WAYS);
+		assertThat(cache.hitRate()).isZero();
+		cache.put(1, 10);
+		cache.put(2, -20);
+		cache.put(1, 11);
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get(1)).isEqualTo(11);
+		assertThat(cache.get(2)).isEqualTo(-20);
+		assertThat(cache.get(3)).isEqualTo(EvaluationCache.MISSING);
+		assertThat(cache.hits()).isEqualTo(2);
+		assertThat(cache.misses()).isEqualTo(1);
+		assertThat(cache.hitRate()).isCloseTo(2.0 / 3, within(1e-9));
+
+		cache.clear();
+		assertThat(cache.size()).isZero();
+		assertThat(cache.hits()).isZero();
+		assertThat(cache.misses()).isZero();
+		assertThat(cache.get(1)).isEqualTo(EvaluationCache.MISSING);
+	}
+
+	@Test public void testEvictionSparesEntriesReadSinceTheHandPassed() {
+		// one window of eight slots; key k lives in slot k % 8
+		var cache = new EvaluationCache(EvaluationCache.WAYS);
+		assertThat(cache.capacity()).isEqualTo(EvaluationCache.WAYS);
+		for (int key = 1; key <= 8; key++) cache.put(key, key * 10);
+		assertThat(cache.evictions()).isZero();
+		cache.get(1);
+		cache.get(2);
+
+		// the hand starts on slot 1 for key 9, clears the bits of 1 and 2 and takes 3
+		cache.put(9, 90);
+		assertThat(cache.evictions()).isEqualTo(1);
+		assertThat(cache.size()).isEqualTo(8);
+		assertThat(cache.get(3)).isEqualTo(EvaluationCache.MISSING);
+		assertThat(cache.get(9)).isEqualTo(90);
+		for (int key : new int[]{1, 2, 4, 5, 6, 7, 8}) assertThat(cache.get(key)).isEqualTo(key * 10);
+
+		// every entry is referenced now, so the hand clears all of them and takes the next slot,
+		// 4, on its second pass
+		cache.put(17, 170);
+		assertThat(cache.evictions()).isEqualTo(2);
+		assertThat(cache.get(4)).isEqualTo(EvaluationCache.MISSING);
+		assertThat(cache.get(17)).isEqualTo(170);
+	}
+}
@@ -0,0 +1,199 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.map;
+
+/**
+ * Tests that {@link MonteCarloTreeSearch} answers with a legal move in time, reuses its tree,
+ * finds a forced win and keeps its tree consistent with several workers
+ */
+public class MonteCarloTreeSearchTest {
+
+	private static final long FAR = TimeUnit.SECONDS.toNanos(60);
+	private static final int WORKERS = 4;
+
+	@Test public void testReturnsALegalMove() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var graph = new GameGraph(setup.graph);
+		var state = SearchState.initial(graph, setup, SmallGames.mrX(106),
+				SmallGames.detectives(26, 29, 50, 53, 91));
+		var legal = legal(graph, state);
+		try (var search = new MonteCarloTreeSearch(graph, 1, 2)) {
+			int move = search.search(state, legal, new AtomicBoolean(),
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+			assertThat(legal).contains(move);
+			assertThat(legal).contains(search.ranked());
+		}
+	}
+
+	@Test public void testFindsTheOnlyEscape() {
+		// 2, 3 and 4 are next to the detective at 6, only 5 is out of its reach
+		var map = map(new int[][]{{1, 2}, {1, 3}, {1, 4}, {1, 5}, {5, 7}, {2, 6}, {3, 6}, {4, 6}},
+				new int[0][]);
+		var graph = new GameGraph(map);
+		var state = withoutDoubles(graph, map, 2, 1, 6);
+		try (var search = new MonteCarloTreeSearch(graph, 1, 1)) {
+			int move = search.search(state, legal(graph, state), new AtomicBoolean(),
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+			assertThat(Moves.destination(move)).isEqualTo(5);
+		}
+	}
+
+	@Test public void testStopsOnTerminateAndDeadline() {
+		var map = map(new int[][]{{1, 2}, {1, 3}, {1, 4}, {1, 5}, {5, 7}, {2, 6}, {3, 6}, {4, 6}},
+				new int[0][]);
+		var graph = new GameGraph(map);
+		var state = withoutDoubles(graph, map, 6, 1, 6);
+		var legal = legal(graph, state);
+		try (var search = new MonteCarloTreeSearch(graph, 1, 3)) {
+			// every worker finishes the playout it started, then stops
+			search.search(state, legal, new AtomicBoolean(true), System.nanoTime() + FAR);
+			assertThat(search.playouts()).isEqualTo(3);
+			search.reset();
+			search.search(state, legal, new AtomicBoolean(), System.nanoTime() - 1);
+			assertThat(search.playouts()).isEqualTo(6);
+
+			long budget = TimeUnit.MILLISECONDS.toNanos(100);
+			long start = System.nanoTime();
+			search.search(state, legal, new AtomicBoolean(), start + budget);
+			long elapsed = System.nanoTime() - start;
+			assertThat(elapsed).isBetween(budget, budget + TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+
+	@Test public void testCommittedSubtreeIsReused() {
+		var map = map(new int[][]{{1, 2}, {1, 3}, {1, 4}, {1, 5}, {5, 7}, {2, 6}, {3, 6}, {4, 6}},
+				new int[0][]);
+		var graph = new GameGraph(map);
+		var state = withoutDoubles(graph, map, 6, 1, 6);
+		try (var search = new MonteCarloTreeSearch(graph, 1, 1)) {
+			int move = search.search(state, legal(graph, state), new AtomicBoolean(),
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+			search.commit(move);
+			state.play(move);
+			assertThat(search.root().move).isEqualTo(move);
+
+			// the detective replies with the move the tree knows best
+			var reply = mostVisited(search.root());
+			state.play(reply.move);
+			int visits = reply.visits;
+			assertThat(visits).isPositive();
+			search.search(state, legal(graph, state), new AtomicBoolean(true),
+					System.nanoTime() + FAR);
+			assertThat(search.root()).isSameAs(reply);
+			assertThat(search.rootVisits()).isEqualTo(visits + 1);
+
+			// a position that is not below the committed move starts a new tree
+			var other = withoutDoubles(graph, map, 6, 7, 6);
+			search.commit(search.ranked()[0]);
+			search.search(other, legal(graph, other), new AtomicBoolean(true),
+					System.nanoTime() + FAR);
+			assertThat(search.rootVisits()).isEqualTo(1);
+		}
+	}
+
+	@Test public void testParallelWorkersKeepTheTreeConsistent() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var graph = new GameGraph(setup.graph);
+		var opening = SearchState.initial(graph, setup, SmallGames.mrX(106),
+				SmallGames.detectives(26, 29, 50, 53, 91));
+		// small enough for the workers to reach the end of the game and crowd the same nodes
+		var map = map(new int[][]{{1, 2}, {1, 3}, {1, 4}, {1, 5}, {5, 7}, {2, 6}, {3, 6}, {4, 6}},
+				new int[0][]);
+		var small = new GameGraph(map);
+		var endgame = withoutDoubles(small, map, 3, 1, 6);
+		assertSearchesStayConsistent(graph, opening);
+		assertSearchesStayConsistent(small, endgame);
+	}
+
+	private static void assertSearchesStayConsistent(GameGraph graph, SearchState state) {
+		try (var search = new MonteCarloTreeSearch(graph, 1, WORKERS)) {
+			for (int run = 0; run < 3; run++) {
+				search.reset();
+				long before = search.playouts();
+				search.search(state, legal(graph, state), new AtomicBoolean(),
+						System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(150));
+				var root = search.root();
+				assertThat(root.visits).isEqualTo(search.playouts() - before);
+				assertConsistent(root);
+			}
+		}
+	}
+
+	/**
+	 * Checks every node below the given one: each move is expanded once, the visits of the
+	 * children add up to no more than the node's own, and every visit added on the way down has
+	 * had its result added on the way back up
+	 */
+	private static void assertConsistent(MonteCarloTreeSearch.Node node) {
+		assertThat(node.wins).isBetween(0, node.visits);
+		var children = node.children;
+		if (children == null) return;
+		assertThat(children.moves).doesNotHaveDuplicates();
+		int published = 0;
+		int visits = 0;
+		int wins = 0;
+		for (int i = 0; i < children.moves.length; i++) {
+			var child = children.nodes.get(i);
+			if (child == null) continue;
+			published++;
+			assertThat(child.move).isEqualTo(children.moves[i]);
+			visits += child.visits;
+			// the child counts wins for the side that made its move
+			boolean sameSide = (child.player == SearchState.MRX) == (node.player == SearchState.MRX);
+			wins += sameSide ? child.wins : child.visits - child.wins;
+			assertConsistent(child);
+		}
+		// no slot was claimed without its node being published
+		assertThat(published).isEqualTo(Math.min(node.expanded, children.moves.length));
+		// the rest are playouts that ended on this node
+		int own = node.visits - visits;
+		assertThat(own).isNotNegative();
+		assertThat(node.wins - wins).isBetween(0, own);
+	}
+
+	/**
+	 * @return the start of a game with the given number of rounds in which MrX has no double
+	 * move tickets, so that every round counts
+	 */
+	private static SearchState withoutDoubles(
+			GameGraph graph, ImmutableValueGraph<Integer, ImmutableSet<Transport>> map, int rounds,
+			int mrX, int detective) {
+		var tickets = ImmutableMap.of(Ticket.TAXI, 10, Ticket.BUS, 10, Ticket.UNDERGROUND, 10,
+				Ticket.DOUBLE, 0, Ticket.SECRET, 2);
+		return SearchState.initial(graph, SmallGames.setup(map, rounds),
+				new Player(MrX.MRX, tickets, mrX), SmallGames.detectives(detective));
+	}
+
+	private static MonteCarloTreeSearch.Node mostVisited(MonteCarloTreeSearch.Node node) {
+		MonteCarloTreeSearch.Node best = null;
+		for (int i = 0; i < node.children.moves.length; i++) {
+			var child = node.children.nodes.get(i);
+			if (child != null && (best == null || child.visits > best.visits)) best = child;
+		}
+		return best;
+	}
+
+	private static int[] legal(GameGraph graph, SearchState state) {
+		var buffer = new int[graph.maxMoves()];
+		return Arrays.copyOf(buffer, state.generateMoves(buffer, true));
+	}
+}
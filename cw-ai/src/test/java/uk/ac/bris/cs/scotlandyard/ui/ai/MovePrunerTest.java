@@ -0,0 +1,116 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link MovePruner} only drops MrX moves that another kept move stands in for
+ */
+public class MovePrunerTest {
+
+	private static final int POSITIONS = 2_000;
+	private static final int SECRET = Ticket.SECRET.ordinal();
+
+	private static GameSetup standard;
+	private static GameGraph graph;
+
+	@BeforeClass public static void setUp() throws IOException {
+		standard = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		graph = new GameGraph(standard.graph);
+	}
+
+	@Test public void testEveryDestinationIsKept() {
+		var random = new Random(1);
+		var pruner = new MovePruner(graph);
+		var buffer = new int[graph.maxMoves()];
+		var stations = new ArrayList<>(standard.graph.nodes());
+		for (int position = 0; position < POSITIONS; position++) {
+			var state = randomPosition(random, stations);
+			var legal = Arrays.copyOf(buffer, state.generateMoves(buffer, true));
+			var pruned = legal.clone();
+			var kept = Arrays.copyOf(pruned, pruner.prune(state, pruned, pruned.length));
+			String context = state + " " + Arrays.toString(legal);
+
+			assertThat(kept).as(context).doesNotHaveDuplicates();
+			assertThat(legal).as(context).contains(kept);
+			for (int move : legal) {
+				assertThat(Arrays.stream(kept).anyMatch(k ->
+						Moves.destination(k) == Moves.destination(move)))
+						.as("%s reaches %d", context, Moves.destination(move)).isTrue();
+				if (usesSecret(move)) continue;
+				// without secret tickets, only transposed double moves stand in for each other
+				if (Moves.isDouble(move)) {
+					assertThat(Arrays.stream(kept).anyMatch(k -> Moves.isDouble(k) &&
+							!usesSecret(k) && sameTickets(k, move) &&
+							Moves.destination(k) == Moves.destination(move)))
+							.as("%s keeps %s", context, Moves.toString(move)).isTrue();
+				} else {
+					assertThat(kept).as(context).contains(move);
+				}
+			}
+			for (int i = 0; i < kept.length; i++)
+				assertThat(usesSecret(kept[i])).as(context).isEqualTo(i >= pruner.ordinary());
+		}
+	}
+
+	@Test public void testDetectiveMovesAreLeftAlone() {
+		var state = SearchState.initial(graph, standard, SmallGames.mrX(106),
+				SmallGames.detectives(26, 94));
+		var buffer = new int[graph.maxMoves()];
+		state.generateMoves(buffer, true);
+		state.play(buffer[0]);
+		int count = state.generateMoves(buffer, true);
+		var before = Arrays.copyOf(buffer, count);
+		assertThat(new MovePruner(graph).prune(state, buffer, count)).isEqualTo(count);
+		assertThat(Arrays.copyOf(buffer, count)).isEqualTo(before);
+	}
+
+	/**
+	 * A position with MrX to move, few tickets of each kind so that a secret ticket is sometimes
+	 * his only way somewhere, and reveal rounds at random
+	 */
+	private static SearchState randomPosition(Random random, ArrayList<Integer> stations) {
+		var reveals = new ArrayList<Boolean>();
+		for (int round = 1 + random.nextInt(4); round > 0; round--) reveals.add(random.nextBoolean());
+		var setup = new GameSetup(standard.graph, ImmutableList.copyOf(reveals));
+		Collections.shuffle(stations, random);
+		var tickets = ImmutableMap.of(
+				Ticket.TAXI, random.nextInt(3),
+				Ticket.BUS, random.nextInt(3),
+				Ticket.UNDERGROUND, random.nextInt(2),
+				Ticket.DOUBLE, random.nextInt(2),
+				Ticket.SECRET, random.nextInt(3));
+		int[] detectives = {stations.get(1), stations.get(2), stations.get(3)};
+		return SearchState.initial(graph, setup, new Player(MrX.MRX, tickets, stations.get(0)),
+				SmallGames.detectives(detectives));
+	}
+
+	private static boolean usesSecret(int move) {
+		return Moves.ticket1(move) == SECRET ||
+				(Moves.isDouble(move) && Moves.ticket2(move) == SECRET);
+	}
+
+	private static boolean sameTickets(int a, int b) {
+		return Math.min(Moves.ticket1(a), Moves.ticket2(a)) ==
+				Math.min(Moves.ticket1(b), Moves.ticket2(b)) &&
+				Math.max(Moves.ticket1(a), Moves.ticket2(a)) ==
+						Math.max(Moves.ticket1(b), Moves.ticket2(b));
+	}
+}
@@ -0,0 +1,82 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.start;
+
+/**
+ * Tests that a book written by {@link OpeningBookBuilder} reads back as an {@link OpeningBook}
+ * that plays a legal move in every position it was built for and in no other
+ */
+public class OpeningBookTest {
+
+	private static ImmutableValueGraph<Integer, ImmutableSet<Transport>> map;
+	private static GameGraph graph;
+	private static List<SearchState> positions;
+	private static OpeningBook book;
+
+	@BeforeClass public static void setUp() throws IOException, InterruptedException {
+		// a ring of six with a bus across it and a dead end hanging off station 1
+		map = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 1}, {1, 7},
+				{7, 8}}, new int[][]{{2, 5}});
+		graph = new GameGraph(map);
+		positions = new ArrayList<>();
+		for (int mrX : new int[]{1, 2, 3}) positions.add(start(graph, map, 4, mrX, 5, 7));
+		var built = OpeningBookBuilder.build(graph, positions, 20, 2);
+		var bytes = new ByteArrayOutputStream();
+		built.write(bytes);
+		book = OpeningBook.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	@Test public void testEveryBookedPositionHasALegalMove() {
+		assertThat(book.size()).isEqualTo(positions.size());
+		int[] buffer = new int[graph.maxMoves()];
+		for (var position : positions) {
+			int[] legal = Arrays.copyOf(buffer, position.generateMoves(buffer, true));
+			assertThat(legal).as(position.toString()).contains(book.lookup(position));
+		}
+	}
+
+	@Test public void testPositionsOutsideTheBookAreNotLookedUp() {
+		assertThat(book.lookup(start(graph, map, 4, 4, 5, 7))).isEqualTo(Moves.NONE);
+		var state = start(graph, map, 4, 1, 5, 7).copy();
+		int[] buffer = new int[graph.maxMoves()];
+		state.generateMoves(buffer, true);
+		state.play(buffer[0]);
+		assertThat(book.lookup(state)).isEqualTo(Moves.NONE);
+	}
+
+	@Test public void testRejectsWhatIsNotABook() {
+		assertThatThrownBy(() -> OpeningBook.read(new ByteArrayInputStream(new byte[12])))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test public void testStandardStartPositionsAreDistinct() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var starts = OpeningBookBuilder.startPositions(new GameGraph(setup.graph), setup);
+		var keys = new HashSet<Long>();
+		for (var start : starts) {
+			assertThat(start.mrXToMove()).isTrue();
+			keys.add(start.canonicalHash());
+		}
+		assertThat(keys).hasSize(starts.size());
+	}
+}
@@ -0,0 +1,101 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link RolloutEngine} finishes games and does not allocate while playing them
+ */
+public class RolloutEngineTest {
+
+	private static final int WARM_UP = 20_000;
+	private static final int MEASURED = 2_000;
+
+	private static GameGraph graph;
+	private static SearchState start;
+
+	@BeforeClass public static void setUp() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		graph = new GameGraph(setup.graph);
+		start = SearchState.initial(graph, setup,
+				new Player(MrX.MRX, defaultMrXTickets(), 106),
+				ImmutableList.of(
+						new Player(Detective.RED, defaultDetectiveTickets(), 26),
+						new Player(Detective.GREEN, defaultDetectiveTickets(), 50),
+						new Player(Detective.BLUE, defaultDetectiveTickets(), 94),
+						new Player(Detective.WHITE, defaultDetectiveTickets(), 117),
+						new Player(Detective.YELLOW, defaultDetectiveTickets(), 155)));
+	}
+
+	@Test public void testPlayoutsFinishTheGame() {
+		var engine = new RolloutEngine(graph, new SplittableRandom(1), 0.8, 0.5);
+		var state = start.copy();
+		for (int i = 0; i < 100; i++) {
+			state.copyFrom(start);
+			int winner = engine.play(state);
+			assertThat(state.isOver()).isTrue();
+			assertThat(winner).isIn(SearchState.MRX_WON, SearchState.DETECTIVES_WON);
+		}
+		assertThat(engine.plies()).isPositive();
+	}
+
+	@Test public void testFleeingHelpsMrX() {
+		assertThat(mrXWins(1)).isGreaterThan(mrXWins(0));
+	}
+
+	@Test public void testPlayoutsDoNotAllocate() {
+		var bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		var threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+
+		var engine = new RolloutEngine(graph, new SplittableRandom(2), 0.8, 0.5);
+		var state = start.copy();
+		// let the JIT compile the playout loop before measuring
+		for (int i = 0; i < WARM_UP; i++) {
+			state.copyFrom(start);
+			engine.play(state);
+		}
+		long plies = engine.plies();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < MEASURED; i++) {
+			state.copyFrom(start);
+			engine.play(state);
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		plies = engine.plies() - plies;
+		assertThat(plies).isGreaterThan(MEASURED);
+		// allow for the measurement itself, but nothing that grows with the number of plies
+		assertThat(allocated).isLessThan(1024);
+	}
+
+	private static int mrXWins(double flee) {
+		var engine = new RolloutEngine(graph, new SplittableRandom(3), 0.8, flee);
+		var state = start.copy();
+		int wins = 0;
+		for (int i = 0; i < 2000; i++) {
+			state.copyFrom(start);
+			if (engine.play(state) == SearchState.MRX_WON) wins++;
+		}
+		return wins;
+	}
+}
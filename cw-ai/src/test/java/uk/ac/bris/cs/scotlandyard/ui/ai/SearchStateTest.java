@@ -0,0 +1,105 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link SearchState} plays by the rules of the game model
+ */
+public class SearchStateTest {
+
+	private static final int GAMES = 3_000;
+
+	private static GameSetup standard;
+	private static GameGraph graph;
+
+	@BeforeClass public static void setUp() throws IOException {
+		standard = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		graph = new GameGraph(standard.graph);
+	}
+
+	@Test public void testRandomGamesMatchTheModel() {
+		var random = new Random(1);
+		var buffer = new int[graph.maxMoves()];
+		var decided = new int[3];
+		for (int game = 0; game < GAMES; game++) {
+			// short games with many detectives close together, to reach the end of the log and
+			// detectives boxed in by each other
+			var setup = new GameSetup(standard.graph,
+					standard.rounds.subList(0, 1 + random.nextInt(6)));
+			var stations = new ArrayList<>(List.of(13, 14, 15, 23, 24, 25, 26, 37, 38, 50, 51, 52));
+			Collections.shuffle(stations, random);
+			var mrX = new Player(MrX.MRX, defaultMrXTickets(), stations.get(0));
+			var detectives = IntStream.range(0, 2 + random.nextInt(4))
+					.mapToObj(d -> new Player(ScotlandYard.DETECTIVES.asList().get(d),
+							defaultDetectiveTickets(), stations.get(d + 1)))
+					.collect(ImmutableList.toImmutableList());
+
+			GameState model = new MyGameStateFactory<>().build(setup, mrX, detectives);
+			var state = SearchState.initial(graph, setup, mrX, detectives);
+			var played = new ArrayList<Move>();
+			while (true) {
+				String context = "after " + played;
+				assertThat(state.winner()).as(context).isEqualTo(winner(model.getWinner()));
+				if (state.isOver()) break;
+				Piece piece = state.piece(state.player());
+				int count = state.generateMoves(buffer, true);
+				var moves = IntStream.range(0, count).mapToObj(i -> state.toMove(buffer[i]))
+						.collect(ImmutableSet.toImmutableSet());
+				assertThat(moves).as(context).isEqualTo(model.getAvailableMoves().stream()
+						.filter(m -> m.commencedBy() == piece)
+						.collect(ImmutableSet.toImmutableSet()));
+				int move = buffer[random.nextInt(count)];
+				played.add(state.toMove(move));
+				model = model.advance(state.toMove(move));
+				state.play(move);
+			}
+			decided[state.winner()]++;
+		}
+		assertThat(decided[SearchState.MRX_WON]).isPositive();
+		assertThat(decided[SearchState.DETECTIVES_WON]).isPositive();
+	}
+
+	@Test public void testFromBoardMatchesInitial() {
+		var mrX = new Player(MrX.MRX, defaultMrXTickets(), 106);
+		var detectives = ImmutableList.of(
+				new Player(Detective.RED, defaultDetectiveTickets(), 26),
+				new Player(Detective.BLUE, defaultDetectiveTickets(), 94));
+		var board = new MyGameStateFactory<>().build(standard, mrX, detectives);
+		var initial = SearchState.initial(graph, standard, mrX, detectives);
+		var fromBoard = SearchState.fromBoard(graph, board, 106);
+		assertThat(fromBoard.samePosition(initial)).isTrue();
+		assertThat(fromBoard.hash()).isEqualTo(initial.hash());
+		assertThat(fromBoard.player()).isEqualTo(SearchState.MRX);
+	}
+
+	private static int winner(ImmutableSet<Piece> winner) {
+		if (winner.isEmpty()) return SearchState.ONGOING;
+		return winner.stream().anyMatch(Piece::isMrX) ?
+				SearchState.MRX_WON : SearchState.DETECTIVES_WON;
+	}
+}
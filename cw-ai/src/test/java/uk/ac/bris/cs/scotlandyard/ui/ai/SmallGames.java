@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Hand made maps small enough for a test to reason about every position
+ */
+final class SmallGames {
+
+	private SmallGames() {}
+
+	/**
+	 * @param taxi pairs of stations joined by a taxi route
+	 * @param bus pairs of stations joined by a bus route
+	 * @return the map
+	 */
+	static ImmutableValueGraph<Integer, ImmutableSet<Transport>> map(int[][] taxi, int[][] bus) {
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+				ValueGraphBuilder.undirected().build();
+		for (int[] edge : taxi) graph.putEdgeValue(edge[0], edge[1], ImmutableSet.of(Transport.TAXI));
+		for (int[] edge : bus) graph.putEdgeValue(edge[0], edge[1], ImmutableSet.of(Transport.BUS));
+		return ImmutableValueGraph.copyOf(graph);
+	}
+
+	/**
+	 * @param rounds the number of rounds, none of which reveal MrX
+	 * @return a game with the default tickets and MrX to move, the detectives taken in order
+	 * from {@link ScotlandYard#DETECTIVES}
+	 */
+	static GameSetup setup(ImmutableValueGraph<Integer, ImmutableSet<Transport>> map, int rounds) {
+		return new GameSetup(map, ImmutableList.copyOf(Collections.nCopies(rounds, false)));
+	}
+
+	static Player mrX(int location) {
+		return new Player(MrX.MRX, defaultMrXTickets(), location);
+	}
+
+	static ImmutableList<Player> detectives(int... locations) {
+		var pieces = ScotlandYard.DETECTIVES.asList();
+		return IntStream.range(0, locations.length)
+				.mapToObj(d -> new Player(pieces.get(d), defaultDetectiveTickets(), locations[d]))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return the start of a game as in {@link #setup}
+	 */
+	static SearchState start(GameGraph graph,
+	                         ImmutableValueGraph<Integer, ImmutableSet<Transport>> map,
+	                         int rounds, int mrX, int... detectives) {
+		return SearchState.initial(graph, setup(map, rounds), mrX(mrX), detectives(detectives));
+	}
+}
@@ -0,0 +1,117 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.ui.ai.SmallGames.start;
+
+/**
+ * Tests that the moves {@link Tablebase} reads from a table solved by {@link TablebaseGenerator}
+ * win under the rules of the game, on a small graph where every position can be checked
+ */
+public class TablebaseTest {
+
+	private static final int DETECTIVES = 2;
+	private static final int HORIZON = 3;
+
+	private static ImmutableValueGraph<Integer, ImmutableSet<Transport>> map;
+	private static GameGraph graph;
+	private static Path file;
+	private static Tablebase table;
+
+	@BeforeClass public static void setUp() throws IOException {
+		// a ring of six with a bus across it and a dead end hanging off station 1
+		map = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 1}, {1, 7},
+				{7, 8}}, new int[][]{{2, 5}});
+		graph = new GameGraph(map);
+		file = Files.createTempFile("tablebase", ".bin");
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					Tablebase.HEADER + Tablebase.size(graph.size(), DETECTIVES, HORIZON));
+			TablebaseGenerator.generate(graph, buffer, DETECTIVES, HORIZON);
+			buffer.force();
+		}
+		table = Tablebase.open(file);
+	}
+
+	@AfterClass public static void tearDown() throws IOException {
+		table = null;
+		Files.deleteIfExists(file);
+	}
+
+	@Test public void testEveryMoveProbedWinsForMrX() {
+		int won = 0, lost = 0;
+		for (int left = 1; left <= HORIZON; left++) {
+			for (int mrX : map.nodes()) for (int first : map.nodes()) for (int second : map.nodes()) {
+				if (mrX == first || mrX == second || first == second) continue;
+				var state = start(graph, map, left, mrX, first, second);
+				int move = table.probe(state);
+				if (Tablebase.mrXWins(table.value(left, mrX, new int[]{first, second}))) {
+					int[] legal = new int[graph.maxMoves()];
+					legal = Arrays.copyOf(legal, state.generateMoves(legal, true));
+					assertThat(legal).as(state.toString()).contains(move);
+					assertThat(followingTheTableWins(state)).as(state.toString()).isTrue();
+					won++;
+				} else {
+					assertThat(move).as(state.toString()).isEqualTo(Moves.NONE);
+					lost++;
+				}
+			}
+		}
+		assertThat(won).isPositive();
+		assertThat(lost).isPositive();
+	}
+
+	@Test public void testPositionsOutsideTheTableAreNotProbed() {
+		assertThat(table.probe(start(graph, map, HORIZON + 1, 4, 1, 7))).isEqualTo(Moves.NONE);
+		var state = start(graph, map, 1, 4, 1, 7);
+		assertThat(table.probe(state)).isNotEqualTo(Moves.NONE);
+		// after MrX has moved
+		int[] buffer = new int[graph.maxMoves()];
+		state.generateMoves(buffer, false);
+		state.play(buffer[0]);
+		assertThat(table.probe(state)).isEqualTo(Moves.NONE);
+		// same stations, different routes
+		var other = SmallGames.map(new int[][]{{1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 1},
+				{1, 7}, {7, 8}}, new int[][]{{3, 6}});
+		assertThat(table.probe(start(new GameGraph(other), other, 1, 4, 1, 7)))
+				.isEqualTo(Moves.NONE);
+	}
+
+	/**
+	 * @return whether MrX wins by playing the table's move every round, whatever the detectives do
+	 */
+	private static boolean followingTheTableWins(SearchState state) {
+		if (state.isOver()) return state.winner() == SearchState.MRX_WON;
+		if (state.mrXToMove()) {
+			int move = table.probe(state);
+			if (move == Moves.NONE) return false;
+			var next = state.copy();
+			next.play(move);
+			return followingTheTableWins(next);
+		}
+		var buffer = new int[graph.maxMoves()];
+		int count = state.generateMoves(buffer, false);
+		for (int i = 0; i < count; i++) {
+			var next = state.copy();
+			next.play(buffer[i]);
+			if (!followingTheTableWins(next)) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,53 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link TranspositionTable} gives back what was stored and keeps the deeper result
+ */
+public class TranspositionTableTest {
+
+	@Test public void testStoredEntriesComeBack() {
+		var table = new TranspositionTable(4);
+		int move = Moves.doubleMove(Ticket.SECRET.ordinal(), 199, Ticket.BUS.ordinal(), 1);
+		table.store(42, 7, TranspositionTable.LOWER, -(AlphaBetaSearch.WIN - 3), move);
+		long entry = table.probe(42);
+		assertThat(entry).isNotEqualTo(TranspositionTable.MISS);
+		assertThat(TranspositionTable.move(entry)).isEqualTo(move);
+		assertThat(TranspositionTable.depth(entry)).isEqualTo(7);
+		assertThat(TranspositionTable.flag(entry)).isEqualTo(TranspositionTable.LOWER);
+		assertThat(TranspositionTable.score(entry)).isEqualTo(-(AlphaBetaSearch.WIN - 3));
+
+		table.store(43, 0, TranspositionTable.EXACT, 0, Moves.NONE);
+		entry = table.probe(43);
+		assertThat(entry).isNotEqualTo(TranspositionTable.MISS);
+		assertThat(TranspositionTable.move(entry)).isEqualTo(Moves.NONE);
+		assertThat(TranspositionTable.depth(entry)).isZero();
+		assertThat(TranspositionTable.score(entry)).isZero();
+	}
+
+	@Test public void testDeeperResultsAreKept() {
+		var table = new TranspositionTable(4);
+		table.store(5, 6, TranspositionTable.EXACT, 100, Moves.single(0, 10));
+		table.store(5, 2, TranspositionTable.UPPER, -100, Moves.single(0, 11));
+		assertThat(TranspositionTable.depth(table.probe(5))).isEqualTo(6);
+		table.store(5, 8, TranspositionTable.UPPER, -100, Moves.single(0, 11));
+		assertThat(TranspositionTable.score(table.probe(5))).isEqualTo(-100);
+		// another position in the same slot always replaces it
+		table.store(5 + table.capacity(), 1, TranspositionTable.EXACT, 1, Moves.NONE);
+		assertThat(table.probe(5)).isEqualTo(TranspositionTable.MISS);
+		assertThat(TranspositionTable.depth(table.probe(5 + table.capacity()))).isEqualTo(1);
+	}
+
+	@Test public void testClearForgetsEverything() {
+		var table = new TranspositionTable(4);
+		assertThat(table.probe(9)).isEqualTo(TranspositionTable.MISS);
+		table.store(9, 3, TranspositionTable.EXACT, 1, Moves.NONE);
+		table.clear();
+		assertThat(table.probe(9)).isEqualTo(TranspositionTable.MISS);
+	}
+}
@@ -0,0 +1,41 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+/**
+ * Generating MrX's moves at each {@link Position}.
+ * <br>
+ * The model works out the available moves when a state is created, so this measures creating
+ * the state and reading its moves; {@link GameStateBenchmark#build()} on the opening is the same
+ * work for the {@link Position#OPENING} case.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AvailableMovesBenchmark {
+
+	@Param({"OPENING", "MIDGAME", "SECRETS"})
+	public Position position;
+
+	@Benchmark public ImmutableSet<Move> availableMoves() {
+		return position.build().getAvailableMoves();
+	}
+}
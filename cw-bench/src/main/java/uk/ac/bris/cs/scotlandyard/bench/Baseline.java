@@ -0,0 +1,161 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Reference numbers for {@link RegressionGate}, one metric per line:
+ * <pre>
+ *   name  higher|lower  baseline  tolerance
+ * </pre>
+ * where {@code higher} means bigger is better. A metric regresses when it is worse than its
+ * baseline by more than the tolerance, a fraction of the baseline. For {@code lower} metrics a
+ * baseline under 1 counts as 1, so an allocation-free operation is not failed by noise.
+ */
+final class Baseline {
+
+	enum Better { HIGHER, LOWER }
+
+	static final class Metric {
+		final String name;
+		final Better better;
+		final double baseline;
+		final double tolerance;
+
+		Metric(@Nonnull String name, @Nonnull Better better, double baseline, double tolerance) {
+			if (name.isBlank() || name.chars().anyMatch(Character::isWhitespace))
+				throw new IllegalArgumentException("Bad metric name '" + name + "'");
+			if (tolerance < 0) throw new IllegalArgumentException("Negative tolerance " + tolerance);
+			this.name = name;
+			this.better = Objects.requireNonNull(better);
+			this.baseline = baseline;
+			this.tolerance = tolerance;
+		}
+
+		/**
+		 * @return the worst value that still passes
+		 */
+		double limit() {
+			return better == Better.HIGHER ?
+					baseline * (1 - tolerance) :
+					Math.max(1, baseline) * (1 + tolerance);
+		}
+
+		boolean regressed(double actual) {
+			return better == Better.HIGHER ? actual < limit() : actual > limit();
+		}
+
+		/**
+		 * @return the change from the baseline as a fraction, positive when better
+		 */
+		double improvement(double actual) {
+			if (baseline == 0) return 0;
+			double change = (actual - baseline) / baseline;
+			return better == Better.HIGHER ? change : -change;
+		}
+	}
+
+	private final ImmutableMap<String, Metric> metrics;
+
+	Baseline(@Nonnull Iterable<Metric> metrics) {
+		var builder = ImmutableMap.<String, Metric>builder();
+		for (Metric metric : metrics) builder.put(metric.name, metric);
+		this.metrics = builder.build();
+	}
+
+	@Nonnull ImmutableMap<String, Metric> metrics() { return metrics; }
+
+	@Nonnull static Baseline parse(@Nonnull List<String> lines) {
+		var metrics = new ArrayList<Metric>();
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+			String[] fields = line.split("\\s+");
+			try {
+				if (fields.length != 4) throw new IllegalArgumentException("expected 4 fields");
+				metrics.add(new Metric(fields[0], Better.valueOf(fields[1].toUpperCase(Locale.ROOT)),
+						Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage() +
+						": " + line, e);
+			}
+		}
+		return new Baseline(metrics);
+	}
+
+	@Nonnull static Baseline read(@Nonnull Path file) throws IOException {
+		return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param actual the measured values by metric name
+	 * @return a description of every metric that regressed or was not measured; empty if none
+	 */
+	@Nonnull ImmutableList<String> check(@Nonnull Map<String, Double> actual) {
+		var failures = ImmutableList.<String>builder();
+		for (Metric metric : metrics.values()) {
+			Double value = actual.get(metric.name);
+			if (value == null) failures.add(metric.name + " was not measured");
+			else if (metric.regressed(value))
+				failures.add(String.format(Locale.ROOT, "%s is %s, worse than the limit %s " +
+								"(baseline %s, tolerance %.0f%%)", metric.name, format(value),
+						format(metric.limit()), format(metric.baseline), metric.tolerance * 100));
+		}
+		return failures.build();
+	}
+
+	/**
+	 * @param actual the measured values by metric name
+	 * @param defaults the direction and tolerance of metrics not in this baseline yet
+	 * @return a baseline of the measured values, keeping the direction and tolerance of every
+	 * metric already in this one
+	 */
+	@Nonnull Baseline update(@Nonnull Map<String, Double> actual,
+	                         @Nonnull Map<String, Metric> defaults) {
+		var updated = new LinkedHashMap<String, Metric>();
+		for (var entry : actual.entrySet()) {
+			var old = metrics.getOrDefault(entry.getKey(), defaults.get(entry.getKey()));
+			if (old == null)
+				throw new IllegalArgumentException("No default for new metric " + entry.getKey());
+			updated.put(entry.getKey(),
+					new Metric(entry.getKey(), old.better, entry.getValue(), old.tolerance));
+		}
+		return new Baseline(updated.values());
+	}
+
+	void write(@Nonnull Path file, @Nonnull List<String> header) throws IOException {
+		var lines = new ArrayList<>(header);
+		int width = metrics.keySet().stream().mapToInt(String::length).max().orElse(0);
+		for (Metric metric : metrics.values())
+			lines.add(String.format(Locale.ROOT, "%-" + width + "s  %-6s  %14s  %.2f", metric.name,
+					metric.better.name().toLowerCase(Locale.ROOT), format(metric.baseline),
+					metric.tolerance));
+		Files.write(file, lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the value rounded to a whole number from 100 up and to four significant digits
+	 * below, so that small multiples of the reference keep their precision
+	 */
+	static String format(double value) {
+		return Math.abs(value) >= 100 ?
+				String.format(Locale.ROOT, "%.0f", value) :
+				new BigDecimal(value).round(new MathContext(4)).stripTrailingZeros()
+						.toPlainString();
+	}
+}
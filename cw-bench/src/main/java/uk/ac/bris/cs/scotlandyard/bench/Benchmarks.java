@@ -0,0 +1,33 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the model benchmarks with the GC profiler attached and writes the results as JSON.
+ * <br>
+ * Takes the usual JMH arguments, e.g. a benchmark name pattern or {@code -rff other.json}; the
+ * results go to {@code jmh-result.json} unless told otherwise. Every benchmark then reports
+ * {@code gc.alloc.rate.norm}, the bytes allocated per operation, next to its time.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		var command = new CommandLineOptions(args);
+		var options = new OptionsBuilder()
+				.parent(command)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(command.getResultFormat().orElse(ResultFormatType.JSON))
+				.result(command.getResult().orElse("jmh-result.json"));
+		if (command.getIncludes().isEmpty())
+			options.include(Benchmarks.class.getPackageName() + ".*");
+		new Runner(options.build()).run();
+	}
+}
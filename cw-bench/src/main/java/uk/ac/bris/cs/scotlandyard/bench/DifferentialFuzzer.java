@@ -0,0 +1,499 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.ModelFactories;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Plays random games on several game state factories in lockstep and reports the first position
+ * where they disagree.
+ * <br>
+ * The first engine is the baseline, normally the reference model. At every ply the available
+ * moves, the winner and MrX's travel log of every engine are compared with the baseline's, and
+ * an exception counts as an answer of its own. The next move is drawn from the baseline's moves.
+ * A divergence is shrunk to a shortest sequence of moves that still produces one, by removing
+ * moves for as long as what is left is legal and still diverges.
+ * <br>
+ * Games start from random positions: any number of detectives, any stations, random tickets and
+ * random reveal rounds, with every fourth game on the standard rules. Game {@code i} of a run
+ * with seed {@code s} depends only on {@code s + i}.
+ */
+public final class DifferentialFuzzer {
+
+	/**
+	 * Safety net against an engine that never ends a game
+	 */
+	private static final int MAX_PLIES = 1000;
+
+	/**
+	 * A starting position
+	 */
+	public static final class Game {
+		public final GameSetup setup;
+		public final Player mrX;
+		public final ImmutableList<Player> detectives;
+
+		Game(GameSetup setup, Player mrX, ImmutableList<Player> detectives) {
+			this.setup = setup;
+			this.mrX = mrX;
+			this.detectives = detectives;
+		}
+
+		@Override public String toString() {
+			var reveals = new StringBuilder();
+			for (boolean reveal : setup.rounds) reveals.append(reveal ? 'R' : '-');
+			return "rounds " + reveals + ", " + mrX + ", " + detectives;
+		}
+	}
+
+	/**
+	 * Moves from a starting position after which the engines disagree
+	 */
+	public static final class Divergence {
+		public final long seed;
+		public final Game game;
+		public final ImmutableList<Move> moves;
+		/**
+		 * What the engines disagree on after the moves
+		 */
+		public final String difference;
+
+		Divergence(long seed, Game game, ImmutableList<Move> moves, String difference) {
+			this.seed = seed;
+			this.game = game;
+			this.moves = moves;
+			this.difference = difference;
+		}
+
+		@Override public String toString() {
+			var builder = new StringBuilder();
+			builder.append("Game with seed ").append(seed).append(": ").append(game)
+					.append(System.lineSeparator());
+			for (int i = 0; i < moves.size(); i++)
+				builder.append(String.format("%4d. %s%n", i + 1, moves.get(i)));
+			return builder.append(difference).toString();
+		}
+	}
+
+	/**
+	 * The totals of a run
+	 */
+	public static final class Report {
+		public final long games;
+		public final long plies;
+		public final long nanos;
+		public final Optional<Divergence> divergence;
+
+		Report(long games, long plies, long nanos, Optional<Divergence> divergence) {
+			this.games = games;
+			this.plies = plies;
+			this.nanos = nanos;
+			this.divergence = divergence;
+		}
+
+		@Override public String toString() {
+			double seconds = Math.max(nanos, 1) / 1e9;
+			return String.format("%d games, %d plies in %.1fs (%.0f games/s, %.0f plies/s), %s",
+					games, plies, seconds, games / seconds, plies / seconds,
+					divergence.isPresent() ? "diverged" : "no divergence");
+		}
+	}
+
+	private enum Verdict {AGREED, DIVERGED, ILLEGAL}
+
+	private static final class Outcome {
+		final Verdict verdict;
+		final List<Move> moves;
+		final String difference;
+
+		Outcome(Verdict verdict, List<Move> moves, String difference) {
+			this.verdict = verdict;
+			this.moves = moves;
+			this.difference = difference;
+		}
+	}
+
+	private final ImmutableList<String> names;
+	private final ImmutableList<Factory<GameState>> engines;
+	private final GameSetup standard;
+	private final ImmutableList<Integer> stations;
+
+	/**
+	 * @param engines the engines by name; the first is the baseline
+	 * @param standard the standard map and rounds
+	 */
+	public DifferentialFuzzer(@Nonnull Map<String, Factory<GameState>> engines,
+	                          @Nonnull GameSetup standard) {
+		if (engines.size() < 2) throw new IllegalArgumentException("Nothing to compare with");
+		this.names = ImmutableList.copyOf(engines.keySet());
+		this.engines = ImmutableList.copyOf(engines.values());
+		this.standard = Objects.requireNonNull(standard);
+		this.stations = ImmutableList.sortedCopyOf(standard.graph.nodes());
+	}
+
+	/**
+	 * @return the reference model followed by the factories of {@link ModelFactories}
+	 */
+	@Nonnull public static ImmutableMap<String, Factory<GameState>> defaultEngines()
+			throws IOException {
+		var engines = ImmutableMap.<String, Factory<GameState>>builder();
+		engines.put("reference", ReferenceModel.load(ReferenceModel.jar()));
+		var factories = ModelFactories.factories();
+		for (int i = 0; i < factories.size(); i++)
+			engines.put(factories.size() == 1 ? "model" : "model" + i,
+					factories.get(i).getKey().get());
+		return engines.build();
+	}
+
+	/**
+	 * Plays games on several threads until the given number is reached or one diverges
+	 *
+	 * @param games the number of games
+	 * @param seed the seed of the first game
+	 * @param threads the number of threads
+	 * @return the totals and the shrunk divergence, if any
+	 */
+	@Nonnull public Report run(long games, long seed, int threads) throws InterruptedException {
+		var next = new AtomicLong();
+		var plies = new AtomicLong();
+		var found = new AtomicReference<Divergence>();
+		var pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("fuzz-%d")
+				.setDaemon(true)
+				.build());
+		long start = System.nanoTime();
+		try {
+			var workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				workers.add(pool.submit(() -> {
+					long i;
+					while (found.get() == null && (i = next.getAndIncrement()) < games) {
+						var outcome = play(seed + i);
+						plies.addAndGet(outcome.moves.size());
+						if (outcome.verdict == Verdict.DIVERGED) {
+							found.compareAndSet(null, new Divergence(seed + i, game(seed + i),
+									ImmutableList.copyOf(outcome.moves), outcome.difference));
+						}
+					}
+				}));
+			}
+			for (var worker : workers) worker.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Fuzzer failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		long nanos = System.nanoTime() - start;
+		long played = Math.min(next.get(), games);
+		return new Report(played, plies.get(), nanos,
+				Optional.ofNullable(found.get()).map(this::shrink));
+	}
+
+	/**
+	 * Plays the random game of a seed
+	 *
+	 * @param seed the seed
+	 * @param shrink whether to shrink a divergence
+	 * @return the divergence in that game, if any
+	 */
+	@Nonnull public Optional<Divergence> play(long seed, boolean shrink) {
+		var outcome = play(seed);
+		if (outcome.verdict != Verdict.DIVERGED) return Optional.empty();
+		var divergence = new Divergence(seed, game(seed), ImmutableList.copyOf(outcome.moves),
+				outcome.difference);
+		return Optional.of(shrink ? shrink(divergence) : divergence);
+	}
+
+	/**
+	 * @param divergence a divergence
+	 * @return a divergence from the same start with as few moves as removing chunks and short
+	 * runs of moves gets to
+	 */
+	@Nonnull public Divergence shrink(@Nonnull Divergence divergence) {
+		List<Move> moves = divergence.moves;
+		String difference = divergence.difference;
+		int chunks = 2;
+		while (moves.size() >= 2) {
+			int size = moves.size();
+			boolean smaller = false;
+			for (int c = 0; c < chunks && !smaller; c++) {
+				int from = size * c / chunks;
+				int to = size * (c + 1) / chunks;
+				var candidate = new ArrayList<Move>(size - (to - from));
+				candidate.addAll(moves.subList(0, from));
+				candidate.addAll(moves.subList(to, size));
+				var outcome = replay(divergence.game, candidate);
+				if (outcome.verdict == Verdict.DIVERGED) {
+					// the divergence may now come before the end of the candidate
+					moves = outcome.moves;
+					difference = outcome.difference;
+					chunks = Math.max(chunks - 1, 2);
+					smaller = true;
+				}
+			}
+			if (!smaller) {
+				if (chunks >= size) break;
+				chunks = Math.min(chunks * 2, size);
+			}
+		}
+		// chunks rarely line up with rounds, so also try every window up to two rounds long
+		int rounds = 2 * (divergence.game.detectives.size() + 1);
+		for (int window = 1; window <= Math.min(rounds, moves.size()); window++) {
+			for (int from = 0; from + window <= moves.size(); ) {
+				var candidate = new ArrayList<Move>(moves.subList(0, from));
+				candidate.addAll(moves.subList(from + window, moves.size()));
+				var outcome = replay(divergence.game, candidate);
+				if (outcome.verdict == Verdict.DIVERGED) {
+					moves = outcome.moves;
+					difference = outcome.difference;
+				} else from++;
+			}
+		}
+		return new Divergence(divergence.seed, divergence.game, ImmutableList.copyOf(moves),
+				difference);
+	}
+
+	/**
+	 * @return whether the moves from the divergence's start still make the engines disagree
+	 */
+	public boolean diverges(@Nonnull Divergence divergence) {
+		return replay(divergence.game, divergence.moves).verdict == Verdict.DIVERGED;
+	}
+
+	private Outcome play(long seed) {
+		return lockstep(game(seed), null, new SplittableRandom(seed));
+	}
+
+	private Outcome replay(Game game, List<Move> moves) {
+		return lockstep(game, moves, null);
+	}
+
+	/**
+	 * Steps all engines through a game, taking moves from the script if there is one and at
+	 * random otherwise
+	 */
+	private Outcome lockstep(Game game, @Nullable List<Move> script,
+	                         @Nullable SplittableRandom random) {
+		var states = new GameState[engines.size()];
+		var answers = new Object[engines.size()];
+		for (int e = 0; e < engines.size(); e++) {
+			try {
+				states[e] = engines.get(e).build(game.setup, game.mrX, game.detectives);
+				answers[e] = Snapshot.of(states[e]);
+			} catch (RuntimeException ex) {
+				answers[e] = threw(ex);
+			}
+		}
+		var moves = new ArrayList<Move>();
+		while (true) {
+			var difference = compare(answers);
+			if (difference != null) return new Outcome(Verdict.DIVERGED, moves, difference);
+			if (states[0] == null) return new Outcome(Verdict.AGREED, moves, "");
+			var available = states[0].getAvailableMoves();
+			if (available.isEmpty() || moves.size() >= MAX_PLIES)
+				return new Outcome(Verdict.AGREED, moves, "");
+			Move move;
+			if (script != null) {
+				if (moves.size() == script.size()) return new Outcome(Verdict.AGREED, moves, "");
+				move = script.get(moves.size());
+				if (!available.contains(move)) return new Outcome(Verdict.ILLEGAL, moves, "");
+			} else {
+				move = available.asList().get(Objects.requireNonNull(random)
+						.nextInt(available.size()));
+			}
+			moves.add(move);
+			for (int e = 0; e < engines.size(); e++) {
+				if (states[e] == null) continue;
+				try {
+					states[e] = states[e].advance(move);
+					answers[e] = Snapshot.of(states[e]);
+				} catch (RuntimeException ex) {
+					states[e] = null;
+					answers[e] = threw(ex);
+				}
+			}
+		}
+	}
+
+	@Nullable private String compare(Object[] answers) {
+		var builder = new StringBuilder();
+		for (int e = 1; e < answers.length; e++) {
+			if (answers[e].equals(answers[0])) continue;
+			builder.append(names.get(e)).append(" differs from ").append(names.get(0))
+					.append(": ");
+			if (answers[e] instanceof Snapshot && answers[0] instanceof Snapshot)
+				builder.append(((Snapshot) answers[e]).describe((Snapshot) answers[0]));
+			else builder.append(answers[e]).append(" instead of ").append(answers[0]);
+			builder.append(System.lineSeparator());
+		}
+		return builder.length() == 0 ? null : builder.toString().trim();
+	}
+
+	private static String threw(RuntimeException e) {
+		return "threw " + e.getClass().getSimpleName();
+	}
+
+	/**
+	 * What is compared at every ply
+	 */
+	private static final class Snapshot {
+		final ImmutableSet<Move> moves;
+		final ImmutableSet<Piece> winner;
+		final ImmutableList<LogEntry> log;
+
+		private Snapshot(ImmutableSet<Move> moves, ImmutableSet<Piece> winner,
+		                 ImmutableList<LogEntry> log) {
+			this.moves = moves;
+			this.winner = winner;
+			this.log = log;
+		}
+
+		static Snapshot of(GameState state) {
+			return new Snapshot(state.getAvailableMoves(), state.getWinner(),
+					state.getMrXTravelLog());
+		}
+
+		String describe(Snapshot expected) {
+			var parts = new ArrayList<String>();
+			if (!moves.equals(expected.moves)) {
+				parts.add("extra moves " + limit(Sets.difference(moves, expected.moves)) +
+						", missing moves " + limit(Sets.difference(expected.moves, moves)));
+			}
+			if (!winner.equals(expected.winner))
+				parts.add("winner " + winner + " instead of " + expected.winner);
+			if (!log.equals(expected.log))
+				parts.add("log " + log + " instead of " + expected.log);
+			return String.join("; ", parts);
+		}
+
+		private static String limit(Sets.SetView<Move> moves) {
+			var some = ImmutableList.copyOf(moves).subList(0, Math.min(moves.size(), 5));
+			return some + (moves.size() > some.size() ? " and " + (moves.size() - 5) + " more" : "");
+		}
+
+		@Override public boolean equals(Object o) {
+			if (!(o instanceof Snapshot)) return false;
+			Snapshot that = (Snapshot) o;
+			return moves.equals(that.moves) && winner.equals(that.winner) && log.equals(that.log);
+		}
+
+		@Override public int hashCode() { return Objects.hash(moves, winner, log); }
+	}
+
+	/**
+	 * @param seed the seed
+	 * @return the starting position of the game with that seed
+	 */
+	@Nonnull Game game(long seed) {
+		var random = new SplittableRandom(seed);
+		if (random.nextInt(4) == 0) return standardGame(random);
+		var locations = new ArrayList<>(stations);
+		Collections.shuffle(locations, new java.util.Random(random.nextLong()));
+		var pieces = new ArrayList<>(Arrays.asList(Detective.values()));
+		Collections.shuffle(pieces, new java.util.Random(random.nextLong()));
+		var detectives = ImmutableList.<Player>builder();
+		int count = 1 + random.nextInt(pieces.size());
+		for (int i = 0; i < count; i++) {
+			detectives.add(new Player(pieces.get(i), tickets(random.nextInt(12),
+					random.nextInt(9), random.nextInt(5), 0, 0), locations.get(i + 1)));
+		}
+		var mrX = new Player(MrX.MRX, tickets(random.nextInt(7), random.nextInt(7),
+				random.nextInt(5), random.nextInt(3), random.nextInt(9)), locations.get(0));
+		var rounds = ImmutableList.<Boolean>builder();
+		int length = 1 + random.nextInt(standard.rounds.size());
+		for (int i = 0; i < length; i++) rounds.add(random.nextInt(4) == 0);
+		return new Game(new GameSetup(standard.graph, rounds.build()), mrX, detectives.build());
+	}
+
+	private Game standardGame(SplittableRandom random) {
+		var locations = ScotlandYard.generateDetectiveLocations(random.nextInt(),
+				ScotlandYard.DETECTIVES.size());
+		int mrX;
+		do {
+			mrX = ScotlandYard.generateMrXLocation(random.nextInt());
+		} while (locations.contains(mrX));
+		var detectives = ImmutableList.<Player>builder();
+		var pieces = ScotlandYard.DETECTIVES.asList();
+		for (int i = 0; i < pieces.size(); i++)
+			detectives.add(new Player(pieces.get(i), ScotlandYard.defaultDetectiveTickets(),
+					locations.get(i)));
+		return new Game(standard,
+				new Player(MrX.MRX, ScotlandYard.defaultMrXTickets(), mrX), detectives.build());
+	}
+
+	private static ImmutableMap<Ticket, Integer> tickets(int taxi, int bus, int underground,
+	                                                     int x2, int secret) {
+		return ImmutableMap.of(
+				Ticket.TAXI, taxi,
+				Ticket.BUS, bus,
+				Ticket.UNDERGROUND, underground,
+				Ticket.DOUBLE, x2,
+				Ticket.SECRET, secret);
+	}
+
+	/**
+	 * Fuzzes the reference model against the factories of {@link ModelFactories}.
+	 * <br>
+	 * Usage: {@code DifferentialFuzzer [--games=<n>] [--seed=<n>] [--threads=<n>]}; the
+	 * reference jar is found as described in {@link ReferenceModel}. Exits with 2 on a divergence.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		long games = 10_000;
+		long seed = System.nanoTime();
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (String arg : args) {
+			if (arg.startsWith("--games=")) games = Long.parseLong(arg.substring(8));
+			else if (arg.startsWith("--seed=")) seed = Long.parseLong(arg.substring(7));
+			else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring(10));
+			else {
+				System.err.println("Usage: DifferentialFuzzer [--games=<n>] [--seed=<n>] " +
+						"[--threads=<n>]");
+				System.exit(1);
+			}
+		}
+		var engines = defaultEngines();
+		var fuzzer = new DifferentialFuzzer(engines, new GameSetup(ScotlandYard.standardGraph(),
+				ScotlandYard.STANDARD24ROUNDS));
+		System.out.printf("Fuzzing %s from seed %d on %d threads%n", engines.keySet(), seed,
+				threads);
+		var report = fuzzer.run(games, seed, threads);
+		System.out.println(report);
+		if (report.divergence.isPresent()) {
+			System.out.println(report.divergence.get());
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+/**
+ * Building the first game state and advancing a state by one move; the same move is advanced
+ * from the same state every time
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+	@State(Scope.Thread)
+	public static class MrXTurn {
+		GameState state;
+		SingleMove single;
+		DoubleMove x2;
+
+		@Setup(Level.Trial) public void state() {
+			state = Position.OPENING.build();
+			single = first(state.getAvailableMoves(), SingleMove.class);
+			x2 = first(state.getAvailableMoves(), DoubleMove.class);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class DetectiveTurn {
+		GameState state;
+		SingleMove move;
+
+		@Setup(Level.Trial) public void state() {
+			var opening = Position.OPENING.build();
+			state = opening.advance(first(opening.getAvailableMoves(), SingleMove.class));
+			move = first(state.getAvailableMoves(), SingleMove.class);
+		}
+	}
+
+	@Benchmark public GameState build() { return Position.OPENING.build(); }
+
+	@Benchmark public GameState advanceMrXSingle(MrXTurn turn) {
+		return turn.state.advance(turn.single);
+	}
+
+	@Benchmark public GameState advanceMrXDouble(MrXTurn turn) {
+		return turn.state.advance(turn.x2);
+	}
+
+	@Benchmark public GameState advanceDetective(DetectiveTurn turn) {
+		return turn.state.advance(turn.move);
+	}
+
+	/**
+	 * @return the first move of the given type in a stable order, so every run advances the
+	 * same move
+	 */
+	static <T extends Move> T first(ImmutableSet<Move> moves, Class<T> type) {
+		return moves.stream()
+				.filter(type::isInstance)
+				.map(type::cast)
+				.min(Comparator.comparing(Move::toString))
+				.orElseThrow(() -> new IllegalStateException("No " + type.getSimpleName()));
+	}
+}
@@ -0,0 +1,336 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Counts the positions reachable from a game state in exactly a given number of moves, to check
+ * a move generator against known totals.
+ * <br>
+ * Every move is one ply, so a round is MrX's move followed by one ply per detective. As in chess
+ * perft, only positions at the full depth are counted; games that end earlier are reported as
+ * {@link Counts#terminals} instead. The moves leading to the counted positions are broken down
+ * into single moves on a normal ticket, single moves on a secret ticket, and double moves.
+ * <br>
+ * The moves at the root are counted in parallel on a {@link ForkJoinPool}. With the cache on,
+ * subtrees are stored by position and remaining depth; detectives may move in any order within a
+ * round, so the same position is reached many times. The board does not list who is left to move
+ * in a round, since a detective that is boxed in for now has no moves yet stays in the round, so
+ * the count follows it move by move from a state with MrX to move.
+ */
+public final class Perft {
+
+	/**
+	 * The totals of one count
+	 */
+	public static final class Counts {
+		static final Counts ONE = new Counts(1, 0, 0, 0, 0);
+		static final Counts NONE = new Counts(0, 0, 0, 0, 0);
+		static final Counts TERMINAL = new Counts(0, 0, 0, 0, 1);
+
+		/**
+		 * Positions at the full depth
+		 */
+		public final long nodes;
+		/**
+		 * Moves on a taxi, bus or underground ticket that lead to a counted position
+		 */
+		public final long singles;
+		/**
+		 * Single moves on a secret ticket that lead to a counted position
+		 */
+		public final long secrets;
+		/**
+		 * Double moves that lead to a counted position
+		 */
+		public final long doubles;
+		/**
+		 * Games that ended before the full depth
+		 */
+		public final long terminals;
+
+		public Counts(long nodes, long singles, long secrets, long doubles, long terminals) {
+			this.nodes = nodes;
+			this.singles = singles;
+			this.secrets = secrets;
+			this.doubles = doubles;
+			this.terminals = terminals;
+		}
+
+		@Nonnull Counts plus(@Nonnull Counts that) {
+			return new Counts(nodes + that.nodes, singles + that.singles, secrets + that.secrets,
+					doubles + that.doubles, terminals + that.terminals);
+		}
+
+		@Override public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Counts)) return false;
+			Counts that = (Counts) o;
+			return nodes == that.nodes && singles == that.singles && secrets == that.secrets &&
+					doubles == that.doubles && terminals == that.terminals;
+		}
+
+		@Override public int hashCode() {
+			return Objects.hash(nodes, singles, secrets, doubles, terminals);
+		}
+
+		@Override public String toString() {
+			return nodes + " " + singles + " " + secrets + " " + doubles + " " + terminals;
+		}
+	}
+
+	private static final int MRX = 1 << ScotlandYard.ALL_PIECES.indexOf(MrX.MRX);
+
+	private final ForkJoinPool pool;
+	private final boolean cached;
+
+	/**
+	 * @param pool the pool the root moves are counted on
+	 * @param cached whether to store the counts of subtrees and reuse them
+	 */
+	public Perft(@Nonnull ForkJoinPool pool, boolean cached) {
+		this.pool = Objects.requireNonNull(pool);
+		this.cached = cached;
+	}
+
+	/**
+	 * Counts the game tree below a state
+	 *
+	 * @param state the state to count from; with the cache on, it must have MrX to move or be over
+	 * @param mrX where MrX is; the board does not say
+	 * @param depth the number of plies
+	 * @return the counts
+	 */
+	@Nonnull public Counts count(@Nonnull GameState state, int mrX, int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth " + depth);
+		int remaining = movers(state);
+		if (cached && remaining != 0 && remaining != MRX)
+			throw new IllegalArgumentException("The cache needs a state with MrX to move");
+		Map<Key, Counts> cache = cached ? new ConcurrentHashMap<>() : null;
+		return pool.invoke(new Root(state, mrX, remaining, depth, cache));
+	}
+
+	private static final class Root extends RecursiveTask<Counts> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient GameState state;
+		private final int mrX;
+		private final int remaining;
+		private final int depth;
+		private final transient Map<Key, Counts> cache;
+
+		Root(GameState state, int mrX, int remaining, int depth, Map<Key, Counts> cache) {
+			this.state = state;
+			this.mrX = mrX;
+			this.remaining = remaining;
+			this.depth = depth;
+			this.cache = cache;
+		}
+
+		@Override protected Counts compute() {
+			if (depth <= 1 || !state.getWinner().isEmpty())
+				return count(state, mrX, remaining, depth, cache);
+			var tasks = new ArrayList<RecursiveTask<Counts>>();
+			for (Move move : state.getAvailableMoves()) {
+				var child = state.advance(move);
+				int location = move.commencedBy().isMrX() ? destination(move) : mrX;
+				int left = remaining(state, remaining, move, child);
+				tasks.add(new RecursiveTask<>() {
+					private static final long serialVersionUID = 1L;
+
+					@Override protected Counts compute() {
+						return count(child, location, left, depth - 1, cache);
+					}
+				});
+			}
+			var total = Counts.NONE;
+			for (var task : invokeAll(tasks)) total = total.plus(task.join());
+			return total;
+		}
+	}
+
+	private static Counts count(GameState state, int mrX, int remaining, int depth,
+	                            Map<Key, Counts> cache) {
+		if (depth == 0) return Counts.ONE;
+		if (!state.getWinner().isEmpty()) return Counts.TERMINAL;
+		if (depth == 1) return leaves(state.getAvailableMoves());
+		Key key = null;
+		if (cache != null) {
+			key = new Key(state, mrX, remaining, depth);
+			var known = cache.get(key);
+			if (known != null) return known;
+		}
+		var total = Counts.NONE;
+		for (Move move : state.getAvailableMoves()) {
+			int location = move.commencedBy().isMrX() ? destination(move) : mrX;
+			var child = state.advance(move);
+			total = total.plus(count(child, location, remaining(state, remaining, move, child),
+					depth - 1, cache));
+		}
+		if (cache != null) cache.put(key, total);
+		return total;
+	}
+
+	/**
+	 * @return the pieces with moves, as bits by their index in {@link ScotlandYard#ALL_PIECES}
+	 */
+	private static int movers(Board board) {
+		int movers = 0;
+		for (Move move : board.getAvailableMoves())
+			movers |= 1 << ScotlandYard.ALL_PIECES.indexOf(move.commencedBy());
+		return movers;
+	}
+
+	/**
+	 * Follows who is left to move in the round the way the model does: every detective after
+	 * MrX, less each detective that moves, and MrX again once none of the detectives left can move
+	 *
+	 * @param remaining who was left to move before the move
+	 * @return who is left to move after it
+	 */
+	private static int remaining(Board before, int remaining, Move move, Board after) {
+		if (!after.getWinner().isEmpty() || (movers(after) & MRX) != 0) return MRX;
+		if (!move.commencedBy().isMrX())
+			return remaining & ~(1 << ScotlandYard.ALL_PIECES.indexOf(move.commencedBy()));
+		int detectives = 0;
+		for (Piece piece : before.getPlayers())
+			if (piece.isDetective()) detectives |= 1 << ScotlandYard.ALL_PIECES.indexOf(piece);
+		return detectives;
+	}
+
+	private static Counts leaves(Iterable<Move> moves) {
+		long singles = 0;
+		long secrets = 0;
+		long doubles = 0;
+		for (Move move : moves) {
+			if (move instanceof DoubleMove) doubles++;
+			else if (((SingleMove) move).ticket == Ticket.SECRET) secrets++;
+			else singles++;
+		}
+		return new Counts(singles + secrets + doubles, singles, secrets, doubles, 0);
+	}
+
+	private static int destination(Move move) {
+		return move instanceof DoubleMove ?
+				((DoubleMove) move).destination2 : ((SingleMove) move).destination;
+	}
+
+	/**
+	 * Everything that decides the moves below a state: where everyone is, their tickets, who is
+	 * left to move this round, the round and the remaining depth
+	 */
+	private static final class Key {
+		private final int[] values;
+		private final int hash;
+
+		Key(Board board, int mrX, int remaining, int depth) {
+			var players = ScotlandYard.ALL_PIECES;
+			var values = new int[3 + players.size() * (1 + Ticket.values().length)];
+			int i = 0;
+			values[i++] = depth;
+			values[i++] = board.getMrXTravelLog().size();
+			values[i++] = remaining;
+			for (Piece piece : players) {
+				var tickets = board.getPlayerTickets(piece);
+				if (tickets.isEmpty()) {
+					i += 1 + Ticket.values().length;
+					continue;
+				}
+				values[i++] = piece == MrX.MRX ?
+						mrX : board.getDetectiveLocation((Piece.Detective) piece).orElseThrow();
+				for (Ticket ticket : Ticket.values()) values[i++] = tickets.get().getCount(ticket);
+			}
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override public boolean equals(Object o) {
+			return o instanceof Key && hash == ((Key) o).hash &&
+					Arrays.equals(values, ((Key) o).values);
+		}
+
+		@Override public int hashCode() { return hash; }
+	}
+
+	/**
+	 * @return the checked in counts, by position name and depth such as {@code OPENING 3}
+	 */
+	@Nonnull static ImmutableMap<String, Counts> known() throws IOException {
+		var known = ImmutableMap.<String, Counts>builder();
+		for (String line : Resources.readLines(Resources.getResource("perft.txt"),
+				StandardCharsets.UTF_8)) {
+			if (line.isBlank() || line.startsWith("#")) continue;
+			String[] fields = line.trim().split("\\s+");
+			known.put(fields[0] + " " + fields[1], new Counts(Long.parseLong(fields[2]),
+					Long.parseLong(fields[3]), Long.parseLong(fields[4]),
+					Long.parseLong(fields[5]), Long.parseLong(fields[6])));
+		}
+		return known.build();
+	}
+
+	/**
+	 * Prints the counts and speed for each depth up to the given one, and whether they match
+	 * the checked in counts.
+	 * <br>
+	 * Usage: {@code Perft <position> <depth> [--cached] [--threads=<n>]}, where the position is
+	 * one of {@link Position}.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: Perft <OPENING|MIDGAME|SECRETS> <depth> [--cached] " +
+					"[--threads=<n>]");
+			System.exit(1);
+		}
+		var position = Position.valueOf(args[0].toUpperCase(Locale.ROOT));
+		int depth = Integer.parseInt(args[1]);
+		boolean cached = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("--cached")) cached = true;
+			else if (args[i].startsWith("--threads=")) threads = Integer.parseInt(args[i].substring(10));
+			else throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+		var known = known();
+		var pool = new ForkJoinPool(threads);
+		var perft = new Perft(pool, cached);
+		System.out.printf("%-6s %14s %14s %12s %12s %10s %12s %12s  %s%n", "depth", "nodes",
+				"singles", "secrets", "doubles", "terminals", "ms", "nodes/s", "known");
+		boolean mismatch = false;
+		for (int d = 1; d <= depth; d++) {
+			long start = System.nanoTime();
+			var counts = perft.count(position.build(), position.mrX().location(), d);
+			long nanos = Math.max(1, System.nanoTime() - start);
+			var expected = known.get(position + " " + d);
+			mismatch |= expected != null && !expected.equals(counts);
+			System.out.printf("%-6d %14d %14d %12d %12d %10d %12d %12.0f  %s%n", d, counts.nodes,
+					counts.singles, counts.secrets, counts.doubles, counts.terminals,
+					nanos / 1_000_000, counts.nodes * 1e9 / nanos,
+					expected == null ? "-" : expected.equals(counts) ? "ok" : "MISMATCH " + expected);
+		}
+		pool.shutdown();
+		if (mismatch) System.exit(2);
+	}
+}
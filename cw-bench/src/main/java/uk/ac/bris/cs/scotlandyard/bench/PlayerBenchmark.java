@@ -0,0 +1,41 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Spending and receiving tickets, which copies the ticket map every time
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlayerBenchmark {
+
+	private final Player mrX = Position.OPENING.mrX();
+	private final Iterable<Ticket> x2 = ImmutableList.of(Ticket.DOUBLE, Ticket.TAXI, Ticket.SECRET);
+
+	@Benchmark public Player use() { return mrX.use(Ticket.TAXI); }
+
+	@Benchmark public Player useDouble() { return mrX.use(x2); }
+
+	@Benchmark public Player give() { return mrX.give(Ticket.BUS); }
+
+	@Benchmark public Player giveDouble() { return mrX.give(x2); }
+}
@@ -0,0 +1,109 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Fixed positions on the standard map with MrX to move, so results stay comparable across
+ * changes to the model
+ */
+public enum Position {
+
+	/**
+	 * The start of a game: full tickets, detectives spread over the map
+	 */
+	OPENING(new Player(MrX.MRX, defaultMrXTickets(), 106),
+			detective(Detective.RED, defaultDetectiveTickets(), 26),
+			detective(Detective.GREEN, defaultDetectiveTickets(), 50),
+			detective(Detective.BLUE, defaultDetectiveTickets(), 94),
+			detective(Detective.WHITE, defaultDetectiveTickets(), 117),
+			detective(Detective.YELLOW, defaultDetectiveTickets(), 155)),
+
+	/**
+	 * Half way through: MrX on an underground hub with detectives closing in and some tickets
+	 * used, one double move left
+	 */
+	MIDGAME(new Player(MrX.MRX, tickets(6, 5, 2, 1, 3), 128),
+			detective(Detective.RED, tickets(6, 5, 3, 0, 0), 142),
+			detective(Detective.GREEN, tickets(5, 6, 3, 0, 0), 160),
+			detective(Detective.BLUE, tickets(7, 4, 2, 0, 0), 116),
+			detective(Detective.WHITE, tickets(4, 7, 4, 0, 0), 89),
+			detective(Detective.YELLOW, tickets(6, 6, 2, 0, 0), 127)),
+
+	/**
+	 * MrX on the busiest station holding many secret tickets and both double moves, which makes
+	 * the double move expansion as large as it gets
+	 */
+	SECRETS(new Player(MrX.MRX, tickets(4, 3, 3, 2, 15), 67),
+			detective(Detective.RED, defaultDetectiveTickets(), 1),
+			detective(Detective.GREEN, defaultDetectiveTickets(), 29),
+			detective(Detective.BLUE, defaultDetectiveTickets(), 174),
+			detective(Detective.WHITE, defaultDetectiveTickets(), 197),
+			detective(Detective.YELLOW, defaultDetectiveTickets(), 155));
+
+	private static final GameSetup SETUP;
+
+	static {
+		try {
+			SETUP = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private final Player mrX;
+	private final ImmutableList<Player> detectives;
+
+	Position(Player mrX, Player... detectives) {
+		this.mrX = mrX;
+		this.detectives = ImmutableList.copyOf(detectives);
+	}
+
+	/**
+	 * @return the standard map with the standard 24 rounds
+	 */
+	@Nonnull public static GameSetup setup() { return SETUP; }
+
+	@Nonnull public Player mrX() { return mrX; }
+
+	@Nonnull public ImmutableList<Player> detectives() { return detectives; }
+
+	/**
+	 * @return a new game state at this position
+	 */
+	@Nonnull public GameState build() {
+		return new MyGameStateFactory<>().build(SETUP, mrX, detectives);
+	}
+
+	private static Player detective(Detective detective, ImmutableMap<Ticket, Integer> tickets,
+	                                int location) {
+		return new Player(detective, tickets, location);
+	}
+
+	private static ImmutableMap<Ticket, Integer> tickets(int taxi, int bus, int underground,
+	                                                     int x2, int secret) {
+		return ImmutableMap.of(
+				Ticket.TAXI, taxi,
+				Ticket.BUS, bus,
+				Ticket.UNDERGROUND, underground,
+				Ticket.DOUBLE, x2,
+				Ticket.SECRET, secret);
+	}
+}
@@ -0,0 +1,48 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed workload that does not touch the model, sorting the same random numbers every time.
+ * {@link RegressionGate} measures it alongside the model so that it can compare throughput as a
+ * multiple of this one, which carries over between machines far better than operations per
+ * second do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReferenceBenchmark {
+
+	private static final int SIZE = 4096;
+
+	private int[] numbers;
+	private int[] sorted;
+
+	@Setup(Level.Trial) public void numbers() {
+		numbers = new Random(42).ints(SIZE).toArray();
+		sorted = new int[SIZE];
+	}
+
+	@Benchmark public int[] sort() {
+		System.arraycopy(numbers, 0, sorted, 0, SIZE);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+}
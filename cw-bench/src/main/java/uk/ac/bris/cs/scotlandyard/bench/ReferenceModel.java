@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Loads the reference model from its jar next to this model.
+ * <br>
+ * The reference is compiled against the same API but names its factory
+ * {@code uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory}, like this model does, so the two
+ * cannot share a class loader. The classes in the jar are loaded by a loader of their own;
+ * everything else, including the API the two have in common, comes from the parent, so states of
+ * both can be compared directly.
+ */
+final class ReferenceModel {
+
+	/**
+	 * System property with the path of the reference jar
+	 */
+	static final String PROPERTY = "scotlandyard.reference";
+
+	/**
+	 * Where the jar is in this repository, relative to a module directory
+	 */
+	static final String DEFAULT_JAR = "../cw-ai/repo/uk/ac/bris/cs/scotlandyard-model-fn-ri/" +
+			"0.0.1-SNAPSHOT/scotlandyard-model-fn-ri-0.0.1-SNAPSHOT.jar";
+
+	private static final String FACTORY = "uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory";
+
+	private ReferenceModel() {}
+
+	/**
+	 * @return the jar named by {@link #PROPERTY}, or the one in this repository
+	 */
+	@Nonnull static Path jar() { return Paths.get(System.getProperty(PROPERTY, DEFAULT_JAR)); }
+
+	/**
+	 * @param jar the reference jar
+	 * @return the reference game state factory
+	 */
+	@SuppressWarnings("unchecked") @Nonnull
+	static Factory<GameState> load(@Nonnull Path jar) throws IOException {
+		if (!Files.isRegularFile(jar))
+			throw new IOException("No reference model at " + jar.toAbsolutePath() +
+					", set -D" + PROPERTY + "=<jar>");
+		var loader = new JarFirstLoader(jar.toUri().toURL(), ReferenceModel.class.getClassLoader());
+		try {
+			return (Factory<GameState>) loader.loadClass(FACTORY).getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IOException("Unable to load the reference model from " + jar, e);
+		}
+	}
+
+	/**
+	 * Loads the classes in its jar itself and leaves the rest to its parent
+	 */
+	private static final class JarFirstLoader extends URLClassLoader {
+
+		static { registerAsParallelCapable(); }
+
+		JarFirstLoader(URL jar, ClassLoader parent) { super(new URL[]{jar}, parent); }
+
+		@Override protected Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			synchronized (getClassLoadingLock(name)) {
+				var loaded = findLoadedClass(name);
+				if (loaded == null) {
+					if (findResource(name.replace('.', '/') + ".class") == null)
+						return super.loadClass(name, resolve);
+					loaded = findClass(name);
+				}
+				if (resolve) resolveClass(loaded);
+				return loaded;
+			}
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.bench.Baseline.Better;
+import uk.ac.bris.cs.scotlandyard.bench.Baseline.Metric;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.runner.Tournament;
+
+/**
+ * Runs a fixed suite and fails if it got slower than the checked in baseline:
+ * <ul>
+ *     <li>the {@link GameStateBenchmark} and {@link AvailableMovesBenchmark} throughput of the
+ *     best iteration, and the bytes they allocate per operation</li>
+ *     <li>{@link Perft} nodes per second on the opening to depth {@value #PERFT_DEPTH}, which
+ *     must also match the known counts</li>
+ *     <li>games per second of a {@link Tournament} between two seeded random Ais</li>
+ * </ul>
+ * Throughput is compared as a multiple of the {@link ReferenceBenchmark} measured in the same
+ * run, so that a baseline recorded on one machine holds on another; only bytes per operation are
+ * kept as absolute numbers.
+ * <br>
+ * Usage: {@code RegressionGate [--baseline=<file>] [--update] [--quick]}. Exits with 1 if any
+ * metric regressed; {@code --update} writes the measured numbers to the baseline instead, keeping
+ * each metric's tolerance. {@code --quick} measures the benchmarks for less time but warms them
+ * up as long, since the JIT decides the numbers after a short warm up.
+ * <br>
+ * Run from Maven with {@code mvn -P regression verify}.
+ */
+public final class RegressionGate {
+
+	static final int PERFT_DEPTH = 4;
+	static final int TOURNAMENT_GAMES = 200;
+
+	private static final String ALLOCATION = "gc.alloc.rate.norm";
+	private static final String REFERENCE = "ReferenceBenchmark.sort:ops_per_s";
+	private static final String REFERENCE_PREFIX = "ReferenceBenchmark.";
+	private static final String PER_SECOND = "_per_s";
+	private static final String RELATIVE = "_per_ref";
+
+	// tolerances of metrics measured for the first time
+	private static final double THROUGHPUT_TOLERANCE = 0.35;
+	private static final double ALLOCATION_TOLERANCE = 0.10;
+
+	private static final ImmutableList<String> HEADER = ImmutableList.of(
+			"# Baseline for RegressionGate; update with mvn -P regression verify " +
+					"-Dregression.args=--update",
+			"# Throughput is a multiple of ReferenceBenchmark in the same run; allocation " +
+					"(bytes per op) is absolute.",
+			"# metric  higher|lower  baseline  tolerance");
+
+	private RegressionGate() {}
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		Path file = Paths.get("baseline.txt");
+		boolean update = false;
+		boolean quick = false;
+		for (String arg : args) {
+			if (arg.isEmpty()) continue;
+			if (arg.startsWith("--baseline=")) file = Paths.get(arg.substring(11));
+			else if (arg.equals("--update")) update = true;
+			else if (arg.equals("--quick")) quick = true;
+			else {
+				System.err.println("Usage: RegressionGate [--baseline=<file>] [--update] [--quick]");
+				System.exit(1);
+			}
+		}
+		var baseline = Files.exists(file) ? Baseline.read(file) : new Baseline(ImmutableList.of());
+
+		Map<String, Double> actual = new LinkedHashMap<>();
+		actual.putAll(benchmarks(quick));
+		actual.putAll(perft());
+		actual.putAll(tournament());
+		System.out.printf("%nReference: %s ops/s%n", Baseline.format(actual.get(REFERENCE)));
+		actual = relative(actual);
+
+		System.out.printf("%n%-60s %14s %14s %8s%n", "metric", "baseline", "measured", "change");
+		for (var entry : actual.entrySet()) {
+			var metric = baseline.metrics().get(entry.getKey());
+			System.out.printf("%-60s %14s %14s %8s%s%n", entry.getKey(),
+					metric == null ? "-" : Baseline.format(metric.baseline),
+					Baseline.format(entry.getValue()),
+					metric == null ? "new" : String.format("%+.1f%%",
+							100 * metric.improvement(entry.getValue())),
+					metric != null && metric.regressed(entry.getValue()) ? "  REGRESSED" : "");
+		}
+
+		if (update) {
+			baseline.update(actual, defaults(actual)).write(file, HEADER);
+			System.out.printf("Baseline written to %s%n", file.toAbsolutePath());
+			return;
+		}
+		var failures = baseline.check(actual);
+		if (failures.isEmpty()) {
+			System.out.printf("No regressions against %s%n", file.toAbsolutePath());
+			return;
+		}
+		System.err.printf("%d regression(s) against %s:%n", failures.size(), file.toAbsolutePath());
+		failures.forEach(f -> System.err.println("  " + f));
+		System.exit(1);
+	}
+
+	/**
+	 * @return operations per second and bytes per operation of each benchmark
+	 */
+	static Map<String, Double> benchmarks(boolean quick) throws RunnerException {
+		var options = new OptionsBuilder()
+				.include(ReferenceBenchmark.class.getName())
+				.include(GameStateBenchmark.class.getName())
+				.include(AvailableMovesBenchmark.class.getName())
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.SECONDS)
+				.addProfiler(GCProfiler.class)
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(quick ? 2 : 5)
+				.measurementTime(TimeValue.seconds(1))
+				.build();
+		var metrics = new LinkedHashMap<String, Double>();
+		for (RunResult result : new Runner(options).run()) {
+			var params = result.getParams();
+			String name = params.getBenchmark().substring(
+					GameStateBenchmark.class.getPackageName().length() + 1);
+			if (!params.getParamsKeys().isEmpty())
+				name += params.getParamsKeys().stream().map(params::getParam)
+						.collect(Collectors.joining(",", "[", "]"));
+			// the best iteration, as a slower one says more about the machine than the code
+			double best = result.getBenchmarkResults().stream()
+					.flatMap(b -> b.getIterationResults().stream())
+					.mapToDouble(i -> i.getPrimaryResult().getScore())
+					.max().orElse(result.getPrimaryResult().getScore());
+			metrics.put(name + ":ops_per_s", best);
+			var allocation = result.getSecondaryResults().get(ALLOCATION);
+			if (allocation != null) metrics.put(name + ":bytes_per_op", allocation.getScore());
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return nodes per second of the best of three single threaded runs
+	 */
+	static Map<String, Double> perft() throws IOException {
+		var position = Position.OPENING;
+		var expected = Perft.known().get(position + " " + PERFT_DEPTH);
+		var pool = new ForkJoinPool(1);
+		try {
+			var perft = new Perft(pool, false);
+			double best = 0;
+			// the first run is warm up
+			for (int run = 0; run < 4; run++) {
+				long start = System.nanoTime();
+				var counts = perft.count(position.build(), position.mrX().location(), PERFT_DEPTH);
+				long nanos = Math.max(1, System.nanoTime() - start);
+				if (!counts.equals(expected))
+					throw new IllegalStateException("Perft " + position + " " + PERFT_DEPTH +
+							" gave " + counts + ", expected " + expected);
+				if (run > 0) best = Math.max(best, counts.nodes * 1e9 / nanos);
+			}
+			return ImmutableMap.of("Perft." + position + "." + PERFT_DEPTH + ":nodes_per_s", best);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return games per second over a fixed set of games on one thread
+	 */
+	static Map<String, Double> tournament() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		try (var tournament = new Tournament(setup, SeededAi::new, SeededAi::new,
+				Duration.ofSeconds(10), 1)) {
+			tournament.run(TOURNAMENT_GAMES / 4, -1_000_000, r -> {});
+			long start = System.nanoTime();
+			tournament.run(TOURNAMENT_GAMES, 0, r -> {});
+			long nanos = Math.max(1, System.nanoTime() - start);
+			return ImmutableMap.of("Tournament.seeded:games_per_s",
+					TOURNAMENT_GAMES * 1e9 / nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param actual the measured values, including the {@link ReferenceBenchmark}
+	 * @return every rate as a multiple of the reference's rate, renamed from {@code _per_s} to
+	 * {@code _per_ref}, and every other value as it is; the reference's own metrics are left out
+	 */
+	static Map<String, Double> relative(Map<String, Double> actual) {
+		Double reference = actual.get(REFERENCE);
+		if (reference == null || reference <= 0)
+			throw new IllegalArgumentException("No reference throughput in " + actual.keySet());
+		var relative = new LinkedHashMap<String, Double>();
+		for (var entry : actual.entrySet()) {
+			String name = entry.getKey();
+			if (name.startsWith(REFERENCE_PREFIX)) continue;
+			if (name.endsWith(PER_SECOND))
+				relative.put(name.substring(0, name.length() - PER_SECOND.length()) + RELATIVE,
+						entry.getValue() / reference);
+			else relative.put(name, entry.getValue());
+		}
+		return relative;
+	}
+
+	private static Map<String, Metric> defaults(Map<String, Double> actual) {
+		var defaults = new LinkedHashMap<String, Metric>();
+		for (String name : actual.keySet()) {
+			boolean allocation = name.endsWith(":bytes_per_op");
+			defaults.put(name, new Metric(name, allocation ? Better.LOWER : Better.HIGHER, 0,
+					allocation ? ALLOCATION_TOLERANCE : THROUGHPUT_TOLERANCE));
+		}
+		return defaults;
+	}
+
+	/**
+	 * Plays random moves from a fixed seed, so every run plays the same games
+	 */
+	private static final class SeededAi implements Ai {
+		private final Random random = new Random(42);
+
+		@Nonnull @Override public String name() { return "seeded"; }
+
+		@Nonnull @Override
+		public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			var moves = board.getAvailableMoves().asList();
+			return moves.get(random.nextInt(moves.size()));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Reports MCTS playouts per second from a fixed opening at 1, 2, 4, 8 and all available threads.
+ * <br>
+ * It sits in the package of {@link MonteCarloTreeSearch} to reach the search directly. Usage,
+ * after {@code mvn package}: {@code java -cp target/benchmarks.jar
+ * uk.ac.bris.cs.scotlandyard.ui.ai.MonteCarloTreeSearchScaling [seconds per run]}
+ */
+public final class MonteCarloTreeSearchScaling {
+
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) throws IOException {
+		long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var graph = new GameGraph(setup.graph);
+		var mrX = new Player(MrX.MRX, defaultMrXTickets(), 106);
+		var detectives = ImmutableList.of(
+				new Player(Detective.RED, defaultDetectiveTickets(), 26),
+				new Player(Detective.GREEN, defaultDetectiveTickets(), 50),
+				new Player(Detective.BLUE, defaultDetectiveTickets(), 94),
+				new Player(Detective.WHITE, defaultDetectiveTickets(), 117),
+				new Player(Detective.YELLOW, defaultDetectiveTickets(), 155));
+		var state = SearchState.initial(graph, setup, mrX, detectives);
+		var buffer = new int[graph.maxMoves()];
+		var legal = Arrays.copyOf(buffer, state.generateMoves(buffer, true));
+
+		var threads = new TreeSet<Integer>();
+		for (int n = 1; n <= 8; n *= 2) threads.add(n);
+		threads.add(Runtime.getRuntime().availableProcessors());
+		double single = 0;
+		for (int n : threads) {
+			try (var search = new MonteCarloTreeSearch(graph, 42, n)) {
+				// warm up
+				search.search(state, legal, new AtomicBoolean(), System.nanoTime() +
+						TimeUnit.SECONDS.toNanos(1));
+				long best = 0;
+				for (int run = 0; run < RUNS; run++) {
+					search.reset();
+					long before = search.playouts();
+					search.search(state, legal, new AtomicBoolean(),
+							System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+					best = Math.max(best, (search.playouts() - before) / seconds);
+				}
+				if (n == 1) single = best;
+				System.out.printf("threads=%-3d playouts/s=%-10d speedup=%.2f%n",
+						n, best, best / single);
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import uk.ac.bris.cs.scotlandyard.bench.Baseline.Better;
+import uk.ac.bris.cs.scotlandyard.bench.Baseline.Metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests that {@link Baseline} reads, checks and rewrites its metrics
+ */
+public class BaselineTest {
+
+	private static final Baseline BASELINE = Baseline.parse(ImmutableList.of(
+			"# a comment",
+			"",
+			"a:ops_per_s    higher  1000  0.20",
+			"a:bytes_per_op lower    100  0.10",
+			"b:bytes_per_op lower      0  0.50"));
+
+	@Test public void testPassesWithinTolerance() {
+		assertThat(BASELINE.check(ImmutableMap.of(
+				"a:ops_per_s", 800.0, "a:bytes_per_op", 110.0, "b:bytes_per_op", 1.5))).isEmpty();
+	}
+
+	@Test public void testFailsBeyondToleranceOrWhenNotMeasured() {
+		var failures = BASELINE.check(ImmutableMap.of(
+				"a:ops_per_s", 799.0, "a:bytes_per_op", 111.0));
+		assertThat(failures).hasSize(3);
+		assertThat(failures.get(0)).startsWith("a:ops_per_s is 799, worse than the limit 800");
+		assertThat(failures.get(1)).startsWith("a:bytes_per_op is 111, worse than the limit 110");
+		assertThat(failures.get(2)).isEqualTo("b:bytes_per_op was not measured");
+	}
+
+	@Test public void testRejectsBadLines() {
+		assertThatThrownBy(() -> Baseline.parse(ImmutableList.of("a higher 1")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageStartingWith("Line 1: expected 4 fields");
+		assertThatThrownBy(() -> Baseline.parse(ImmutableList.of("a sideways 1 0.1")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testUpdateKeepsTolerancesAndRoundTrips() throws IOException {
+		var updated = BASELINE.update(
+				ImmutableMap.of("a:ops_per_s", 1200.0, "c:ops_per_s", 50.0),
+				ImmutableMap.of("c:ops_per_s", new Metric("c:ops_per_s", Better.HIGHER, 0, 0.35)));
+		assertThat(updated.metrics().keySet()).containsExactly("a:ops_per_s", "c:ops_per_s");
+		assertThat(updated.metrics().get("a:ops_per_s").tolerance).isEqualTo(0.20);
+		assertThat(updated.metrics().get("a:ops_per_s").baseline).isEqualTo(1200.0);
+
+		var file = Files.createTempFile("baseline", ".txt");
+		try {
+			updated.write(file, ImmutableList.of("# header"));
+			var read = Baseline.read(file);
+			assertThat(read.metrics().get("c:ops_per_s").better).isEqualTo(Better.HIGHER);
+			assertThat(read.metrics().get("c:ops_per_s").baseline).isEqualTo(50.0);
+			assertThat(read.metrics().get("c:ops_per_s").tolerance).isEqualTo(0.35);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test public void testFormatKeepsFourSignificantDigitsOfSmallValues() {
+		assertThat(Baseline.format(12306.4)).isEqualTo("12306");
+		assertThat(Baseline.format(83.594)).isEqualTo("83.59");
+		assertThat(Baseline.format(0.0041826)).isEqualTo("0.004183");
+		assertThat(Baseline.format(0)).isEqualTo("0");
+	}
+}
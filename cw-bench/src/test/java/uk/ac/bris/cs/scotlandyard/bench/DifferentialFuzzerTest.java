@@ -0,0 +1,120 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that the model agrees with the reference on random games and that {@link
+ * DifferentialFuzzer} finds and shrinks a planted divergence
+ */
+public class DifferentialFuzzerTest {
+
+	private static GameSetup standard;
+	private static Factory<GameState> reference;
+
+	@BeforeClass public static void setUp() throws IOException {
+		standard = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		reference = ReferenceModel.load(ReferenceModel.jar());
+	}
+
+	@Test public void testModelAgreesWithReference() throws Exception {
+		var report = new DifferentialFuzzer(DifferentialFuzzer.defaultEngines(), standard)
+				.run(300, 0, 4);
+		assertThat(report.divergence).isEmpty();
+		assertThat(report.games).isEqualTo(300);
+		assertThat(report.plies).isPositive();
+	}
+
+	@Test public void testDivergenceIsFoundAndShrunk() throws InterruptedException {
+		var fuzzer = broken();
+		var report = fuzzer.run(200, 0, 2);
+		assertThat(report.divergence).isPresent();
+		var divergence = report.divergence.get();
+		assertThat(fuzzer.diverges(divergence)).isTrue();
+		// MrX's first move and one move per detective is all it takes
+		assertThat(divergence.moves.size())
+				.isLessThanOrEqualTo(divergence.game.detectives.size() + 1);
+		assertThat(divergence.difference).contains("missing moves [x2(");
+	}
+
+	@Test public void testGamesDependOnTheSeedAlone() {
+		var fuzzer = broken();
+		long seed = firstDivergingSeed(fuzzer);
+		assertThat(fuzzer.play(seed, false).map(d -> d.moves))
+				.isEqualTo(fuzzer.play(seed, false).map(d -> d.moves));
+		assertThat(fuzzer.game(seed).toString()).isEqualTo(fuzzer.game(seed).toString());
+	}
+
+	private static long firstDivergingSeed(DifferentialFuzzer fuzzer) {
+		long seed = 0;
+		while (fuzzer.play(seed, false).isEmpty()) seed++;
+		return seed;
+	}
+
+	private static DifferentialFuzzer broken() {
+		Factory<GameState> model = new MyGameStateFactory<>();
+		return new DifferentialFuzzer(ImmutableMap.of(
+				"reference", reference,
+				"broken", (setup, mrX, detectives) ->
+						new NoLateDoubles(model.build(setup, mrX, detectives))), standard);
+	}
+
+	/**
+	 * Forgets MrX's double moves after his first move
+	 */
+	private static final class NoLateDoubles implements GameState {
+		private final GameState state;
+
+		NoLateDoubles(GameState state) { this.state = state; }
+
+		@Nonnull @Override public GameSetup getSetup() { return state.getSetup(); }
+
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return state.getPlayers(); }
+
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			return state.getDetectiveLocation(detective);
+		}
+
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			return state.getPlayerTickets(piece);
+		}
+
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+			return state.getMrXTravelLog();
+		}
+
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() { return state.getWinner(); }
+
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			if (state.getMrXTravelLog().isEmpty()) return state.getAvailableMoves();
+			return state.getAvailableMoves().stream()
+					.filter(m -> !(m instanceof Move.DoubleMove))
+					.collect(ImmutableSet.toImmutableSet());
+		}
+
+		@Override public GameState advance(Move move) {
+			return new NoLateDoubles(state.advance(move));
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests that the model still produces the checked in {@link Perft} counts, with and without the
+ * cache and on any number of threads
+ */
+public class PerftTest {
+
+	/**
+	 * Deeper counts take seconds each; run {@link Perft#main(String[])} for those
+	 */
+	private static final int MAX_DEPTH = 3;
+
+	private static ForkJoinPool pool;
+	private static Map<String, Perft.Counts> known;
+
+	@BeforeClass public static void setUp() throws IOException {
+		pool = new ForkJoinPool(4);
+		known = Perft.known();
+	}
+
+	@AfterClass public static void tearDown() { pool.shutdown(); }
+
+	@Test public void testEveryPositionHasKnownCounts() {
+		for (Position position : Position.values())
+			for (int depth = 1; depth <= MAX_DEPTH; depth++)
+				assertThat(known).containsKey(position + " " + depth);
+	}
+
+	@Test public void testDepthZeroIsTheRoot() {
+		var counts = new Perft(pool, false).count(Position.OPENING.build(), 106, 0);
+		assertThat(counts.nodes).isEqualTo(1);
+	}
+
+	@Test public void testKnownCounts() {
+		check(new Perft(pool, false));
+	}
+
+	@Test public void testKnownCountsCached() {
+		check(new Perft(pool, true));
+	}
+
+	@Test public void testKnownCountsOnOneThread() {
+		var single = new ForkJoinPool(1);
+		try {
+			check(new Perft(single, true));
+		} finally {
+			single.shutdown();
+		}
+	}
+
+	@Test public void testBreakdownAddsUp() {
+		known.values().forEach(counts -> assertThat(counts.nodes)
+				.isEqualTo(counts.singles + counts.secrets + counts.doubles));
+	}
+
+	@Test public void testCacheTellsApartWhoIsLeftToMove() {
+		// the detectives box each other in here, so the same stations and tickets are reached
+		// with different detectives left to move
+		var state = boxedIn();
+		var plain = new Perft(pool, false).count(state, 8, 12);
+		assertThat(plain.nodes).isEqualTo(2879);
+		assertThat(new Perft(pool, true).count(state, 8, 12)).isEqualTo(plain);
+	}
+
+	@Test public void testCacheNeedsMrXToMove() {
+		var state = boxedIn();
+		var afterMrX = state.advance(state.getAvailableMoves().iterator().next());
+		assertThat(new Perft(pool, false).count(afterMrX, 8, 1).nodes).isPositive();
+		assertThatThrownBy(() -> new Perft(pool, true).count(afterMrX, 8, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * A small taxi only game in which the detectives box each other in
+	 */
+	private static GameState boxedIn() {
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph =
+				ValueGraphBuilder.undirected().build();
+		int[][] edges = {{1, 3}, {1, 4}, {1, 7}, {1, 8}, {2, 7}, {3, 5}, {4, 5}, {4, 6}, {7, 8}};
+		for (int[] edge : edges)
+			graph.putEdgeValue(edge[0], edge[1], ImmutableSet.of(Transport.TAXI));
+		var setup = new GameSetup(ImmutableValueGraph.copyOf(graph),
+				ImmutableList.of(false, false, true, false, false, false, false, false));
+		var tickets = ImmutableMap.of(Ticket.TAXI, 8, Ticket.BUS, 0, Ticket.UNDERGROUND, 0,
+				Ticket.DOUBLE, 0, Ticket.SECRET, 0);
+		return new MyGameStateFactory<>().build(setup, new Player(MrX.MRX, tickets, 8),
+				ImmutableList.of(new Player(Detective.RED, tickets, 4),
+						new Player(Detective.GREEN, tickets, 6),
+						new Player(Detective.BLUE, tickets, 5)));
+	}
+
+	private static void check(Perft perft) {
+		for (Position position : Position.values()) {
+			for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+				var counts = perft.count(position.build(), position.mrX().location(), depth);
+				assertThat(counts)
+						.as("%s at depth %d", position, depth)
+						.isEqualTo(known.get(position + " " + depth));
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Tests that {@link RegressionGate} compares rates as multiples of the reference and keeps
+ * allocation absolute
+ */
+public class RegressionGateTest {
+
+	@Test public void testRatesBecomeMultiplesOfTheReference() {
+		var relative = RegressionGate.relative(ImmutableMap.of(
+				"ReferenceBenchmark.sort:ops_per_s", 2000.0,
+				"ReferenceBenchmark.sort:bytes_per_op", 0.05,
+				"GameStateBenchmark.build:ops_per_s", 50000.0,
+				"GameStateBenchmark.build:bytes_per_op", 39968.0,
+				"Tournament.seeded:games_per_s", 80.0));
+		assertThat(relative).containsExactly(
+				entry("GameStateBenchmark.build:ops_per_ref", 25.0),
+				entry("GameStateBenchmark.build:bytes_per_op", 39968.0),
+				entry("Tournament.seeded:games_per_ref", 0.04));
+	}
+
+	@Test public void testRequiresTheReference() {
+		assertThatThrownBy(() -> RegressionGate.relative(ImmutableMap.of(
+				"GameStateBenchmark.build:ops_per_s", 50000.0)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -20,6 +20,26 @@ public interface Ai {
 	 */
 	default void onStart() {}
 
+	/**
+	 * Called before the game starts with the time allowed for each move; the time manager
+	 * allocates soft and hard deadlines for every {@link #pickMove(Board, AtomicBoolean)} so that
+	 * the Ai can stop on its own before the terminate flag is set.
+	 * Defaults to {@link #onStart()}
+	 *
+	 * @param time the time manager for this game
+	 */
+	default void onStart(@Nonnull TimeManager time) { onStart(); }
+
+	/**
+	 * Called before the game starts like {@link #onStart(TimeManager)}, with a seed for any
+	 * randomness the Ai uses, so that a game can be played again the same way.
+	 * Defaults to {@link #onStart(TimeManager)}
+	 *
+	 * @param time the time manager for this game
+	 * @param seed the seed of this game
+	 */
+	default void onStart(@Nonnull TimeManager time, long seed) { onStart(time); }
+
 	/**
 	 * @param board the game board
 	 * @param terminate a flag that signals whether this method should be terminated. This only
@@ -30,6 +50,19 @@ public interface Ai {
 	 */
 	@Nonnull Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate);
 
+	/**
+	 * Called on a background thread after the move picked by this Ai has been played, while the
+	 * other side is thinking. An Ai may use this time to search ahead and reuse the result in the
+	 * next {@link #pickMove(Board, AtomicBoolean)}, or discard it if the game went elsewhere.
+	 * {@link #pickMove(Board, AtomicBoolean)} is not called before this method has returned.
+	 * Defaults to no-op
+	 *
+	 * @param board the game board after this Ai's move, with the other side to move
+	 * @param stop a flag that is set when this Ai is about to move again or the game ends; this
+	 * method should return promptly once it is set
+	 */
+	default void ponder(@Nonnull Board board, @Nonnull AtomicBoolean stop) {}
+
 
 	/**
 	 * Called after the game has ended and that this Ai is about to be terminated
@@ -0,0 +1,317 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Model.MoveObserver;
+import uk.ac.bris.cs.scotlandyard.model.Model.Observer;
+import uk.ac.bris.cs.scotlandyard.model.Model.Observer.Event;
+
+/**
+ * Delivers a model's events to each observer on a thread of its own, so a slow observer does not
+ * hold up {@link Model#chooseMove(Move)}.
+ * <br>
+ * Every observer gets a bounded queue and a single thread executor; it sees its events in the
+ * order they happened. What happens when a queue is full is up to the {@link Backpressure}.
+ * An exception thrown by an observer goes to its thread's uncaught exception handler and does not
+ * stop later events.
+ * <br>
+ * Pass one to {@link MyModelFactory#build(GameSetup, Player,
+ * com.google.common.collect.ImmutableList, AsyncDispatcher)};
+ * a dispatcher serves a single model. {@link #close()} it once the game is over.
+ */
+public final class AsyncDispatcher implements AutoCloseable {
+
+	/**
+	 * What to do with an event for an observer whose queue is full.
+	 * Only {@link Event#MOVE_MADE} is ever dropped, and never for a {@link MoveObserver}, which
+	 * needs every move; when there is nothing that may be dropped, the game waits as with
+	 * {@link #BLOCK}.
+	 */
+	public enum Backpressure {
+		/**
+		 * Wait for the observer to catch up; no event is lost
+		 */
+		BLOCK,
+		/**
+		 * Drop the oldest waiting {@link Event#MOVE_MADE} to make room
+		 */
+		DROP_OLDEST,
+		/**
+		 * Drop every waiting {@link Event#MOVE_MADE}, as the new board supersedes them; the
+		 * observer skips to the latest board
+		 */
+		COALESCE
+	}
+
+	/**
+	 * A snapshot of one observer's queue
+	 */
+	public static final class QueueStats {
+		/**
+		 * Events waiting now
+		 */
+		public final int depth;
+		/**
+		 * The most events ever waiting at once
+		 */
+		public final int maxDepth;
+		public final long delivered;
+		/**
+		 * Events dropped by {@link Backpressure#DROP_OLDEST} or {@link Backpressure#COALESCE}
+		 */
+		public final long dropped;
+		/**
+		 * Times the game waited for the observer
+		 */
+		public final long blocked;
+
+		QueueStats(int depth, int maxDepth, long delivered, long dropped, long blocked) {
+			this.depth = depth;
+			this.maxDepth = maxDepth;
+			this.delivered = delivered;
+			this.dropped = dropped;
+			this.blocked = blocked;
+		}
+
+		@Override public String toString() {
+			return "QueueStats{depth=" + depth + ", maxDepth=" + maxDepth +
+					", delivered=" + delivered + ", dropped=" + dropped + ", blocked=" + blocked + "}";
+		}
+	}
+
+	private static final AtomicInteger DISPATCHERS = new AtomicInteger();
+
+	private final int capacity;
+	private final Backpressure backpressure;
+	private final String name = "observer-" + DISPATCHERS.incrementAndGet();
+	private final AtomicInteger threads = new AtomicInteger();
+	private final ConcurrentHashMap<Observer, Channel> channels = new ConcurrentHashMap<>();
+	private volatile boolean closed;
+
+	/**
+	 * @param capacity the most events that may wait for one observer
+	 * @param backpressure what to do when an observer's queue is full
+	 */
+	public AsyncDispatcher(int capacity, @Nonnull Backpressure backpressure) {
+		if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive, got " +
+				capacity);
+		this.capacity = capacity;
+		this.backpressure = Objects.requireNonNull(backpressure);
+	}
+
+	/**
+	 * Notifies the observer on the calling thread, the way a synchronous model does
+	 *
+	 * @param move the move made, or null if the change did not come from a move
+	 * @param history every move made to reach the board after a {@link Event#HISTORY_CHANGED},
+	 * otherwise null
+	 */
+	static void notify(@Nonnull Observer observer, @Nonnull Board board, @Nullable Move move,
+	                   @Nullable List<Move> history, @Nonnull Event event) {
+		if (observer instanceof MoveObserver) {
+			if (move != null) ((MoveObserver) observer).onMoveMade(board, move);
+			if (history != null) ((MoveObserver) observer).onHistoryChanged(board, history);
+		}
+		observer.onModelChanged(board, event);
+	}
+
+	void attach(@Nonnull Observer observer) {
+		if (closed) throw new IllegalStateException("Dispatcher is closed");
+		channels.computeIfAbsent(observer, Channel::new);
+	}
+
+	/**
+	 * Stops delivering to the observer once the events already waiting for it are delivered
+	 */
+	void detach(@Nonnull Observer observer) {
+		var channel = channels.remove(observer);
+		if (channel != null) channel.executor.shutdown();
+	}
+
+	/**
+	 * Queues the event for the observer; nothing happens if it is no longer attached, as the
+	 * model notifies a snapshot of its observers
+	 */
+	void dispatch(@Nonnull Observer observer, @Nonnull Board board, @Nullable Move move,
+	              @Nullable List<Move> history, @Nonnull Event event) {
+		if (closed) throw new IllegalStateException("Dispatcher is closed");
+		var channel = channels.get(observer);
+		if (channel != null) channel.offer(new Delivery(board, move, history, event));
+	}
+
+	/**
+	 * @return a snapshot of every observer's queue
+	 */
+	@Nonnull public ImmutableMap<Observer, QueueStats> stats() {
+		var builder = ImmutableMap.<Observer, QueueStats>builder();
+		channels.forEach((observer, channel) -> builder.put(observer, channel.stats()));
+		return builder.build();
+	}
+
+	/**
+	 * Waits until every event dispatched so far has been delivered
+	 *
+	 * @return false if the timeout passed first
+	 */
+	public boolean awaitIdle(@Nonnull Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		for (Channel channel : channels.values())
+			if (!channel.awaitIdle(deadline)) return false;
+		return true;
+	}
+
+	/**
+	 * Stops accepting events; the ones already waiting are still delivered
+	 */
+	@Override public void close() {
+		closed = true;
+		channels.values().forEach(c -> c.executor.shutdown());
+		channels.clear();
+	}
+
+	private static final class Delivery {
+		final Board board;
+		final Move move;
+		final List<Move> history;
+		final Event event;
+
+		Delivery(Board board, Move move, List<Move> history, Event event) {
+			this.board = board;
+			this.move = move;
+			this.history = history;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * One observer's queue; the executor runs at most one drain at a time, which keeps the order
+	 */
+	private final class Channel {
+		private final Observer observer;
+		private final ExecutorService executor;
+		private final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+		// guarded by this
+		private boolean draining;
+		private int maxDepth;
+		private long delivered;
+		private long dropped;
+		private long blocked;
+		private volatile Thread worker;
+
+		Channel(Observer observer) {
+			this.observer = observer;
+			this.executor = Executors.newSingleThreadExecutor(r -> {
+				var thread = new Thread(r, name + "-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		void offer(Delivery delivery) {
+			synchronized (this) {
+				// an observer that makes the next move from its own thread must not wait on itself
+				boolean mayBlock = Thread.currentThread() != worker;
+				boolean waited = false;
+				while (queue.size() >= capacity) {
+					if (shed()) continue;
+					if (!mayBlock || executor.isShutdown()) break;
+					if (!waited) blocked++;
+					waited = true;
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				queue.addLast(delivery);
+				maxDepth = Math.max(maxDepth, queue.size());
+				if (draining) return;
+				draining = true;
+			}
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				// detached meanwhile
+				synchronized (this) {
+					queue.clear();
+					draining = false;
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Drops what the backpressure allows from the full queue; called holding this
+		 *
+		 * @return false if nothing may be dropped
+		 */
+		private boolean shed() {
+			if (backpressure == Backpressure.BLOCK || observer instanceof MoveObserver) return false;
+			int before = queue.size();
+			if (backpressure == Backpressure.DROP_OLDEST) {
+				var it = queue.iterator();
+				while (it.hasNext()) {
+					if (it.next().event == Event.MOVE_MADE) {
+						it.remove();
+						break;
+					}
+				}
+			} else queue.removeIf(d -> d.event == Event.MOVE_MADE);
+			dropped += before - queue.size();
+			return queue.size() < before;
+		}
+
+		private void drain() {
+			worker = Thread.currentThread();
+			while (true) {
+				Delivery next;
+				synchronized (this) {
+					next = queue.pollFirst();
+					if (next == null) {
+						draining = false;
+						notifyAll();
+						return;
+					}
+					notifyAll();
+				}
+				try {
+					AsyncDispatcher.notify(observer, next.board, next.move, next.history,
+							next.event);
+				} catch (RuntimeException | Error e) {
+					var thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+				synchronized (this) {
+					delivered++;
+				}
+			}
+		}
+
+		synchronized boolean awaitIdle(long deadline) throws InterruptedException {
+			while (draining) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) return false;
+				wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+			}
+			return true;
+		}
+
+		synchronized QueueStats stats() {
+			return new QueueStats(queue.size(), maxDepth, delivered, dropped, blocked);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * A model that keeps every move made so that the game can be taken back and replayed.
+ * Going back or forward notifies observers with {@link Observer.Event#HISTORY_CHANGED};
+ * choosing a move after going back drops the moves that could have been redone.
+ */
+public interface HistoryModel extends Model {
+	/**
+	 * @return the number of moves made to reach the current board, 0 at the start of the game
+	 */
+	int getPly();
+	/**
+	 * @return the ply of the last move that can be redone, or {@link #getPly()} if none can
+	 */
+	int getLastPly();
+	/**
+	 * Goes back one move.
+	 *
+	 * @throws IllegalStateException if no move has been made
+	 */
+	void undo();
+	/**
+	 * Makes the last undone move again.
+	 *
+	 * @throws IllegalStateException if there is nothing to redo
+	 */
+	void redo();
+	/**
+	 * Goes back or forward to the board after the given number of moves.
+	 *
+	 * @param ply from 0 to {@link #getLastPly()}
+	 */
+	void jumpToPly(int ply);
+}
@@ -2,6 +2,8 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableSet;
 
+import java.util.List;
+
 import javax.annotation.Nonnull;
 
 /**
@@ -16,9 +18,14 @@ public interface Model {
 	 */
 	interface Observer {
 		/**
-		 * Game events
+		 * Game events; {@code HISTORY_CHANGED} means the board was replaced by an earlier or
+		 * later one of the same game through {@link HistoryModel#undo()},
+		 * {@link HistoryModel#redo()} or {@link HistoryModel#jumpToPly(int)}, so observers should
+		 * redraw from the board rather than apply a move. Only a {@link HistoryModel} sends it; an
+		 * observer that handles events one by one should not assume it only ever sees the other
+		 * two.
 		 */
-		enum Event {MOVE_MADE, GAME_OVER}
+		enum Event {MOVE_MADE, GAME_OVER, HISTORY_CHANGED}
 		/**
 		 * Called once game state changes
 		 *
@@ -27,6 +34,29 @@ public interface Model {
 		 */
 		default void onModelChanged(@Nonnull Board board, @Nonnull Event event) {}
 	}
+	/**
+	 * An observer that also needs the move itself, which the board does not always show (MrX's
+	 * hidden destinations for example).
+	 */
+	interface MoveObserver extends Observer {
+		/**
+		 * Called once a move has been made, before
+		 * {@link #onModelChanged(Board, Observer.Event)} for the same move
+		 *
+		 * @param board the board after the move
+		 * @param move the move that was made
+		 */
+		void onMoveMade(@Nonnull Board board, @Nonnull Move move);
+		/**
+		 * Called once the model has gone back or forward in its history, before
+		 * {@link #onModelChanged(Board, Observer.Event)} with
+		 * {@link Observer.Event#HISTORY_CHANGED}
+		 *
+		 * @param board the board now current
+		 * @param moves every move made from the start of the game to reach the board
+		 */
+		default void onHistoryChanged(@Nonnull Board board, @Nonnull List<Move> moves) {}
+	}
 	/**
 	 * @return the current game board
 	 */
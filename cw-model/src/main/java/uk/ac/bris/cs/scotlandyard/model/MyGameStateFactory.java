@@ -31,16 +31,21 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 	}
 
 
-	private final class MyGameState implements GameState {
-
-		private GameSetup setup;    //access to game graph and round.
-		private ImmutableSet<Piece> remaining;    //keeps track of pieces yet to move in current round.
-		private ImmutableList<LogEntry> log; //holds the travel log and counts rounds.
-		private Player mrX;
-		private List<Player> detectives;
-		private ImmutableList<Player> everyone; //keeps track of which players are in the game.
-		private ImmutableSet<Move> moves; //currently possible/available moves.
-		private ImmutableSet<Piece> winner; //holds current winner(s).
+	/**
+	 * Immutable: every field is final and deeply immutable, so a state can be shared between
+	 * threads without synchronisation and advanced from any number of them at once.
+	 */
+	@Immutable
+	private static final class MyGameState implements GameState {
+
+		private final GameSetup setup;    //access to game graph and round.
+		private final ImmutableSet<Piece> remaining;    //keeps track of pieces yet to move in current round.
+		private final ImmutableList<LogEntry> log; //holds the travel log and counts rounds.
+		private final Player mrX;
+		private final ImmutableList<Player> detectives;
+		private final ImmutableList<Player> everyone; //keeps track of which players are in the game.
+		private final ImmutableSet<Move> moves; //currently possible/available moves.
+		private final ImmutableSet<Piece> winner; //holds current winner(s).
 
 		private MyGameState(final GameSetup setup,
 							final ImmutableSet<Piece> remaining,
@@ -77,7 +82,7 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 			this.remaining = remaining;
 			this.log = log;
 			this.mrX = mrX;
-			this.detectives = detectives;
+			this.detectives = ImmutableList.copyOf(detectives);
 			this.everyone = ImmutableList.<Player>builder()
 					.add(mrX)
 					.addAll(detectives)
@@ -89,11 +94,11 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 			for (Piece piece : remaining) {
 				Player player = pieceToPlayer(piece);
 				single.addAll(makeSingleMoves(setup, detectives, player, player.location()));
-				if (player.isMrX() && player.has(Ticket.DOUBLE) && (setup.rounds.size() > 1)) {
+				if (player.isMrX() && player.has(Ticket.DOUBLE) && setup.rounds.size() - log.size() > 1) {
 					doubles.addAll(makeDoubleMoves(setup, detectives, player, player.location()));
 				}
 			}
-			this.moves = ImmutableSet.<Move>builder()
+			final ImmutableSet<Move> moves = ImmutableSet.<Move>builder()
 					.addAll(single)
 					.addAll(doubles)
 					.build();
@@ -126,21 +131,19 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 			// determine whether there is a winner
 			if (stuck) {
 				this.winner = ImmutableSet.of(mrX.piece());
-				this.moves = ImmutableSet.<Move>builder().build();
+			}
+			// like the reference model, a full log wins for MrX even if he is caught or cornered
+			else if ((setup.rounds.size() == log.size()) && remaining.contains(mrX.piece())) {
+				this.winner = ImmutableSet.of(mrX.piece());
 			}
 			else if (remaining.contains(mrX.piece()) && !movesContain(mrX.piece(), moves)) {
 				this.winner = ImmutableSet.copyOf(detectivesToPieces());
-				this.moves = ImmutableSet.<Move>builder().build();
 			}
 			else if (locationMatch) {
 				this.winner = ImmutableSet.copyOf(detectivesToPieces());
-				this.moves = ImmutableSet.<Move>builder().build();
-			}
-			else if ((setup.rounds.size() == log.size()) && remaining.contains(mrX.piece())) {
-				this.winner = ImmutableSet.of(mrX.piece());
-				this.moves = ImmutableSet.<Move>builder().build();
 			}
 			else this.winner = ImmutableSet.<Piece>builder().build();
+			this.moves = winner.isEmpty() ? moves : ImmutableSet.of();
 		}
 
 		/**
@@ -242,19 +245,26 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 		}
 
 		/**
+		 * A detective that cannot move stays in the round, since another detective may still
+		 * make room for it; the round ends once none of those left can move.
+		 *
 		 *@param piece the piece to be removed from remaining
+		 *@param newDetectives the detectives after the move
 		 *@return a new remaining set of pieces
 		 **/
-		private ImmutableSet<Piece> updateRemaining(Piece piece) {
+		private ImmutableSet<Piece> updateRemaining(Piece piece, List<Player> newDetectives) {
 			Set<Piece> set = new HashSet<>(remaining);
 			set.remove(piece);
-			if (set.isEmpty()) {
-				if (piece.isMrX()) {
-					set = detectivesToPieces();
-					set.removeIf(detective -> makeSingleMoves(setup, detectives, pieceToPlayer(detective), pieceToPlayer(detective).location()).isEmpty());
+			if (piece.isMrX()) set = detectivesToPieces();
+			boolean anyCanMove = false;
+			for (Player detective : newDetectives) {
+				if (set.contains(detective.piece())
+						&& !makeSingleMoves(setup, newDetectives, detective, detective.location()).isEmpty()) {
+					anyCanMove = true;
+					break;
 				}
-				else set.add(mrX.piece());
 			}
+			if (!anyCanMove) set = Set.of(mrX.piece());
 			return ImmutableSet.copyOf(set);
 		}
 
@@ -280,30 +290,32 @@ public final class MyGameStateFactory<E> implements Factory<GameState> {
 				Player newPlayer = player.at(move1.destination).use(move1.ticket);
 				List<Player> newDetectives = new ArrayList<>(detectives);
 				ImmutableList<LogEntry> newLog = log;
+				// this state is left as it is, so its other moves can still be advanced
+				Player newMrX = mrX;
 				if (player.isDetective()) {
-					mrX = mrX.give(move1.ticket);
+					newMrX = mrX.give(move1.ticket);
 					newDetectives.remove(player);
 					newDetectives.add(newPlayer);
 				}
 				if (player.isMrX()) {
-					mrX = newPlayer;
+					newMrX = newPlayer;
 					newLog = updateLog(move1.ticket, move1.destination, log);
 				}
-				ImmutableSet<Piece> newRemaining = updateRemaining(move1.commencedBy());
-				return new MyGameState(setup, newRemaining, newLog, mrX, newDetectives);
+				ImmutableSet<Piece> newRemaining = updateRemaining(move1.commencedBy(), newDetectives);
+				return new MyGameState(setup, newRemaining, newLog, newMrX, newDetectives);
 			};
 
 			Function<DoubleMove, GameState> dmf = move12 -> {
 				Player player = pieceToPlayer(move12.commencedBy());
 				if (player.isDetective()) throw new IllegalArgumentException("detectives do not have access to this move.");
-				mrX = player.at(move12.destination2).use(move12.tickets());
+				Player newMrX = player.at(move12.destination2).use(move12.tickets());
 				ImmutableList<LogEntry> newLog;
 				ImmutableList<LogEntry> newerLog;
 				newLog = updateLog(move12.ticket1, move12.destination1, log);
 				newerLog = updateLog(move12.ticket2, move12.destination2, newLog);
-				ImmutableSet<Piece> newRemaining = updateRemaining(move12.commencedBy());
+				ImmutableSet<Piece> newRemaining = updateRemaining(move12.commencedBy(), detectives);
 
-				return new MyGameState(setup, newRemaining, newerLog, mrX, detectives);
+				return new MyGameState(setup, newRemaining, newerLog, newMrX, detectives);
 			};
 
 			return move.visit(new FunctionalVisitor<>(smf, dmf));
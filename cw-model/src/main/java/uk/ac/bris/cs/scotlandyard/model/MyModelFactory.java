@@ -3,15 +3,15 @@ package uk.ac.bris.cs.scotlandyard.model;
 import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableSet;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
 import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
 /**
  * cw-model
@@ -19,14 +19,39 @@ import java.util.Set;
  */
 public final class MyModelFactory implements Factory<Model> {
 
-	@Nonnull @Override public Model build(GameSetup setup,
-	                                      Player mrX,
-	                                      ImmutableList<Player> detectives) {
-		return new Model() {
+	/**
+	 * Plies between the states kept in a model's history; the moves in between are replayed
+	 */
+	static final int CHECKPOINT = 32;
+
+	@Nonnull @Override public HistoryModel build(GameSetup setup,
+	                                             Player mrX,
+	                                             ImmutableList<Player> detectives) {
+		return build(setup, mrX, detectives, null);
+	}
+
+	/**
+	 * Builds a model that notifies its observers through the given dispatcher instead of on the
+	 * thread that called {@link Model#chooseMove(Move)}
+	 *
+	 * @param dispatcher the dispatcher, used by this model only; null to notify synchronously
+	 */
+	@Nonnull public HistoryModel build(GameSetup setup,
+	                                   Player mrX,
+	                                   ImmutableList<Player> detectives,
+	                                   @Nullable AsyncDispatcher dispatcher) {
+		return new HistoryModel() {
 
 			private MyGameStateFactory factory = new MyGameStateFactory<GameState>();
-			private GameState modelState = factory.build(setup, mrX, detectives);
-			private ImmutableSet<Observer> observers = ImmutableSet.of();
+			private volatile GameState modelState = factory.build(setup, mrX, detectives);
+			// copy on write: changes are serialised on the lock, readers take the set as it is
+			private final Object lock = new Object();
+			private volatile ImmutableSet<Observer> observers = ImmutableSet.of();
+			// the history: every move, including undone ones that can be redone, and the state
+			// every CHECKPOINT plies; guarded by moves
+			private final List<Move> moves = new ArrayList<>();
+			private final List<GameState> checkpoints = new ArrayList<>(List.of(modelState));
+			private int ply;
 
 			@Nonnull
 			@Override
@@ -37,33 +62,118 @@ public final class MyModelFactory implements Factory<Model> {
 			@Override
 			public void registerObserver(@Nonnull Observer observer) {
 				if (observer == null) throw new NullPointerException();
-				if (observers.contains(observer)) throw new IllegalArgumentException();
-				Set<Observer> set = new HashSet<>(this.observers);
-				set.add(observer);
-				this.observers = ImmutableSet.copyOf(set);
+				synchronized (lock) {
+					if (observers.contains(observer)) throw new IllegalArgumentException();
+					if (dispatcher != null) dispatcher.attach(observer);
+					observers = ImmutableSet.<Observer>builderWithExpectedSize(observers.size() + 1)
+							.addAll(observers).add(observer).build();
+				}
 			}
 
 			@Override
 			public void unregisterObserver(@Nonnull Observer observer) {
 				if (observer == null) throw new NullPointerException();
-				if (!observers.contains(observer)) throw new IllegalArgumentException();
-				Set<Observer> set = new HashSet<>(this.observers);
-				set.remove(observer);
-				this.observers = ImmutableSet.copyOf(set);
+				synchronized (lock) {
+					if (!observers.contains(observer)) throw new IllegalArgumentException();
+					observers = observers.stream().filter(o -> !o.equals(observer))
+							.collect(ImmutableSet.toImmutableSet());
+					if (dispatcher != null) dispatcher.detach(observer);
+				}
 			}
 
 			@Nonnull
 			@Override
 			public ImmutableSet<Observer> getObservers() {
-				return ImmutableSet.copyOf(observers);
+				return observers;
 			}
 
 			@Override
 			public void chooseMove(@Nonnull Move move) {
-				modelState = modelState.advance(move);
-				Board state = this.getCurrentBoard();
-				var event = state.getWinner().isEmpty() ? Observer.Event.MOVE_MADE : Observer.Event.GAME_OVER;
-				for (Observer o : observers) o.onModelChanged(state, event);
+				GameState next;
+				synchronized (moves) {
+					next = modelState.advance(move);
+					moves.subList(ply, moves.size()).clear();
+					checkpoints.subList(ply / CHECKPOINT + 1, checkpoints.size()).clear();
+					moves.add(move);
+					ply++;
+					if (ply % CHECKPOINT == 0) checkpoints.add(next);
+					modelState = next;
+				}
+				var event = next.getWinner().isEmpty() ? Observer.Event.MOVE_MADE : Observer.Event.GAME_OVER;
+				publish(next, move, null, event);
+			}
+
+			@Override
+			public int getPly() {
+				synchronized (moves) {
+					return ply;
+				}
+			}
+
+			@Override
+			public int getLastPly() {
+				synchronized (moves) {
+					return moves.size();
+				}
+			}
+
+			@Override
+			public void undo() {
+				travel(current -> {
+					if (current == 0) throw new IllegalStateException("No move to undo");
+					return current - 1;
+				});
+			}
+
+			@Override
+			public void redo() {
+				travel(current -> {
+					if (current == moves.size()) throw new IllegalStateException("No move to redo");
+					return current + 1;
+				});
+			}
+
+			@Override
+			public void jumpToPly(int target) {
+				travel(current -> {
+					if (target < 0 || target > moves.size())
+						throw new IllegalArgumentException("Ply " + target + " not in [0, " + moves.size() + "]");
+					return target;
+				});
+			}
+
+			/**
+			 * Goes to the ply chosen from the current one under the lock, then notifies with the lock
+			 * released so that observers may read or move the model while a dispatcher makes the
+			 * notification wait
+			 */
+			private void travel(IntUnaryOperator choose) {
+				GameState state;
+				ImmutableList<Move> history;
+				synchronized (moves) {
+					int target = choose.applyAsInt(ply);
+					if (target == ply) return;
+					// replay from the current state if it is on the way, else from a checkpoint
+					int at = target / CHECKPOINT * CHECKPOINT;
+					state = checkpoints.get(target / CHECKPOINT);
+					if (ply >= at && ply < target) {
+						at = ply;
+						state = modelState;
+					}
+					while (at < target) state = state.advance(moves.get(at++));
+					ply = target;
+					modelState = state;
+					history = ImmutableList.copyOf(moves.subList(0, ply));
+				}
+				publish(state, null, history, Observer.Event.HISTORY_CHANGED);
+			}
+
+			private void publish(Board state, Move move, List<Move> history, Observer.Event event) {
+				// a snapshot, observers may come and go while it is notified
+				for (Observer o : observers) {
+					if (dispatcher == null) AsyncDispatcher.notify(o, state, move, history, event);
+					else dispatcher.dispatch(o, state, move, history, event);
+				}
 			}
 		};
 	}
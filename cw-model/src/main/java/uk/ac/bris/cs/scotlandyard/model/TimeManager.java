@@ -0,0 +1,121 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.Iterables;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Splits the time allowed for each move into a soft and a hard deadline.
+ * <br>
+ * The hard deadline is the move timeout less a safety margin, so an Ai that stops by then returns
+ * before the game sets its terminate flag. The soft deadline is the point after which an Ai
+ * should not start new work: it comes immediately for forced moves and is latest for the moves
+ * that decide most, MrX's moves into and out of a reveal round and the detectives' moves right
+ * after MrX was seen.
+ */
+public final class TimeManager {
+
+	/**
+	 * The smallest safety margin kept before the move timeout
+	 */
+	public static final Duration MIN_MARGIN = Duration.ofMillis(250);
+
+	static final double CRITICAL = 0.9;
+	static final double FOLLOW_UP = 0.7;
+	static final double ROUTINE = 0.4;
+
+	private final Duration timeout;
+	private final long margin;
+
+	/**
+	 * @param timeout the time allowed for each move, usually the configured
+	 * {@code ModelProperty.timeoutProperty()}
+	 */
+	public TimeManager(@Nonnull Duration timeout) {
+		this.timeout = Objects.requireNonNull(timeout);
+		if (timeout.isNegative() || timeout.isZero())
+			throw new IllegalArgumentException("Timeout must be positive, got " + timeout);
+		this.margin = Math.max(MIN_MARGIN.toNanos(), timeout.toNanos() / 10);
+	}
+
+	/**
+	 * @return the time allowed for each move
+	 */
+	@Nonnull public Duration timeout() { return timeout; }
+
+	/**
+	 * The deadlines of one move, both in {@link System#nanoTime()}
+	 */
+	public static final class Budget {
+		/**
+		 * After this, finish the current piece of work and return the best move found so far
+		 */
+		public final long soft;
+		/**
+		 * After this, return immediately
+		 */
+		public final long hard;
+
+		Budget(long soft, long hard) {
+			this.soft = soft;
+			this.hard = hard;
+		}
+
+		/**
+		 * @param duration the time from now until both deadlines
+		 * @return a budget that ignores the game, for Ais playing without a time manager
+		 */
+		@Nonnull public static Budget fixed(@Nonnull Duration duration) {
+			long deadline = System.nanoTime() + duration.toNanos();
+			return new Budget(deadline, deadline);
+		}
+
+		public boolean softExpired() { return System.nanoTime() - soft >= 0; }
+
+		public boolean hardExpired() { return System.nanoTime() - hard >= 0; }
+
+		@Override public String toString() {
+			long now = System.nanoTime();
+			return "Budget{soft=" + Duration.ofNanos(soft - now) +
+					", hard=" + Duration.ofNanos(hard - now) + "}";
+		}
+	}
+
+	/**
+	 * Allocates the deadlines for the move about to be made; call this as soon as the Ai is asked
+	 * for a move as the timeout started when the board was handed out
+	 *
+	 * @param board the game board
+	 * @return the deadlines for this move
+	 */
+	@Nonnull public Budget allocate(@Nonnull Board board) {
+		long start = System.nanoTime();
+		long hard = start + Math.max(0, timeout.toNanos() - margin);
+		long soft = start + (long) ((hard - start) * share(board));
+		return new Budget(soft, hard);
+	}
+
+	/**
+	 * @return the fraction of the time up to the hard deadline worth spending on this move
+	 */
+	static double share(@Nonnull Board board) {
+		var moves = board.getAvailableMoves();
+		if (moves.size() <= 1) return 0;
+		var rounds = board.getSetup().rounds;
+		var log = board.getMrXTravelLog();
+		boolean revealed = !log.isEmpty() && Iterables.getLast(log).location().isPresent();
+		boolean mrX = moves.stream().anyMatch(move -> move.commencedBy().isMrX());
+		if (mrX) {
+			// MrX's next move is round log.size(); a double move also covers the one after it
+			int round = log.size();
+			boolean revealing = rounds.get(round) ||
+					(round + 1 < rounds.size() && rounds.get(round + 1));
+			if (revealing) return CRITICAL;
+			return revealed ? FOLLOW_UP : ROUTINE;
+		}
+		return revealed ? CRITICAL : ROUTINE;
+	}
+}
@@ -0,0 +1,126 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.EndpointPair;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * One stored game: where it started, every move in the order it was made and who won.
+ * <br>
+ * The graph is not stored, only its {@link #fingerprint(GameSetup) fingerprint}, so a record can
+ * only be replayed on the setup it was played on.
+ */
+public final class GameRecord {
+	/**
+	 * The seed the game was generated from
+	 */
+	public final long seed;
+	/**
+	 * The {@link #fingerprint(GameSetup) fingerprint} of the setup
+	 */
+	public final long fingerprint;
+	/**
+	 * MrX reveal rounds of the setup
+	 */
+	public final ImmutableList<Boolean> rounds;
+	public final Player mrX;
+	public final ImmutableList<Player> detectives;
+	/**
+	 * The moves in the order they were made
+	 */
+	public final ImmutableList<Move> moves;
+	/**
+	 * The winner; empty if the game was not finished. A game that ended before the model's game
+	 * was over, such as a forfeit in a tournament, has the winner it was given.
+	 */
+	public final ImmutableSet<Piece> winner;
+
+	public GameRecord(long seed,
+	                  long fingerprint,
+	                  @Nonnull ImmutableList<Boolean> rounds,
+	                  @Nonnull Player mrX,
+	                  @Nonnull ImmutableList<Player> detectives,
+	                  @Nonnull ImmutableList<Move> moves,
+	                  @Nonnull ImmutableSet<Piece> winner) {
+		this.seed = seed;
+		this.fingerprint = fingerprint;
+		this.rounds = Objects.requireNonNull(rounds);
+		this.mrX = Objects.requireNonNull(mrX);
+		this.detectives = Objects.requireNonNull(detectives);
+		this.moves = Objects.requireNonNull(moves);
+		this.winner = Objects.requireNonNull(winner);
+		if (!mrX.isMrX()) throw new IllegalArgumentException("Not MrX: " + mrX);
+		if (detectives.stream().anyMatch(Player::isMrX))
+			throw new IllegalArgumentException("MrX among the detectives: " + detectives);
+	}
+
+	/**
+	 * @return true if this game was played on the given setup
+	 */
+	public boolean playedOn(@Nonnull GameSetup setup) {
+		return rounds.equals(setup.rounds) && fingerprint == fingerprint(setup);
+	}
+
+	/**
+	 * A hash of the graph and the reveal rounds; two setups with the same stations, connections
+	 * and rounds have the same fingerprint however their graphs were built
+	 *
+	 * @param setup the setup
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(@Nonnull GameSetup setup) {
+		var graph = setup.graph;
+		var edges = new ArrayList<long[]>(graph.edges().size());
+		for (EndpointPair<Integer> edge : graph.edges()) {
+			int u = edge.nodeU();
+			int v = edge.nodeV();
+			long transports = 0;
+			var value = graph.edgeValueOrDefault(u, v, ImmutableSet.of());
+			for (Transport t : Objects.requireNonNull(value)) transports |= 1L << t.ordinal();
+			edges.add(new long[]{Math.min(u, v), Math.max(u, v), transports});
+		}
+		edges.sort((l, r) -> l[0] != r[0] ? Long.compare(l[0], r[0]) : Long.compare(l[1], r[1]));
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		graph.nodes().stream().sorted().forEach(hasher::putInt);
+		for (long[] edge : edges) hasher.putLong(edge[0]).putLong(edge[1]).putLong(edge[2]);
+		hasher.putInt(setup.rounds.size());
+		for (boolean reveal : setup.rounds) hasher.putBoolean(reveal);
+		return hasher.hash().asLong();
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		GameRecord that = (GameRecord) o;
+		return seed == that.seed &&
+				fingerprint == that.fingerprint &&
+				rounds.equals(that.rounds) &&
+				mrX.equals(that.mrX) &&
+				detectives.equals(that.detectives) &&
+				moves.equals(that.moves) &&
+				winner.equals(that.winner);
+	}
+
+	@Override public int hashCode() {
+		return Objects.hash(seed, fingerprint, rounds, mrX, detectives, moves, winner);
+	}
+
+	@Override public String toString() {
+		return "GameRecord{seed=" + seed + ", fingerprint=" + Long.toHexString(fingerprint) +
+				", mrX=" + mrX + ", detectives=" + detectives + ", moves=" + moves.size() +
+				", winner=" + winner + "}";
+	}
+}
@@ -0,0 +1,242 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Reads the games in a record file one at a time, in the order they were written, so a file of
+ * any size is read in constant memory.
+ * <br>
+ * A record that is cut short or fails its checksum stops the iteration with an
+ * {@link UncheckedIOException}; the records before it have been returned already.
+ */
+public final class GameRecordReader implements Iterator<GameRecord>, Closeable {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final InputStream in;
+	private final CRC32 crc = new CRC32();
+	private byte[] body = new byte[512];
+	private int position;
+	private int limit;
+	private long offset;
+	private GameRecord next;
+
+	/**
+	 * @param in the records; closed with this reader
+	 */
+	public GameRecordReader(@Nonnull InputStream in) {
+		this.in = new BufferedInputStream(Objects.requireNonNull(in), 1 << 16);
+	}
+
+	/**
+	 * @param file the record file
+	 * @return a reader of the file
+	 */
+	@Nonnull public static GameRecordReader open(@Nonnull Path file) throws IOException {
+		return new GameRecordReader(Files.newInputStream(file));
+	}
+
+	/**
+	 * @param file the record file
+	 * @return the records in the file; close the stream to close the file
+	 */
+	@Nonnull public static Stream<GameRecord> stream(@Nonnull Path file) throws IOException {
+		var reader = open(file);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+				Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Override public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = read();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override public GameRecord next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		var record = next;
+		next = null;
+		return record;
+	}
+
+	@Override public void close() throws IOException { in.close(); }
+
+	private GameRecord read() throws IOException {
+		long start = offset;
+		int first = in.read();
+		if (first < 0) return null;
+		offset++;
+		int length = 0;
+		try {
+			if (first != RecordFormat.MAGIC[0]) throw corrupt(start, "bad magic");
+			for (int i = 1; i < RecordFormat.MAGIC.length; i++)
+				if (readByte() != RecordFormat.MAGIC[i]) throw corrupt(start, "bad magic");
+			for (int shift = 0; ; shift += 7) {
+				int b = readByte();
+				length |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) break;
+				if (shift > 21) throw corrupt(start, "bad length");
+			}
+			if (length > RecordFormat.MAX_BODY) throw corrupt(start, "bad length " + length);
+			if (body.length < length) body = Arrays.copyOf(body, Math.max(length, body.length * 2));
+			if (in.readNBytes(body, 0, length) != length) throw new EOFException();
+			offset += length;
+			long checksum = 0;
+			for (int i = 0; i < 4; i++) checksum = checksum << 8 | readByte();
+			crc.reset();
+			crc.update(body, 0, length);
+			if (crc.getValue() != checksum) throw corrupt(start, "checksum mismatch");
+		} catch (EOFException e) {
+			throw corrupt(start, "truncated", e);
+		}
+		position = 0;
+		limit = length;
+		try {
+			return decode();
+		} catch (EOFException e) {
+			throw corrupt(start, "body ends early", e);
+		} catch (IOException | IllegalArgumentException e) {
+			throw corrupt(start, e.getMessage(), e);
+		}
+	}
+
+	private GameRecord decode() throws IOException {
+		long zigzag = varlong();
+		long seed = (zigzag >>> 1) ^ -(zigzag & 1);
+		long fingerprint = 0;
+		for (int i = 0; i < 8; i++) fingerprint = fingerprint << 8 | get();
+		var rounds = ImmutableList.<Boolean>builder();
+		int roundCount = varint();
+		for (int i = 0; i < roundCount; i += 8) {
+			int bits = get();
+			for (int j = i; j < Math.min(i + 8, roundCount); j++)
+				rounds.add((bits & 1 << (j - i)) != 0);
+		}
+		int playerCount = varint();
+		if (playerCount < 1 || playerCount > ScotlandYard.ALL_PIECES.size())
+			throw new IOException("bad player count " + playerCount);
+		var players = new Player[playerCount];
+		// indexed like ALL_PIECES, for the sources of moves
+		var locations = new int[ScotlandYard.ALL_PIECES.size()];
+		for (int i = 0; i < playerCount; i++) {
+			var piece = piece(get());
+			int location = varint();
+			var tickets = ImmutableMap.<Ticket, Integer>builder();
+			for (Ticket ticket : TICKETS) tickets.put(ticket, varint());
+			players[i] = new Player(piece, tickets.build(), location);
+			locations[RecordFormat.piece(piece)] = location;
+		}
+		var moves = ImmutableList.<Move>builder();
+		int header;
+		while ((header = get()) != RecordFormat.END) {
+			int index = header & 7;
+			var piece = piece(index);
+			var ticket = ticket(header >>> 3 & 7);
+			int source = locations[index];
+			if ((header & RecordFormat.DOUBLE) == 0) {
+				int destination = varint();
+				moves.add(new Move.SingleMove(piece, source, ticket, destination));
+				locations[index] = destination;
+			} else {
+				int first = varint();
+				int destination2 = varint();
+				moves.add(new Move.DoubleMove(piece, source,
+						ticket, first >>> 3, ticket(first & 7), destination2));
+				locations[index] = destination2;
+			}
+		}
+		int mask = varint();
+		var winner = ImmutableSet.<Piece>builder();
+		for (int i = 0; i < ScotlandYard.ALL_PIECES.size(); i++)
+			if ((mask & 1 << i) != 0) winner.add(ScotlandYard.ALL_PIECES.get(i));
+		if (position != limit) throw new IOException((limit - position) + " trailing bytes");
+		return new GameRecord(seed, fingerprint, rounds.build(), players[0],
+				ImmutableList.copyOf(players).subList(1, playerCount), moves.build(),
+				winner.build());
+	}
+
+	private static Piece piece(int index) throws IOException {
+		if (index >= ScotlandYard.ALL_PIECES.size()) throw new IOException("bad piece " + index);
+		return ScotlandYard.ALL_PIECES.get(index);
+	}
+
+	private static Ticket ticket(int index) throws IOException {
+		if (index >= TICKETS.length) throw new IOException("bad ticket " + index);
+		return TICKETS[index];
+	}
+
+	private int get() throws EOFException {
+		if (position == limit) throw new EOFException();
+		return body[position++] & 0xFF;
+	}
+
+	private int varint() throws IOException {
+		long value = varlong();
+		if (value > Integer.MAX_VALUE) throw new IOException("bad varint " + value);
+		return (int) value;
+	}
+
+	private long varlong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("bad varint");
+	}
+
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b < 0) throw new EOFException();
+		offset++;
+		return b;
+	}
+
+	private static IOException corrupt(long offset, String reason) {
+		return new IOException("Corrupt record at byte " + offset + ": " + reason);
+	}
+
+	private static IOException corrupt(long offset, String reason, Exception cause) {
+		return new IOException("Corrupt record at byte " + offset + ": " + reason, cause);
+	}
+}
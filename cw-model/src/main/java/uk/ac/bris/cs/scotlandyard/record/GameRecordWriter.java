@@ -0,0 +1,184 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+
+/**
+ * Writes games to a record file as they are played, for {@link GameRecordReader} to read back.
+ * <br>
+ * Register a {@link #record recorder} on the model of each game. The recorder encodes moves as
+ * they are made and writes the whole game when it ends, so games played at the same time on
+ * different threads can share one writer and never interleave. A game takes a few hundred bytes.
+ */
+public final class GameRecordWriter implements Closeable, Flushable {
+
+	private final OutputStream out;
+	private volatile Fingerprint last;
+	private long records;
+
+	/**
+	 * @param out where the records go; closed with this writer
+	 */
+	public GameRecordWriter(@Nonnull OutputStream out) {
+		this.out = new BufferedOutputStream(Objects.requireNonNull(out), 1 << 16);
+	}
+
+	/**
+	 * @param file the record file, created if it does not exist
+	 * @return a writer appending to the file
+	 */
+	@Nonnull public static GameRecordWriter append(@Nonnull Path file) throws IOException {
+		return new GameRecordWriter(Files.newOutputStream(file,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Starts recording a game; the arguments are the ones its model was built with
+	 *
+	 * @param seed the seed the game was generated from
+	 * @return the recorder to register on the model
+	 */
+	@Nonnull public Recorder record(long seed,
+	                                @Nonnull GameSetup setup,
+	                                @Nonnull Player mrX,
+	                                @Nonnull ImmutableList<Player> detectives) {
+		return new Recorder(seed, fingerprint(setup), setup.rounds, mrX, detectives);
+	}
+
+	/**
+	 * Writes a whole game at once
+	 */
+	public void write(@Nonnull GameRecord record) throws IOException {
+		var format = new RecordFormat();
+		format.start(record.seed, record.fingerprint, record.rounds, record.mrX,
+				record.detectives);
+		for (Move move : record.moves) format.move(move);
+		format.end(record.winner);
+		write(format);
+	}
+
+	/**
+	 * @return the number of records written
+	 */
+	public synchronized long records() { return records; }
+
+	@Override public synchronized void flush() throws IOException { out.flush(); }
+
+	@Override public synchronized void close() throws IOException { out.close(); }
+
+	private synchronized void write(RecordFormat format) throws IOException {
+		format.writeTo(out);
+		records++;
+	}
+
+	private long fingerprint(GameSetup setup) {
+		var last = this.last;
+		if (last == null || last.setup != setup) {
+			last = new Fingerprint(setup);
+			this.last = last;
+		}
+		return last.value;
+	}
+
+	private static final class Fingerprint {
+		final GameSetup setup;
+		final long value;
+
+		Fingerprint(GameSetup setup) {
+			this.setup = setup;
+			this.value = GameRecord.fingerprint(setup);
+		}
+	}
+
+	/**
+	 * Records one game. The game is written when the model reports {@code GAME_OVER}, or when
+	 * {@link #end} is called for a game that ended outside the model, whichever comes first.
+	 * <br>
+	 * The recorder needs the moves themselves, which only models that support
+	 * {@link Model.MoveObserver} pass on. Moves undone before the game ends are not recorded.
+	 */
+	public final class Recorder implements Model.MoveObserver {
+		private final RecordFormat format = new RecordFormat();
+		// the moves encoded so far, and the size of the record before each of them
+		private final List<Move> moves = new ArrayList<>();
+		private final List<Integer> sizes = new ArrayList<>();
+		private boolean ended;
+
+		private Recorder(long seed, long fingerprint, ImmutableList<Boolean> rounds, Player mrX,
+		                 ImmutableList<Player> detectives) {
+			format.start(seed, fingerprint, rounds, mrX, detectives);
+		}
+
+		@Override public synchronized void onMoveMade(@Nonnull Board board, @Nonnull Move move) {
+			if (ended) return;
+			moves.add(move);
+			sizes.add(format.size());
+			format.move(move);
+		}
+
+		/**
+		 * Re-encodes the moves from the first one that differs
+		 */
+		@Override public synchronized void onHistoryChanged(@Nonnull Board board,
+		                                                    @Nonnull List<Move> history) {
+			if (ended) return;
+			int same = 0;
+			while (same < moves.size() && same < history.size() &&
+					moves.get(same).equals(history.get(same))) same++;
+			if (same < moves.size()) {
+				format.truncate(sizes.get(same));
+				moves.subList(same, moves.size()).clear();
+				sizes.subList(same, sizes.size()).clear();
+			}
+			for (Move move : history.subList(same, history.size())) onMoveMade(board, move);
+		}
+
+		@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+			if (event == Event.GAME_OVER) end(board.getWinner());
+		}
+
+		/**
+		 * Ends the game and writes it; does nothing if it has already ended
+		 *
+		 * @param winner the winner, or empty if the game was abandoned
+		 * @throws UncheckedIOException if the record could not be written
+		 */
+		public synchronized void end(@Nonnull Set<Piece> winner) {
+			if (ended) return;
+			ended = true;
+			format.end(winner);
+			try {
+				write(format);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * @return whether the game has been written
+		 */
+		public synchronized boolean ended() { return ended; }
+	}
+}
@@ -0,0 +1,146 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Random access to every board of a recorded game.
+ * <br>
+ * Ply {@code n} is the board after the first {@code n} moves, so ply 0 is the start and
+ * {@link #plies()} the end. The game is played through once up front and the state at every
+ * {@code interval}th ply is kept; any other ply is at most {@code interval - 1} advances from one
+ * of those. The plies between two checkpoints are built together and kept until another block is
+ * needed, so stepping through the game in either direction costs one advance per ply.
+ * <br>
+ * Replays can be shared between threads.
+ */
+public final class GameReplay {
+
+	/**
+	 * The checkpoint interval used unless another is given
+	 */
+	public static final int DEFAULT_INTERVAL = 8;
+
+	private final GameRecord record;
+	private final int interval;
+	private final ImmutableList<GameState> checkpoints;
+	private volatile Block block;
+
+	/**
+	 * Replays the game on {@link MyGameStateFactory} with the default interval
+	 *
+	 * @param record the game
+	 * @param setup the setup the game was played on
+	 */
+	public GameReplay(@Nonnull GameRecord record, @Nonnull GameSetup setup) {
+		this(record, setup, new MyGameStateFactory<>(), DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * @param record the game
+	 * @param setup the setup the game was played on
+	 * @param factory the model to replay the game on
+	 * @param interval the number of plies between checkpoints
+	 * @throws IllegalArgumentException if the game was not played on the setup, one of its
+	 * moves is not allowed by the model, or the model's game is over with another winner
+	 */
+	public GameReplay(@Nonnull GameRecord record,
+	                  @Nonnull GameSetup setup,
+	                  @Nonnull Factory<GameState> factory,
+	                  int interval) {
+		this.record = Objects.requireNonNull(record);
+		if (interval < 1) throw new IllegalArgumentException("interval < 1");
+		if (!record.playedOn(setup))
+			throw new IllegalArgumentException("Game was not played on this setup");
+		this.interval = interval;
+		var checkpoints = ImmutableList.<GameState>builder();
+		var state = factory.build(setup, record.mrX, record.detectives);
+		for (int ply = 0; ply < record.moves.size(); ply++) {
+			if (ply % interval == 0) checkpoints.add(state);
+			state = state.advance(record.moves.get(ply));
+		}
+		if (record.moves.size() % interval == 0) checkpoints.add(state);
+		// a game that ended early, by a forfeit for example, has a winner the model cannot know of
+		if (!record.winner.isEmpty() && !state.getWinner().isEmpty() &&
+				!state.getWinner().equals(record.winner))
+			throw new IllegalArgumentException("Game was won by " + record.winner +
+					" but the model says " + state.getWinner());
+		this.checkpoints = checkpoints.build();
+	}
+
+	/**
+	 * @return the replayed game
+	 */
+	@Nonnull public GameRecord record() { return record; }
+
+	/**
+	 * @return the number of moves, which is also the last ply
+	 */
+	public int plies() { return record.moves.size(); }
+
+	/**
+	 * @param ply from 0 to {@link #plies()}
+	 * @return the board after the given number of moves
+	 */
+	@Nonnull public GameState at(int ply) {
+		checkPly(ply);
+		int index = ply / interval;
+		var block = this.block;
+		if (block == null || block.index != index) {
+			block = new Block(index);
+			this.block = block;
+		}
+		return block.states[ply - index * interval];
+	}
+
+	/**
+	 * @param from the first ply
+	 * @return the boards from the given ply to the end
+	 */
+	@Nonnull public Stream<Board> forward(int from) {
+		checkPly(from);
+		return IntStream.rangeClosed(from, plies()).mapToObj(this::at);
+	}
+
+	/**
+	 * @param from the first ply
+	 * @return the boards from the given ply back to the start
+	 */
+	@Nonnull public Stream<Board> backward(int from) {
+		checkPly(from);
+		return IntStream.rangeClosed(0, from).map(i -> from - i).mapToObj(this::at);
+	}
+
+	private void checkPly(int ply) {
+		if (ply < 0 || ply > plies())
+			throw new IndexOutOfBoundsException("ply " + ply + " not in [0, " + plies() + "]");
+	}
+
+	/**
+	 * The states from one checkpoint up to the next
+	 */
+	private final class Block {
+		final int index;
+		final GameState[] states;
+
+		Block(int index) {
+			this.index = index;
+			int first = index * interval;
+			states = new GameState[Math.min(interval, plies() - first + 1)];
+			states[0] = checkpoints.get(index);
+			for (int i = 1; i < states.length; i++)
+				states[i] = states[i - 1].advance(record.moves.get(first + i - 1));
+		}
+	}
+}
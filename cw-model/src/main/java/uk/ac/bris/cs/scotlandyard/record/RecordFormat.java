@@ -0,0 +1,164 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The layout of a record file, and the encoder for one record.
+ * <br>
+ * A file is records back to back, so files can be appended to and concatenated. Each record is
+ * <pre>
+ *   "SYR1"  varint(length)  body  crc32(body), 4 bytes big endian
+ * </pre>
+ * and the body is
+ * <pre>
+ *   zigzag varint seed, fingerprint as 8 bytes big endian,
+ *   varint rounds, one bit per round (reveal = 1) packed into bytes,
+ *   varint players, then for each (MrX first): piece, varint location, varint per ticket,
+ *   moves, END, varint winner (one bit per piece)
+ * </pre>
+ * Pieces are indices into {@link ScotlandYard#ALL_PIECES} and tickets are in {@link Ticket}
+ * order. A move starts with {@code piece | ticket << 3 | double << 6}, which is one byte, then
+ * a single move has {@code varint(destination)} and a double move
+ * {@code varint(destination1 << 3 | ticket2), varint(destination2)}. Sources are not stored as a
+ * reader knows where every piece is. {@link #END} cannot start a move as there is no piece 7.
+ */
+final class RecordFormat {
+
+	static final byte[] MAGIC = {'S', 'Y', 'R', '1'};
+	static final int END = 0x7F;
+	static final int DOUBLE = 1 << 6;
+	/**
+	 * No real game is close to this; anything longer is a corrupt length
+	 */
+	static final int MAX_BODY = 1 << 20;
+
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private byte[] body = new byte[512];
+	private int size;
+	private final CRC32 crc = new CRC32();
+
+	static int piece(Piece piece) {
+		int index = ScotlandYard.ALL_PIECES.indexOf(piece);
+		if (index < 0) throw new IllegalArgumentException("Unknown piece " + piece);
+		return index;
+	}
+
+	static int winner(Set<Piece> winner) {
+		int mask = 0;
+		for (Piece piece : winner) mask |= 1 << piece(piece);
+		return mask;
+	}
+
+	/**
+	 * Starts a new record, dropping anything encoded so far
+	 */
+	void start(long seed, long fingerprint, List<Boolean> rounds, Player mrX,
+	           List<Player> detectives) {
+		size = 0;
+		varlong((seed << 1) ^ (seed >> 63));
+		for (int shift = 56; shift >= 0; shift -= 8) put((int) (fingerprint >>> shift));
+		varint(rounds.size());
+		for (int i = 0; i < rounds.size(); i += 8) {
+			int bits = 0;
+			for (int j = i; j < Math.min(i + 8, rounds.size()); j++)
+				if (rounds.get(j)) bits |= 1 << (j - i);
+			put(bits);
+		}
+		varint(detectives.size() + 1);
+		player(mrX);
+		for (Player detective : detectives) player(detective);
+	}
+
+	private void player(Player player) {
+		put(piece(player.piece()));
+		varint(player.location());
+		for (Ticket ticket : TICKETS) varint(player.tickets().getOrDefault(ticket, 0));
+	}
+
+	void move(Move move) {
+		int piece = piece(move.commencedBy());
+		move.visit(new Move.Visitor<Void>() {
+			@Override public Void visit(SingleMove m) {
+				put(piece | m.ticket.ordinal() << 3);
+				varint(m.destination);
+				return null;
+			}
+			@Override public Void visit(DoubleMove m) {
+				put(piece | m.ticket1.ordinal() << 3 | DOUBLE);
+				varint(m.destination1 << 3 | m.ticket2.ordinal());
+				varint(m.destination2);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return the bytes encoded so far, to {@link #truncate} back to
+	 */
+	int size() { return size; }
+
+	/**
+	 * Drops everything encoded after the given size
+	 */
+	void truncate(int size) {
+		if (size < 0 || size > this.size)
+			throw new IllegalArgumentException("Size " + size + " not in [0, " + this.size + "]");
+		this.size = size;
+	}
+
+	void end(Set<Piece> winner) {
+		put(END);
+		varint(winner(winner));
+	}
+
+	/**
+	 * Writes the record framed with its magic, length and checksum
+	 */
+	void writeTo(OutputStream out) throws IOException {
+		if (size > MAX_BODY) throw new IOException("Record of " + size + " bytes is too long");
+		crc.reset();
+		crc.update(body, 0, size);
+		long checksum = crc.getValue();
+		out.write(MAGIC);
+		int length = size;
+		while ((length & ~0x7F) != 0) {
+			out.write((length & 0x7F) | 0x80);
+			length >>>= 7;
+		}
+		out.write(length);
+		out.write(body, 0, size);
+		for (int shift = 24; shift >= 0; shift -= 8) out.write((int) (checksum >>> shift));
+	}
+
+	private void varint(int value) {
+		if (value < 0) throw new IllegalArgumentException("Negative value " + value);
+		varlong(value);
+	}
+
+	private void varlong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			put((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		put((int) value);
+	}
+
+	private void put(int b) {
+		if (size == body.length) body = Arrays.copyOf(body, size * 2);
+		body[size++] = (byte) b;
+	}
+}
@@ -58,6 +58,7 @@ import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
 import uk.ac.bris.cs.scotlandyard.model.Move.Visitor;
 import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.TimeManager;
 import uk.ac.bris.cs.scotlandyard.ui.GameControl;
 import uk.ac.bris.cs.scotlandyard.ui.Utils;
 import uk.ac.bris.cs.scotlandyard.ui.controller.NotificationController.NotificationBuilder;
@@ -72,7 +73,8 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 /**
  * Map that holds playing pieces and draws annotations.<br> Not required for the coursework.
  */
-@BindFXML("layout/Map.fxml") final class MapController implements Controller, GameControl {
+@BindFXML("layout/Map.fxml") final class MapController
+		implements Controller, GameControl, Model.MoveObserver {
 
 	private static final Duration DURATION = Duration.millis(400);
 
@@ -93,6 +95,7 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 	private final Map<Piece, CounterController> counters = new HashMap<>();
 	private final Map<Integer, MoveHintController> hints = new HashMap<>();
 	private final Map<Piece, Path> historyPaths = new HashMap<>();
+	private final Map<Piece, Integer> starts = new HashMap<>();
 
 
 	MapController(ResourceManager manager,
@@ -149,6 +152,9 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 	private ExecutorService aiExecutor;
 	private Option<Ai> mrXAi = none();
 	private Option<Ai> detectiveAi = none();
+	private Pondering pondering;
+	// stops waiting for the move of the current turn
+	private Runnable endTurn = () -> {};
 
 	@Override public void onGameAttach(
 			Model model, ModelProperty config, Consumer<ImmutableSet<Piece>> timeout) {
@@ -160,7 +166,9 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 		counterPane.getChildren().clear();
 		historyPaths.clear();
 		historyPane.getChildren().clear();
+		starts.clear();
 		for (var player : config.everyone()) {
+			starts.put(player.piece(), player.location());
 			CounterController counter = new CounterController(manager, view.animationProperty(),
 					player.piece(), player.location());
 			counters.put(player.piece(), counter);
@@ -183,19 +191,22 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 		aiExecutor = runInContainment(() -> {
 			mrXAi = config.getMrXAi();
 			detectiveAi = config.getDetectivesAi();
-			mrXAi.forEach(Ai::onStart);
-			detectiveAi.forEach(Ai::onStart);
+			var time = new TimeManager(config.timeoutProperty().get());
+			mrXAi.forEach(ai -> ai.onStart(time));
+			detectiveAi.forEach(ai -> ai.onStart(time));
 			return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
 					.setNameFormat("ai-thread-%d")
 					.setUncaughtExceptionHandler((t, e) -> Utils.handleFatalException(new RuntimeException("An ai instance crashed on thread " + t.getName(), e)))
 					.build());
 		});
+		pondering = new Pondering(aiExecutor, Utils::handleFatalException);
 		advanceModel(model);
 	}
 
 	@Override public void onGameDetached() {
 		clearMoveHints();
 		lock();
+		if (pondering != null) pondering.stopAll();
 		runInContainment(() -> {
 			mrXAi.forEach(Ai::onTerminate);
 			detectiveAi.forEach(Ai::onTerminate);
@@ -217,16 +228,22 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 
 	private Runnable requestAi(Model board, Ai ai) {
 		var terminate = new AtomicBoolean(false);
-		var moves = board.getCurrentBoard().getAvailableMoves();
+		var asked = board.getCurrentBoard();
+		var moves = asked.getAvailableMoves();
 		drawMoveHighlights(moves);
+		var pondered = pondering.stop(ai);
 		aiExecutor.submit(() -> {
 			try {
-				final var move = ai.pickMove(board.getCurrentBoard(), terminate);
+				if (!Pondering.await(pondered)) return;
+				final var move = ai.pickMove(asked, terminate);
 				if (!moves.contains(move)) {
 					Utils.handleFatalException(
 							new Exception("Ai(" + ai.name() + ") selected an invalid move, got: " + move + ", was expecting one of " + moves));
 				} else {
-					Platform.runLater(() -> selectAndMove(board, move));
+					// dropped if the model went back or forward in its history meanwhile
+					Platform.runLater(() -> {
+						if (board.getCurrentBoard() == asked) selectAndMove(board, move);
+					});
 				}
 			} catch (Exception e) {
 				Utils.handleFatalException(new Exception("Ai(" + ai.name() + ") " +
@@ -276,6 +293,9 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 
 		if (mrX) counters.get(MRX).animateVisibility(true);
 
+		pondering.turn(board.getCurrentBoard(), mrX ? mrXAi : detectiveAi,
+				mrX ? detectiveAi : mrXAi);
+
 		final Runnable terminateAction;
 		if (mrX && mrXAi.isDefined()) {
 			terminateAction = requestAi(board, mrXAi.get());
@@ -286,6 +306,7 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 					board.getCurrentBoard().getAvailableMoves(), m -> selectAndMove(model, m));
 		}
 
+		endTurn = terminateAction;
 		notifications.show("notify_timeout",
 				new NotificationBuilder(
 						"Waiting for " + pieces + " to make a move").create(
@@ -307,10 +328,14 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 	private void selectAndMove(Model model, Move m) {
 		notifications.dismissAll();
 		clearMoveHints();
+		endTurn = () -> {};
+		var asked = model.getCurrentBoard();
 		var counter = counters.get(m.commencedBy());
 		m.visit(new Visitor<Unit>() {
 			@Override public Unit visit(SingleMove move) {
 				counter.animateTicketMove(move.destination, some(() -> {
+					// the model went back or forward in its history while the counter moved
+					if (model.getCurrentBoard() != asked) return;
 					counter.location(move.destination);
 					counter.updateLocation();
 					model.chooseMove(m);
@@ -325,6 +350,7 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 							counter.location(move.destination1);
 							counter.animateTicketMove(move.destination2,
 									some(() -> {
+										if (model.getCurrentBoard() != asked) return;
 										counter.location(move.destination2);
 										counter.updateLocation();
 										model.chooseMove(m);
@@ -337,7 +363,35 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 
 	}
 
+	@Override public void onMoveMade(@Nonnull Board board, @Nonnull Move move) {
+		// already drawn as the counter moved, see selectAndMove
+	}
+
+	/**
+	 * Redraws every counter and route from the moves that led to the board, and starts the turn
+	 * of the side now to move
+	 */
+	@Override public void onHistoryChanged(@Nonnull Board board, @Nonnull List<Move> moves) {
+		endTurn.run();
+		endTurn = () -> {};
+		notifications.dismissAll();
+		clearMoveHints();
+		pondering.stopAll();
+		Routes.of(starts, moves).forEach((piece, route) -> {
+			var counter = counters.get(piece);
+			counter.location(Iterables.getLast(route));
+			counter.updateLocation();
+			drawRoute(piece, route);
+		});
+		var log = board.getMrXTravelLog();
+		counters.get(MRX).animateVisibility(
+				log.isEmpty() || Iterables.getLast(log).location().isPresent());
+		if (board.getWinner().isEmpty()) advanceModel(model);
+	}
+
 	@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+		if (event == Event.GAME_OVER) pondering.stopAll();
+		// HISTORY_CHANGED is handled by onHistoryChanged, which has the moves to redraw
 		if (event != Event.MOVE_MADE) return;
 		counters.get(MRX).animateVisibility(Iterables.getLast(board.getMrXTravelLog()).location().isPresent());
 		advanceModel(model);
@@ -392,6 +446,17 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 						})));
 	}
 
+	private void drawRoute(Piece piece, List<Integer> route) {
+		var elements = ImmutableList.<PathElement>builder();
+		var start = coordinateAtNode(route.get(0));
+		elements.add(new MoveTo(start.getX(), start.getY()));
+		for (int station : route.subList(1, route.size())) {
+			var target = coordinateAtNode(station);
+			elements.add(new LineTo(target.getX(), target.getY()));
+		}
+		historyPaths.get(piece).getElements().setAll(elements.build());
+	}
+
 	Point2D coordinateAtNode(int node) { return manager.coordinateAtNode(node); }
 
 	@Override public Parent root() { return gesturePane; }
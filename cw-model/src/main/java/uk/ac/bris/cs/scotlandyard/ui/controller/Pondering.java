@@ -0,0 +1,118 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Option;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The Ais searching during the other side's turn.
+ * <br>
+ * Only touched on the FX thread; the searches themselves run on the Ai executor.
+ */
+final class Pondering {
+
+	private static final class Search {
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		Future<?> future;
+	}
+
+	private final ExecutorService executor;
+	private final Consumer<Exception> failed;
+	private final Map<Ai, Search> searches = new IdentityHashMap<>();
+
+	/**
+	 * @param executor runs the searches
+	 * @param failed told about exceptions thrown by {@link Ai#ponder}
+	 */
+	Pondering(@Nonnull ExecutorService executor, @Nonnull Consumer<Exception> failed) {
+		this.executor = requireNonNull(executor);
+		this.failed = requireNonNull(failed);
+	}
+
+	/**
+	 * Lets the Ai of the side that is not to move ponder on the board, unless the same Ai plays
+	 * both sides or is already pondering
+	 *
+	 * @param board the board with the other side to move
+	 * @param moving the Ai of the side to move, if any
+	 * @param waiting the Ai of the other side, if any
+	 */
+	void turn(@Nonnull Board board, @Nonnull Option<Ai> moving, @Nonnull Option<Ai> waiting) {
+		if (waiting.isDefined() && !moving.exists(ai -> ai == waiting.get()))
+			start(board, waiting.get());
+	}
+
+	/**
+	 * Lets the Ai ponder on the board unless it is already doing so
+	 */
+	void start(@Nonnull Board board, @Nonnull Ai ai) {
+		if (searches.containsKey(ai)) return;
+		var search = new Search();
+		searches.put(ai, search);
+		search.future = executor.submit(() -> {
+			try {
+				ai.ponder(board, search.stop);
+			} catch (Exception e) {
+				failed.accept(new Exception("Ai(" + ai.name() + ") " +
+						"threw an exception while pondering", e));
+			}
+		});
+	}
+
+	/**
+	 * @return whether the Ai has been started and not stopped since
+	 */
+	boolean isPondering(@Nonnull Ai ai) { return searches.containsKey(ai); }
+
+	/**
+	 * Asks the Ai to stop pondering, which it does shortly after
+	 *
+	 * @return the search to {@link #await} before asking the Ai for a move; already done if the
+	 * Ai was not pondering
+	 */
+	@Nonnull Future<?> stop(@Nonnull Ai ai) {
+		var search = searches.remove(ai);
+		if (search == null) return CompletableFuture.completedFuture(null);
+		search.stop.set(true);
+		return search.future;
+	}
+
+	/**
+	 * Asks every Ai to stop pondering, as the game is over or detached
+	 */
+	void stopAll() {
+		searches.values().forEach(s -> s.stop.set(true));
+		searches.clear();
+	}
+
+	/**
+	 * Waits for pondering to return so that the Ai is never asked for a move while it ponders
+	 *
+	 * @return false if interrupted while waiting, i.e. the game is being shut down
+	 */
+	static boolean await(@Nonnull Future<?> search) {
+		try {
+			search.get();
+			return true;
+		} catch (ExecutionException e) {
+			// already reported by the pondering task
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
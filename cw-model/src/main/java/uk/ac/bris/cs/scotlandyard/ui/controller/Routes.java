@@ -0,0 +1,46 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.FunctionalVisitor;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+
+/**
+ * The stations each piece went through, which is what the map draws after the model went back
+ * or forward in its history.
+ */
+final class Routes {
+
+	private Routes() {}
+
+	/**
+	 * @param starts the location of every piece at the start of the game
+	 * @param moves every move made since, in order
+	 * @return the stations of every piece from its start, including the first destination of
+	 * double moves; the last one is where the piece is now
+	 */
+	@Nonnull static ImmutableMap<Piece, ImmutableList<Integer>> of(
+			@Nonnull Map<Piece, Integer> starts, @Nonnull List<Move> moves) {
+		var routes = new LinkedHashMap<Piece, ImmutableList.Builder<Integer>>();
+		starts.forEach((piece, start) ->
+				routes.put(piece, ImmutableList.<Integer>builder().add(start)));
+		for (var move : moves) {
+			var route = routes.get(move.commencedBy());
+			if (route == null)
+				throw new IllegalArgumentException(move.commencedBy() + " has no start location");
+			route.addAll(move.visit(new FunctionalVisitor<ImmutableList<Integer>>(
+					m -> ImmutableList.of(m.destination),
+					m -> ImmutableList.of(m.destination1, m.destination2))));
+		}
+		return routes.entrySet().stream().collect(ImmutableMap.toImmutableMap(
+				Map.Entry::getKey, e -> e.getValue().build()));
+	}
+}
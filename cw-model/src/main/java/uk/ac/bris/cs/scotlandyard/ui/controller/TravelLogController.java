@@ -94,7 +94,11 @@ public final class TravelLogController implements Controller, GameControl {
 	}
 
 	@Override
-	public void onModelChanged(@Nonnull Board board, @Nonnull Event event) { update(board); }
+	public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+		// rebuilt from the board on every event, so on HISTORY_CHANGED the rounds taken back are
+		// emptied and the rounds redone are filled in again
+		update(board);
+	}
 	@Override public Parent root() { return root; }
 
 	private static class RoundEntry {
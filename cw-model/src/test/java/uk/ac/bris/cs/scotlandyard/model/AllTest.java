@@ -3,6 +3,11 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import uk.ac.bris.cs.scotlandyard.record.GameRecordTest;
+import uk.ac.bris.cs.scotlandyard.record.GameReplayTest;
+import uk.ac.bris.cs.scotlandyard.ui.controller.PonderingTest;
+import uk.ac.bris.cs.scotlandyard.ui.controller.RoutesTest;
+
 /**
  * Includes all test for the actual game model
  */
@@ -15,6 +20,14 @@ import org.junit.runners.Suite;
 		GameStateDetectivesAvailableMovesTest.class,
 		GameStateMrXAvailableMovesTest.class,
 		GameStatePlayoutTest.class,
-		ModelObserverTest.class
+		GameStateConcurrencyTest.class,
+		ModelObserverTest.class,
+		ModelHistoryTest.class,
+		AsyncDispatcherTest.class,
+		TimeManagerTest.class,
+		GameRecordTest.class,
+		GameReplayTest.class,
+		PonderingTest.class,
+		RoutesTest.class
 })
 public class AllTest {}
@@ -0,0 +1,255 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.AsyncDispatcher.Backpressure;
+import uk.ac.bris.cs.scotlandyard.model.Model.MoveObserver;
+import uk.ac.bris.cs.scotlandyard.model.Model.Observer;
+import uk.ac.bris.cs.scotlandyard.model.Model.Observer.Event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link AsyncDispatcher} keeps each observer's events in order and applies its
+ * backpressure when an observer falls behind
+ */
+public class AsyncDispatcherTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	@Test public void testSlowObserverSeesTheSameEventsInOrder() throws Exception {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var sync = new Recording(0);
+		var model = new MyModelFactory().build(setup, mrX(), detectives());
+		model.registerObserver(sync);
+		var moves = play(model);
+
+		try (var dispatcher = new AsyncDispatcher(4, Backpressure.BLOCK)) {
+			var slow = new Recording(1);
+			var async = new MyModelFactory().build(setup, mrX(), detectives(), dispatcher);
+			async.registerObserver(slow);
+			assertThat(play(async)).isEqualTo(moves);
+			assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+			assertThat(slow.events).isEqualTo(sync.events);
+			var stats = dispatcher.stats().get(slow);
+			assertThat(stats.delivered).isEqualTo(moves.size());
+			assertThat(stats.maxDepth).isBetween(1, 4);
+			assertThat(stats.dropped).isZero();
+		}
+	}
+
+	@Test public void testDropOldestKeepsTheNewestEvents() throws Exception {
+		try (var dispatcher = new AsyncDispatcher(2, Backpressure.DROP_OLDEST)) {
+			var observer = new Gated();
+			dispatcher.attach(observer);
+			dispatch(dispatcher, observer, "1", Event.MOVE_MADE);
+			observer.started.await();
+			for (String name : List.of("2", "3", "4", "5"))
+				dispatch(dispatcher, observer, name, Event.MOVE_MADE);
+			var stats = dispatcher.stats().get(observer);
+			assertThat(stats.depth).isEqualTo(2);
+			assertThat(stats.dropped).isEqualTo(2);
+			observer.gate.countDown();
+			assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+			assertThat(observer.events).containsExactly("1", "4", "5");
+		}
+	}
+
+	@Test public void testCoalesceSkipsToTheLatestBoardButKeepsGameOver() throws Exception {
+		try (var dispatcher = new AsyncDispatcher(2, Backpressure.COALESCE)) {
+			var observer = new Gated();
+			dispatcher.attach(observer);
+			dispatch(dispatcher, observer, "1", Event.MOVE_MADE);
+			observer.started.await();
+			dispatch(dispatcher, observer, "2", Event.MOVE_MADE);
+			dispatch(dispatcher, observer, "3", Event.MOVE_MADE);
+			dispatch(dispatcher, observer, "4", Event.GAME_OVER);
+			dispatch(dispatcher, observer, "5", Event.MOVE_MADE);
+			assertThat(dispatcher.stats().get(observer).dropped).isEqualTo(2);
+			observer.gate.countDown();
+			assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+			assertThat(observer.events).containsExactly("1", "4 GAME_OVER", "5");
+		}
+	}
+
+	@Test public void testBlockWaitsForTheObserver() throws Exception {
+		try (var dispatcher = new AsyncDispatcher(1, Backpressure.BLOCK)) {
+			var observer = new Gated();
+			dispatcher.attach(observer);
+			dispatch(dispatcher, observer, "1", Event.MOVE_MADE);
+			observer.started.await();
+			dispatch(dispatcher, observer, "2", Event.MOVE_MADE);
+			var game = new Thread(() -> dispatch(dispatcher, observer, "3", Event.MOVE_MADE));
+			game.start();
+			while (dispatcher.stats().get(observer).blocked == 0) Thread.sleep(1);
+			assertThat(game.isAlive()).isTrue();
+			observer.gate.countDown();
+			game.join(TIMEOUT.toMillis());
+			assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+			assertThat(observer.events).containsExactly("1", "2", "3");
+			assertThat(dispatcher.stats().get(observer).dropped).isZero();
+		}
+	}
+
+	@Test public void testLossyBackpressureKeepsGameOverAndHistory() throws Exception {
+		for (var backpressure : List.of(Backpressure.DROP_OLDEST, Backpressure.COALESCE)) {
+			try (var dispatcher = new AsyncDispatcher(1, backpressure)) {
+				var observer = new Gated();
+				dispatcher.attach(observer);
+				dispatch(dispatcher, observer, "1", Event.MOVE_MADE);
+				observer.started.await();
+				dispatch(dispatcher, observer, "2", Event.GAME_OVER);
+				assertWaits(dispatcher, observer, "3", Event.HISTORY_CHANGED);
+				assertThat(observer.events).containsExactly("1", "2 GAME_OVER", "3");
+				assertThat(dispatcher.stats().get(observer).dropped).isZero();
+				assertThat(dispatcher.stats().get(observer).maxDepth).isEqualTo(1);
+			}
+		}
+	}
+
+	@Test public void testLossyBackpressureKeepsEveryMoveForAMoveObserver() throws Exception {
+		for (var backpressure : List.of(Backpressure.DROP_OLDEST, Backpressure.COALESCE)) {
+			try (var dispatcher = new AsyncDispatcher(1, backpressure)) {
+				var observer = new GatedMoves();
+				dispatcher.attach(observer);
+				dispatch(dispatcher, observer, "1", Event.MOVE_MADE);
+				observer.started.await();
+				dispatch(dispatcher, observer, "2", Event.MOVE_MADE);
+				assertWaits(dispatcher, observer, "3", Event.MOVE_MADE);
+				assertThat(observer.events).containsExactly("1", "2", "3");
+				assertThat(dispatcher.stats().get(observer).dropped).isZero();
+			}
+		}
+	}
+
+	@Test public void testObserverMayReadTheModelWhileTheGameWaits() throws Exception {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		try (var dispatcher = new AsyncDispatcher(1, Backpressure.BLOCK)) {
+			var model = new MyModelFactory().build(setup, mrX(), detectives(), dispatcher);
+			var plies = Collections.synchronizedList(new ArrayList<Integer>());
+			model.registerObserver(new Observer() {
+				@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+					plies.add(model.getPly());
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			var game = new Thread(() -> {
+				play(model);
+				model.jumpToPly(0);
+			});
+			game.start();
+			game.join(TIMEOUT.toMillis());
+			assertThat(game.isAlive()).isFalse();
+			assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+			assertThat(plies).isNotEmpty().endsWith(0);
+			assertThat(dispatcher.stats().get(model.getObservers().asList().get(0)).blocked)
+					.isPositive();
+		}
+	}
+
+	private static Player mrX() { return new Player(MRX, defaultMrXTickets(), 45); }
+
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 111));
+	}
+
+	/**
+	 * Plays the first available move until the game is over
+	 */
+	private static List<Move> play(Model model) {
+		var moves = new ArrayList<Move>();
+		while (model.getCurrentBoard().getWinner().isEmpty()) {
+			var move = model.getCurrentBoard().getAvailableMoves().iterator().next();
+			moves.add(move);
+			model.chooseMove(move);
+		}
+		return moves;
+	}
+
+	/**
+	 * Dispatches from another thread, checks that it waits for the gated observer, then opens the
+	 * gate and waits for every event to be delivered
+	 */
+	private static void assertWaits(AsyncDispatcher dispatcher, Gated observer, String name,
+	                                Event event) throws InterruptedException {
+		var game = new Thread(() -> dispatch(dispatcher, observer, name, event));
+		game.start();
+		while (dispatcher.stats().get(observer).blocked == 0) Thread.sleep(1);
+		assertThat(game.isAlive()).isTrue();
+		observer.gate.countDown();
+		game.join(TIMEOUT.toMillis());
+		assertThat(game.isAlive()).isFalse();
+		assertThat(dispatcher.awaitIdle(TIMEOUT)).isTrue();
+	}
+
+	private static void dispatch(AsyncDispatcher dispatcher, Observer observer, String name,
+	                             Event event) {
+		var board = Mockito.mock(Board.class, name);
+		dispatcher.dispatch(observer, board, null, null, event);
+	}
+
+	/**
+	 * Records what each event showed, taking its time about it
+	 */
+	private static final class Recording implements Observer {
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		private final long millis;
+
+		Recording(long millis) { this.millis = millis; }
+
+		@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+			events.add(event + " " + board.getMrXTravelLog().size() + " " +
+					board.getAvailableMoves().size());
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Records the name of each board, holding up the first delivery until the gate opens
+	 */
+	private static class Gated implements Observer {
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+
+		@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+			events.add(board.toString() + (event == Event.GAME_OVER ? " GAME_OVER" : ""));
+			started.countDown();
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A gated observer that also needs every move
+	 */
+	private static final class GatedMoves extends Gated implements MoveObserver {
+		@Override public void onMoveMade(@Nonnull Board board, @Nonnull Move move) {}
+	}
+}
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that game states can be shared between threads: advancing the same state from many
+ * threads at once gives the same states as advancing it from one, and leaves it unchanged.
+ * <br>
+ * <b>IMPORTANT: {@link GameState#advance(Move)} must be properly implemented for any of the
+ * tests here to work properly!</b>
+ */
+public class GameStateConcurrencyTest extends ParameterisedModelTestBase {
+
+	private static final int THREADS = 8;
+	private static final int REPEATS = 2;
+
+	@Test public void testAdvancingASharedStateFromManyThreadsIsDeterministic() throws Exception {
+		GameState start = gameStateFactory.build(standard24RoundSetup(),
+				blackPlayer(), redPlayer(), greenPlayer(), bluePlayer(), whitePlayer(),
+				yellowPlayer());
+		// MrX's turn, with double moves, then the detectives' turn
+		GameState detectivesTurn = start.advance(start.getAvailableMoves().stream()
+				.filter(m -> m instanceof Move.SingleMove).findFirst().orElseThrow());
+		for (GameState shared : List.of(start, detectivesTurn)) {
+			String before = describe(shared);
+			Map<String, String> expected = advanceAll(shared, new Random(0));
+
+			var pool = Executors.newFixedThreadPool(THREADS);
+			try {
+				var go = new CountDownLatch(1);
+				var results = new ArrayList<Future<List<Map<String, String>>>>();
+				for (int thread = 0; thread < THREADS; thread++) {
+					var random = new Random(thread);
+					results.add(pool.submit(() -> {
+						go.await();
+						var runs = new ArrayList<Map<String, String>>();
+						for (int i = 0; i < REPEATS; i++) runs.add(advanceAll(shared, random));
+						return runs;
+					}));
+				}
+				go.countDown();
+				for (var result : results)
+					for (var run : result.get()) assertThat(run).isEqualTo(expected);
+			} finally {
+				pool.shutdownNow();
+			}
+			assertThat(describe(shared)).isEqualTo(before);
+		}
+	}
+
+	@Test public void testStatesHandedToAnotherThreadAreComplete() throws Exception {
+		GameState start = gameStateFactory.build(standard24RoundSetup(),
+				blackPlayer(), redPlayer(), greenPlayer(), bluePlayer(), whitePlayer(),
+				yellowPlayer());
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			// each state is made on this thread and only read on the other
+			GameState state = start;
+			while (state.getWinner().isEmpty()) {
+				GameState current = state;
+				String here = describe(current);
+				Callable<String> there = () -> describe(current);
+				assertThat(pool.submit(there).get()).isEqualTo(here);
+				state = current.advance(current.getAvailableMoves().asList().get(0));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Advances every available move in a random order, and every move after that
+	 *
+	 * @return the description of each state reached, by the moves that reached it
+	 */
+	private static Map<String, String> advanceAll(GameState state, Random random) {
+		var moves = new ArrayList<>(state.getAvailableMoves());
+		Collections.shuffle(moves, random);
+		var reached = new TreeMap<String, String>();
+		for (Move move : moves) {
+			GameState next = state.advance(move);
+			reached.put(move.toString(), describe(next));
+			for (Move then : next.getAvailableMoves())
+				reached.put(move + " " + then, describe(next.advance(then)));
+		}
+		return reached;
+	}
+}
@@ -123,6 +123,32 @@ public class GameStateGameOverTest extends ParameterisedModelTestBase {
 		assertGameIsOver(state);
 	}
 
+	@Test public void testMrXWinsIfCapturedByTheLastDetectiveOnTheLastRound() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 86);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 85);
+		GameState state = gameStateFactory.build(
+				new GameSetup(standardGraph(), rounds(false)), mrX, blue);
+		state = state.advance(taxi(MRX, 86, 103));
+		// the travel log is full once the round is over, which MrX wins before the capture counts
+		state = state.advance(taxi(BLUE, 85, 103));
+		assertGameIsOver(state);
+		assertThat(state.getWinner()).containsExactly(MRX);
+	}
+
+	@Test public void testMrXWinsIfCorneredOnTheLastRound() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 103);
+		var blue = new Player(BLUE, makeTickets(0, 0, 0, 0, 0), 68);
+		var red = new Player(RED, makeTickets(0, 0, 0, 0, 0), 84);
+		var green = new Player(GREEN, defaultDetectiveTickets(), 102);
+		GameState state = gameStateFactory.build(
+				new GameSetup(standardGraph(), rounds(false)), mrX, blue, red, green);
+		state = state.advance(taxi(MRX, 103, 85));
+		// as in testDetectiveWinsIfMrXCornered, but the travel log is full
+		state = state.advance(taxi(GREEN, 102, 103));
+		assertGameIsOver(state);
+		assertThat(state.getWinner()).containsExactly(MRX);
+	}
+
 	@Test public void testGameNotOverIfMrXCorneredButCanStillEscape() {
 		var mrX = new Player(MRX, defaultMrXTickets(), 40);
 		var blue = new Player(BLUE, makeTickets(0, 0, 0, 0, 0), 39);
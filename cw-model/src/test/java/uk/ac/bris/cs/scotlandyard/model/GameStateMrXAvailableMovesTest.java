@@ -145,6 +145,21 @@ public class GameStateMrXAvailableMovesTest extends ParameterisedModelTestBase {
 				secret(MRX, 104, 116));
 	}
 
+	@Test public void testMrXNoDoubleMovesIfOnlyOneRoundLeftOfMany() {
+		var mrX = new Player(MRX, makeTickets(4, 3, 3, 2, 5), 104);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
+		GameState state = gameStateFactory.build(
+				new GameSetup(standardGraph(), rounds(false, false)), mrX, blue);
+		assertThat(state.getAvailableMoves()).anyMatch(m -> m instanceof Move.DoubleMove);
+
+		// the second move of a double would have no round left to go in
+		state = state.advance(taxi(MRX, 104, 86));
+		state = state.advance(taxi(BLUE, 117, 129));
+		assertThat(state.getAvailableMoves())
+				.isNotEmpty()
+				.noneMatch(m -> m instanceof Move.DoubleMove);
+	}
+
 	@Test public void testMrXNoTicketMovesIfNoTicketMoveTickets() {
 		var mrX = new Player(MRX, makeTickets(1, 0, 1, 0, 0), 104);
 		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
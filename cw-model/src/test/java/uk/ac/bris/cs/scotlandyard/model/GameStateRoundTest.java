@@ -96,6 +96,28 @@ public class GameStateRoundTest extends ParameterisedModelTestBase {
 		// no exceptions, everything should work
 	}
 
+	@Test public void testBoxedInDetectiveMovesOnceAnotherMakesRoom() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 86);
+		// red only has taxi tickets, and the taxi routes from 1 go to 8 and 9
+		var red = new Player(RED, makeTickets(10, 0, 0, 0, 0), 1);
+		var green = new Player(GREEN, defaultDetectiveTickets(), 8);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 9);
+		GameState state = gameStateFactory.build(standard24RoundSetup(), mrX, red, green, blue);
+
+		state = state.advance(taxi(MRX, 86, 103));
+		assertMovesOnlyCommencedBy(state.getAvailableMoves(), GREEN, BLUE);
+
+		// red stays in the round and may take the station green left
+		state = state.advance(taxi(GREEN, 8, 18));
+		assertMovesOnlyCommencedBy(state.getAvailableMoves(), RED, BLUE);
+		assertThat(state.getAvailableMoves()).contains(taxi(RED, 1, 8));
+
+		state = state.advance(taxi(RED, 1, 8));
+		assertMovesOnlyCommencedBy(state.getAvailableMoves(), BLUE);
+		state = state.advance(taxi(BLUE, 9, 20));
+		assertThat(state.getAvailableMoves()).allMatch(m -> m.commencedBy() == MRX);
+	}
+
 	@Test public void testIllegalMoveNotInGivenMovesWillThrow() {
 		var mrX = new Player(MRX, defaultMrXTickets(), 35);
 		var blue = new Player(BLUE, defaultDetectiveTickets(), 26);
@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Model.MoveObserver;
+import uk.ac.bris.cs.scotlandyard.model.Model.Observer.Event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests undo, redo and jumping to a ply of the model
+ * <br>
+ * <b>IMPORTANT: {@link Board.GameState} must be fully implemented for any of the
+ * tests here to work properly!</b>
+ */
+public class ModelHistoryTest extends ParameterisedModelTestBase {
+
+	// convenience for creating 6 valid player at non-overlapping locations, skipping the tests
+	// for models that keep no history
+	private HistoryModel createValidSixPlayerGame() {
+		var model = modelFactory.build(standard24RoundSetup(),
+				blackPlayer(),
+				redPlayer(),
+				greenPlayer(),
+				bluePlayer(),
+				whitePlayer(),
+				yellowPlayer());
+		assumeTrue(model instanceof HistoryModel);
+		return (HistoryModel) model;
+	}
+
+	/**
+	 * Plays random moves from a fixed seed until the game is over
+	 *
+	 * @return the description of the board at every ply
+	 */
+	private static List<String> play(Model model) {
+		var random = new Random(42);
+		var boards = new ArrayList<String>();
+		boards.add(describe(model.getCurrentBoard()));
+		while (model.getCurrentBoard().getWinner().isEmpty()) {
+			var moves = model.getCurrentBoard().getAvailableMoves().asList();
+			model.chooseMove(moves.get(random.nextInt(moves.size())));
+			boards.add(describe(model.getCurrentBoard()));
+		}
+		return boards;
+	}
+
+	@Test public void testUndoAndRedoRestoreEveryBoard() {
+		HistoryModel model = createValidSixPlayerGame();
+		var boards = play(model);
+		int last = boards.size() - 1;
+		// long enough to go past a checkpoint
+		assertThat(last).isGreaterThan(MyModelFactory.CHECKPOINT);
+		assertThat(model.getPly()).isEqualTo(last);
+		assertThat(model.getLastPly()).isEqualTo(last);
+		for (int ply = last - 1; ply >= 0; ply--) {
+			model.undo();
+			assertThat(model.getPly()).isEqualTo(ply);
+			assertThat(describe(model.getCurrentBoard())).isEqualTo(boards.get(ply));
+		}
+		assertThat(model.getLastPly()).isEqualTo(last);
+		for (int ply = 1; ply <= last; ply++) {
+			model.redo();
+			assertThat(describe(model.getCurrentBoard())).isEqualTo(boards.get(ply));
+		}
+	}
+
+	@Test public void testJumpToAnyPly() {
+		HistoryModel model = createValidSixPlayerGame();
+		var boards = play(model);
+		var plies = new ArrayList<Integer>();
+		for (int ply = 0; ply < boards.size(); ply++) plies.add(ply);
+		Collections.shuffle(plies, new Random(1));
+		for (int ply : plies) {
+			model.jumpToPly(ply);
+			assertThat(model.getPly()).isEqualTo(ply);
+			assertThat(describe(model.getCurrentBoard())).isEqualTo(boards.get(ply));
+		}
+	}
+
+	@Test public void testMoveAfterUndoDropsTheUndoneMoves() {
+		HistoryModel model = createValidSixPlayerGame();
+		play(model);
+		model.jumpToPly(3);
+		var moves = model.getCurrentBoard().getAvailableMoves().asList();
+		model.chooseMove(moves.get(moves.size() - 1));
+		var board = describe(model.getCurrentBoard());
+		assertThat(model.getPly()).isEqualTo(4);
+		assertThat(model.getLastPly()).isEqualTo(4);
+		assertThatThrownBy(model::redo).isInstanceOf(IllegalStateException.class);
+		model.undo();
+		model.redo();
+		assertThat(describe(model.getCurrentBoard())).isEqualTo(board);
+	}
+
+	@Test public void testOutOfRangeShouldThrow() {
+		HistoryModel model = createValidSixPlayerGame();
+		assertThatThrownBy(model::undo).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(model::redo).isInstanceOf(IllegalStateException.class);
+		model.chooseMove(model.getCurrentBoard().getAvailableMoves().iterator().next());
+		assertThatThrownBy(() -> model.jumpToPly(2)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> model.jumpToPly(-1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testHistoryChangeNotifiesObservers() {
+		HistoryModel model = createValidSixPlayerGame();
+		var first = model.getCurrentBoard().getAvailableMoves().iterator().next();
+		model.chooseMove(first);
+		var second = model.getCurrentBoard().getAvailableMoves().iterator().next();
+		model.chooseMove(second);
+		MoveObserver observer = Mockito.mock(MoveObserver.class);
+		model.registerObserver(observer);
+
+		model.undo();
+		var inOrder = Mockito.inOrder(observer);
+		inOrder.verify(observer).onHistoryChanged(model.getCurrentBoard(), List.of(first));
+		inOrder.verify(observer).onModelChanged(model.getCurrentBoard(), Event.HISTORY_CHANGED);
+		// already there
+		model.jumpToPly(1);
+		model.redo();
+		inOrder.verify(observer).onHistoryChanged(model.getCurrentBoard(), List.of(first, second));
+		inOrder.verify(observer).onModelChanged(model.getCurrentBoard(), Event.HISTORY_CHANGED);
+		Mockito.verifyNoMoreInteractions(observer);
+	}
+}
@@ -3,7 +3,12 @@ package uk.ac.bris.cs.scotlandyard.model;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Model.MoveObserver;
 import uk.ac.bris.cs.scotlandyard.model.Model.Observer;
 import uk.ac.bris.cs.scotlandyard.model.Model.Observer.Event;
 
@@ -136,4 +141,57 @@ public class ModelObserverTest extends ParameterisedModelTestBase {
 	}
 
 
+	@Test public void testMoveObserverGetsTheMoveBeforeTheChange() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 45);
+		var red = new Player(RED, defaultDetectiveTickets(), 47);
+		MoveObserver observer = Mockito.mock(MoveObserver.class);
+		Model game = modelFactory.build(standard24RoundSetup(), mrX, red);
+		game.registerObserver(observer);
+		var move = taxi(MRX, 45, 46);
+		game.chooseMove(move);
+		var inOrder = Mockito.inOrder(observer);
+		inOrder.verify(observer).onMoveMade(game.getCurrentBoard(), move);
+		inOrder.verify(observer).onModelChanged(game.getCurrentBoard(), Event.MOVE_MADE);
+		Mockito.verifyNoMoreInteractions(observer);
+	}
+
+
+	@Test public void testObserversMayComeAndGoFromOtherThreadsDuringAGame() throws Exception {
+		var mrX = new Player(MRX, defaultMrXTickets(), 45);
+		var red = new Player(RED, defaultDetectiveTickets(), 111);
+		Observer observer = Mockito.mock(Observer.class);
+		Model game = modelFactory.build(standard24RoundSetup(), mrX, red);
+		game.registerObserver(observer);
+		var spectators = Executors.newFixedThreadPool(4);
+		try {
+			var done = new ArrayList<Future<?>>();
+			for (int i = 0; i < 4; i++)
+				done.add(spectators.submit(() -> {
+					for (int j = 0; j < 500; j++) {
+						Observer spectator = new Observer() {};
+						game.registerObserver(spectator);
+						assertThatThrownBy(() -> game.registerObserver(spectator))
+								.isInstanceOf(IllegalArgumentException.class);
+						assertThat(game.getObservers()).contains(observer, spectator);
+						game.unregisterObserver(spectator);
+						assertThatThrownBy(() -> game.unregisterObserver(spectator))
+								.isInstanceOf(IllegalArgumentException.class);
+					}
+				}));
+			int moves = 0;
+			while (game.getCurrentBoard().getWinner().isEmpty()) {
+				game.chooseMove(game.getCurrentBoard().getAvailableMoves().iterator().next());
+				moves++;
+			}
+			for (Future<?> future : done) future.get();
+			assertThat(game.getObservers()).containsExactly(observer);
+			Mockito.verify(observer, Mockito.times(moves - 1))
+					.onModelChanged(Mockito.any(), Mockito.eq(Event.MOVE_MADE));
+			Mockito.verify(observer).onModelChanged(Mockito.any(), Mockito.eq(Event.GAME_OVER));
+		} finally {
+			spectators.shutdownNow();
+		}
+	}
+
+
 }
@@ -15,6 +15,8 @@ import org.junit.runners.Parameterized.Parameters;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
@@ -254,4 +256,25 @@ import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.readGraph;
 		assertThat(game.getAvailableMoves()).isNotEmpty();
 	}
 
+	/**
+	 * @return everything a board shows, in an order that does not depend on the implementation
+	 */
+	@Nonnull static String describe(@Nonnull Board board) {
+		var pieces = board.getPlayers().stream().sorted(ScotlandYard.PIECE_VALUE_ORDER)
+				.map(piece -> {
+					var tickets = board.getPlayerTickets(piece).orElseThrow();
+					String location = piece.isDetective() ?
+							"@" + board.getDetectiveLocation((Piece.Detective) piece).orElseThrow() : "";
+					return piece + location + Stream.of(Ticket.values())
+							.map(t -> Integer.toString(tickets.getCount(t)))
+							.collect(Collectors.joining(",", "[", "]"));
+				})
+				.collect(Collectors.joining(" "));
+		var moves = board.getAvailableMoves().stream().map(Move::toString).sorted()
+				.collect(Collectors.joining(" "));
+		return pieces + " log=" + board.getMrXTravelLog() + " winner=" +
+				board.getWinner().stream().sorted(ScotlandYard.PIECE_VALUE_ORDER)
+						.collect(Collectors.toList()) + " moves=" + moves;
+	}
+
 }
@@ -0,0 +1,125 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.hidden;
+import static uk.ac.bris.cs.scotlandyard.model.LogEntry.reveal;
+
+/**
+ * Tests the deadlines {@link TimeManager} hands out: the hard deadline always keeps the safety
+ * margin before the timeout, and the soft deadline is shared out by how much the move decides
+ */
+public class TimeManagerTest {
+
+	// reveal rounds are the 3rd, 8th, 13th, 18th and 24th
+	private static final GameSetup SETUP = new GameSetup(
+			ImmutableValueGraph.copyOf(
+					ValueGraphBuilder.undirected().<Integer, ImmutableSet<Transport>>build()),
+			ScotlandYard.STANDARD24ROUNDS);
+
+	private static final Board MRX_FORCED = board(MrX.MRX, 1);
+	private static final Board MRX_ROUTINE = board(MrX.MRX, 2);
+
+	@Test public void testForcedMoveGetsNoSoftTime() {
+		assertThat(TimeManager.share(MRX_FORCED)).isZero();
+		assertThat(TimeManager.share(board(Detective.RED, 1, hidden(Ticket.TAXI),
+				hidden(Ticket.TAXI), reveal(Ticket.BUS, 1)))).isZero();
+		long before = System.nanoTime();
+		var budget = new TimeManager(Duration.ofSeconds(10)).allocate(MRX_FORCED);
+		assertThat(budget.soft).isBetween(before, System.nanoTime());
+		assertThat(budget.softExpired()).isTrue();
+		assertThat(budget.hardExpired()).isFalse();
+	}
+
+	@Test public void testMrXMovesIntoAndOutOfRevealRoundsGetTheMostTime() {
+		// the next round reveals him
+		assertThat(TimeManager.share(board(MrX.MRX, 2, hidden(Ticket.TAXI),
+				hidden(Ticket.TAXI)))).isEqualTo(TimeManager.CRITICAL);
+		// a double move would end in the reveal round
+		assertThat(TimeManager.share(board(MrX.MRX, 2, hidden(Ticket.TAXI))))
+				.isEqualTo(TimeManager.CRITICAL);
+		// just revealed
+		assertThat(TimeManager.share(board(MrX.MRX, 2, hidden(Ticket.TAXI), hidden(Ticket.TAXI),
+				reveal(Ticket.BUS, 1)))).isEqualTo(TimeManager.FOLLOW_UP);
+		assertThat(TimeManager.share(MRX_ROUTINE)).isEqualTo(TimeManager.ROUTINE);
+	}
+
+	@Test public void testDetectivesGetTheMostTimeRightAfterMrXWasSeen() {
+		assertThat(TimeManager.share(board(Detective.RED, 2, hidden(Ticket.TAXI),
+				hidden(Ticket.TAXI), reveal(Ticket.BUS, 1)))).isEqualTo(TimeManager.CRITICAL);
+		assertThat(TimeManager.share(board(Detective.RED, 2, hidden(Ticket.TAXI))))
+				.isEqualTo(TimeManager.ROUTINE);
+	}
+
+	@Test public void testHardDeadlineKeepsATenthOfTheTimeout() {
+		assertHardDeadline(Duration.ofSeconds(10), Duration.ofSeconds(9));
+		assertHardDeadline(Duration.ofMinutes(1), Duration.ofSeconds(54));
+	}
+
+	@Test public void testShortTimeoutsKeepTheMinimumMargin() {
+		assertHardDeadline(Duration.ofSeconds(1), Duration.ofMillis(750));
+		assertHardDeadline(Duration.ofMillis(2500), Duration.ofMillis(2250));
+		// the margin is longer than the timeout, so there is no time to search at all
+		assertHardDeadline(Duration.ofMillis(100), Duration.ZERO);
+	}
+
+	@Test public void testSoftDeadlineIsNeverAfterTheHardDeadline() {
+		for (var board : ImmutableList.of(MRX_FORCED, MRX_ROUTINE,
+				board(MrX.MRX, 2, hidden(Ticket.TAXI)))) {
+			var budget = new TimeManager(Duration.ofSeconds(1)).allocate(board);
+			assertThat(budget.soft - budget.hard).isNotPositive();
+		}
+	}
+
+	@Test public void testRejectsTimeoutsThatAreNotPositive() {
+		assertThatThrownBy(() -> new TimeManager(Duration.ZERO))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TimeManager(Duration.ofSeconds(-1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Checks that the hard deadline of a move lies the expected time after the move was asked for,
+	 * the timeout less the larger of {@link TimeManager#MIN_MARGIN} and a tenth of the timeout
+	 */
+	private static void assertHardDeadline(Duration timeout, Duration expected) {
+		var time = new TimeManager(timeout);
+		long before = System.nanoTime();
+		var budget = time.allocate(MRX_ROUTINE);
+		long after = System.nanoTime();
+		assertThat(budget.hard - before).isGreaterThanOrEqualTo(expected.toNanos());
+		assertThat(budget.hard - after).isLessThanOrEqualTo(expected.toNanos());
+	}
+
+	/**
+	 * @return a board with the given number of moves for the piece after MrX's travel log
+	 */
+	private static Board board(Piece piece, int moves, LogEntry... log) {
+		var available = ImmutableSet.<Move>builder();
+		for (int i = 0; i < moves; i++) {
+			var move = Mockito.mock(Move.class);
+			Mockito.when(move.commencedBy()).thenReturn(piece);
+			available.add(move);
+		}
+		var board = Mockito.mock(Board.class);
+		Mockito.when(board.getSetup()).thenReturn(SETUP);
+		Mockito.when(board.getAvailableMoves()).thenReturn(available.build());
+		Mockito.when(board.getMrXTravelLog()).thenReturn(ImmutableList.copyOf(log));
+		return board;
+	}
+}
@@ -0,0 +1,229 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.HistoryModel;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.MyModelFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that games written by {@link GameRecordWriter} read back the same from
+ * {@link GameRecordReader}
+ */
+public class GameRecordTest {
+
+	private static GameSetup setup;
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass public static void setUp() throws IOException {
+		setup = new GameSetup(ScotlandYard.readGraph(Resources.toString(
+				Resources.getResource("graph.txt"), StandardCharsets.UTF_8)),
+				ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	@Test public void testRecordedGamesReadBackTheSame() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var played = new ArrayList<GameRecord>();
+		try (var writer = new GameRecordWriter(bytes)) {
+			for (long seed = -10; seed < 40; seed++) played.add(play(writer, seed));
+			assertThat(writer.records()).isEqualTo(played.size());
+		}
+		assertThat(readAll(bytes.toByteArray())).containsExactlyElementsOf(played);
+	}
+
+	@Test public void testMovesReplayOnTheModel() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		try (var writer = new GameRecordWriter(bytes)) {
+			play(writer, 7);
+		}
+		var record = readAll(bytes.toByteArray()).get(0);
+		assertThat(record.playedOn(setup)).isTrue();
+		var state = new MyGameStateFactory<>().build(setup, record.mrX, record.detectives);
+		for (Move move : record.moves) {
+			// sources are restored by the reader, so these are the very moves the model offered
+			assertThat(state.getAvailableMoves().stream().filter(move::equals).map(Move::source))
+					.containsExactly(move.source());
+			state = state.advance(move);
+		}
+		assertThat(state.getWinner()).isEqualTo(record.winner).isNotEmpty();
+	}
+
+	@Test public void testAppendingKeepsEarlierGames() throws IOException {
+		var file = folder.newFile("games.syr").toPath();
+		try (var writer = GameRecordWriter.append(file)) {
+			play(writer, 1);
+			play(writer, 2);
+		}
+		try (var writer = GameRecordWriter.append(file)) {
+			play(writer, 3);
+		}
+		try (var records = GameRecordReader.stream(file)) {
+			assertThat(records.mapToLong(r -> r.seed)).containsExactly(1L, 2L, 3L);
+		}
+	}
+
+	@Test public void testAbandonedGameHasNoWinner() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		try (var writer = new GameRecordWriter(bytes)) {
+			var recorder = writer.record(0, setup, mrX(), detectives());
+			var model = new MyModelFactory().build(setup, mrX(), detectives());
+			model.registerObserver(recorder);
+			model.chooseMove(model.getCurrentBoard().getAvailableMoves().asList().get(0));
+			recorder.end(ImmutableSet.of());
+			recorder.end(ImmutableSet.of(MRX));
+		}
+		var records = readAll(bytes.toByteArray());
+		assertThat(records).hasSize(1);
+		assertThat(records.get(0).moves).hasSize(1);
+		assertThat(records.get(0).winner).isEmpty();
+	}
+
+	@Test public void testUndoneMovesAreNotRecorded() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var random = new Random(7);
+		var played = new ArrayList<Move>();
+		List<Move> expected;
+		HistoryModel model = new MyModelFactory().build(setup, mrX(), detectives());
+		try (var writer = new GameRecordWriter(bytes)) {
+			var recorder = writer.record(7, setup, mrX(), detectives());
+			model.registerObserver(recorder);
+			model.registerObserver(new Model.MoveObserver() {
+				@Override public void onMoveMade(@Nonnull Board board, @Nonnull Move move) {
+					played.add(move);
+				}
+				@Override public void onHistoryChanged(@Nonnull Board board,
+				                                       @Nonnull List<Move> moves) {
+					played.clear();
+					played.addAll(moves);
+				}
+			});
+			for (int ply = 0; model.getCurrentBoard().getWinner().isEmpty(); ply++) {
+				// take back some moves, and go back and forth over a few others
+				if (ply % 3 == 2) model.undo();
+				if (ply % 7 == 6) {
+					model.jumpToPly(Math.max(0, model.getPly() - 3));
+					model.jumpToPly(model.getLastPly());
+				}
+				var available = model.getCurrentBoard().getAvailableMoves().asList();
+				model.chooseMove(available.get(random.nextInt(available.size())));
+			}
+			assertThat(recorder.ended()).isTrue();
+			expected = List.copyOf(played);
+			// the game is already written
+			model.undo();
+		}
+		var records = readAll(bytes.toByteArray());
+		assertThat(records).hasSize(1);
+		assertThat(records.get(0).moves).isEqualTo(expected);
+		assertThat(new GameReplay(records.get(0), setup).plies()).isEqualTo(expected.size());
+	}
+
+	@Test public void testDifferentSetupsHaveDifferentFingerprints() {
+		var rounds = new ArrayList<>(setup.rounds);
+		rounds.set(0, !rounds.get(0));
+		var flipped = new GameSetup(setup.graph, ImmutableList.copyOf(rounds));
+		assertThat(GameRecord.fingerprint(flipped)).isNotEqualTo(GameRecord.fingerprint(setup));
+		assertThat(GameRecord.fingerprint(new GameSetup(setup.graph, setup.rounds)))
+				.isEqualTo(GameRecord.fingerprint(setup));
+	}
+
+	@Test public void testCorruptRecordsAreReported() throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		try (var writer = new GameRecordWriter(bytes)) {
+			play(writer, 1);
+			play(writer, 2);
+		}
+		byte[] whole = bytes.toByteArray();
+
+		var truncated = new GameRecordReader(new ByteArrayInputStream(
+				Arrays.copyOf(whole, whole.length - 3)));
+		assertThat(truncated.next().seed).isEqualTo(1);
+		assertThatThrownBy(truncated::hasNext)
+				.isInstanceOf(UncheckedIOException.class)
+				.hasMessageContaining("truncated");
+
+		byte[] flipped = whole.clone();
+		flipped[20] ^= 1;
+		assertThatThrownBy(() -> readAll(flipped))
+				.isInstanceOf(UncheckedIOException.class)
+				.hasMessageContaining("Corrupt record at byte 0");
+	}
+
+	@Test public void testGamesAreSmall() throws IOException {
+		var file = folder.newFile("small.syr").toPath();
+		int moves = 0;
+		try (var writer = GameRecordWriter.append(file)) {
+			for (long seed = 0; seed < 100; seed++) moves += play(writer, seed).moves.size();
+		}
+		// about 60 bytes for the players and at most 4 per move
+		assertThat(Files.size(file)).isLessThan(100 * 80 + moves * 4L);
+	}
+
+	private static GameRecord play(GameRecordWriter writer, long seed) {
+		var random = new Random(seed);
+		var recorder = writer.record(seed, setup, mrX(), detectives());
+		Model model = new MyModelFactory().build(setup, mrX(), detectives());
+		model.registerObserver(recorder);
+		var moves = ImmutableList.<Move>builder();
+		while (model.getCurrentBoard().getWinner().isEmpty()) {
+			var available = model.getCurrentBoard().getAvailableMoves().asList();
+			var move = available.get(random.nextInt(available.size()));
+			moves.add(move);
+			model.chooseMove(move);
+		}
+		assertThat(recorder.ended()).isTrue();
+		return new GameRecord(seed, GameRecord.fingerprint(setup), setup.rounds, mrX(),
+				detectives(), moves.build(), model.getCurrentBoard().getWinner());
+	}
+
+	private static List<GameRecord> readAll(byte[] bytes) {
+		var records = new ArrayList<GameRecord>();
+		new GameRecordReader(new ByteArrayInputStream(bytes)).forEachRemaining(records::add);
+		return records;
+	}
+
+	private static Player mrX() { return new Player(MRX, defaultMrXTickets(), 106); }
+
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 26),
+				new Player(GREEN, defaultDetectiveTickets(), 50),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+	}
+}
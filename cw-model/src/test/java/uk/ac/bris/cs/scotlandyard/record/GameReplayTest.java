@@ -0,0 +1,198 @@
+package uk.ac.bris.cs.scotlandyard.record;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link GameReplay} gives the same boards as playing the game from the start
+ */
+public class GameReplayTest {
+
+	private static GameSetup setup;
+	private static GameRecord game;
+	private static List<GameState> played;
+
+	@BeforeClass public static void setUp() throws IOException {
+		setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var mrX = new Player(MRX, defaultMrXTickets(), 106);
+		var detectives = ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 26),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+		var random = new Random(3);
+		var moves = ImmutableList.<Move>builder();
+		played = new ArrayList<>();
+		GameState state = new MyGameStateFactory<>().build(setup, mrX, detectives);
+		played.add(state);
+		while (state.getWinner().isEmpty()) {
+			var available = state.getAvailableMoves().asList();
+			var move = available.get(random.nextInt(available.size()));
+			moves.add(move);
+			state = state.advance(move);
+			played.add(state);
+		}
+		game = new GameRecord(3, GameRecord.fingerprint(setup), setup.rounds, mrX, detectives,
+				moves.build(), state.getWinner());
+	}
+
+	@Test public void testEveryPlyMatchesPlayingFromTheStart() {
+		for (int interval : new int[]{1, 3, 8, game.moves.size(), game.moves.size() + 1}) {
+			var replay = new GameReplay(game, setup, new MyGameStateFactory<>(), interval);
+			assertThat(replay.plies()).isEqualTo(played.size() - 1);
+			// out of order, so blocks are rebuilt
+			var random = new Random(interval);
+			for (int i = 0; i < 3 * played.size(); i++) {
+				int ply = random.nextInt(played.size());
+				assertThat(describe(replay.at(ply))).isEqualTo(describe(played.get(ply)));
+			}
+		}
+	}
+
+	@Test public void testStepsBothWays() {
+		var replay = new GameReplay(game, setup);
+		var forward = replay.forward(0).map(GameReplayTest::describe)
+				.collect(Collectors.toList());
+		assertThat(forward).isEqualTo(played.stream().map(GameReplayTest::describe)
+				.collect(Collectors.toList()));
+		var backward = replay.backward(replay.plies()).map(GameReplayTest::describe)
+				.collect(Collectors.toList());
+		assertThat(backward).isEqualTo(Lists.reverse(forward));
+		assertThat(replay.forward(replay.plies())).hasSize(1);
+		assertThat(replay.backward(0)).hasSize(1);
+	}
+
+	@Test public void testSeekingAdvancesLessThanTheInterval() {
+		var advances = new AtomicInteger();
+		Factory<GameState> counting = (s, mrX, detectives) ->
+				new Counting(new MyGameStateFactory<>().build(s, mrX, detectives), advances);
+		var replay = new GameReplay(game, setup, counting, 4);
+		assertThat(advances.get()).isEqualTo(game.moves.size());
+		for (int ply = replay.plies(); ply >= 0; ply -= 5) {
+			advances.set(0);
+			replay.at(ply);
+			assertThat(advances.get()).isLessThan(4);
+		}
+		// every ply once more, backwards: each block is built once
+		advances.set(0);
+		assertThat(replay.backward(replay.plies())).hasSize(replay.plies() + 1);
+		assertThat(advances.get()).isLessThanOrEqualTo(game.moves.size());
+	}
+
+	@Test public void testOtherSetupIsRejected() {
+		var other = new GameSetup(setup.graph, setup.rounds.subList(0, 10));
+		assertThatThrownBy(() -> new GameReplay(game, other))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testGameEndedEarlyKeepsItsWinner() {
+		// MrX won by forfeit after one move, the model's game went on
+		var forfeit = new GameRecord(game.seed, game.fingerprint, game.rounds, game.mrX,
+				game.detectives, game.moves.subList(0, 1), ImmutableSet.of(MRX));
+		var replay = new GameReplay(forfeit, setup);
+		assertThat(replay.plies()).isEqualTo(1);
+		assertThat(replay.at(1).getWinner()).isEmpty();
+	}
+
+	@Test public void testOtherWinnerIsRejected() {
+		var loser = played.get(played.size() - 1).getWinner().contains(MRX) ?
+				ImmutableSet.<Piece>of(RED, BLUE) : ImmutableSet.<Piece>of(MRX);
+		var wrong = new GameRecord(game.seed, game.fingerprint, game.rounds, game.mrX,
+				game.detectives, game.moves, loser);
+		assertThatThrownBy(() -> new GameReplay(wrong, setup))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testPliesOutsideTheGameAreRejected() {
+		var replay = new GameReplay(game, setup);
+		assertThatThrownBy(() -> replay.at(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> replay.at(replay.plies() + 1))
+				.isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+	private static String describe(Board board) {
+		var tickets = board.getPlayers().stream()
+				.sorted(ScotlandYard.PIECE_VALUE_ORDER)
+				.map(p -> p + "=" + board.getPlayerTickets(p).map(t ->
+						ImmutableList.copyOf(ScotlandYard.Ticket.values()).stream()
+								.map(t::getCount).collect(Collectors.toList())).orElseThrow())
+				.collect(Collectors.joining(","));
+		var locations = ScotlandYard.DETECTIVES.stream()
+				.map(p -> board.getDetectiveLocation((Detective) p))
+				.collect(Collectors.toList());
+		return board.getMrXTravelLog() + ";" + tickets + ";" + locations + ";" +
+				ImmutableSet.copyOf(board.getAvailableMoves()) + ";" + board.getWinner();
+	}
+
+	/**
+	 * Counts the advances made from it and every state after it
+	 */
+	private static final class Counting implements GameState {
+		private final GameState state;
+		private final AtomicInteger advances;
+
+		Counting(GameState state, AtomicInteger advances) {
+			this.state = state;
+			this.advances = advances;
+		}
+
+		@Nonnull @Override public GameSetup getSetup() { return state.getSetup(); }
+
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return state.getPlayers(); }
+
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			return state.getDetectiveLocation(detective);
+		}
+
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			return state.getPlayerTickets(piece);
+		}
+
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+			return state.getMrXTravelLog();
+		}
+
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() { return state.getWinner(); }
+
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			return state.getAvailableMoves();
+		}
+
+		@Override public GameState advance(Move move) {
+			advances.incrementAndGet();
+			return new Counting(state.advance(move), advances);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static io.atlassian.fugue.Option.none;
+import static io.atlassian.fugue.Option.some;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link Pondering} lets an Ai search on the other side's turn, stops it before it is
+ * asked for a move and stops every Ai when the game ends
+ */
+public class PonderingTest {
+
+	private static final long TIMEOUT = 5;
+
+	private final Board board = Mockito.mock(Board.class);
+	private final List<Exception> failures = new ArrayList<>();
+	private ExecutorService executor;
+	private Pondering pondering;
+
+	@Before public void setUp() {
+		executor = Executors.newCachedThreadPool();
+		pondering = new Pondering(executor, e -> {
+			synchronized (failures) {
+				failures.add(e);
+			}
+		});
+	}
+
+	@After public void tearDown() { executor.shutdownNow(); }
+
+	@Test public void testDefaultPonderReturnsAtOnce() {
+		var stop = new AtomicBoolean(false);
+		new Ai() {
+			@Nonnull @Override public String name() { return "default"; }
+
+			@Nonnull @Override public Move pickMove(@Nonnull Board board,
+			                                        @Nonnull AtomicBoolean terminate) {
+				throw new AssertionError();
+			}
+		}.ponder(board, stop);
+		assertThat(stop).isFalse();
+	}
+
+	@Test public void testPondersOnTheOpponentsTurn() throws InterruptedException {
+		var mrX = new StubAi();
+		var detectives = new StubAi();
+		pondering.turn(board, some(detectives), some(mrX));
+		assertThat(mrX.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		assertThat(mrX.board).isSameAs(board);
+		assertThat(pondering.isPondering(mrX)).isTrue();
+		assertThat(pondering.isPondering(detectives)).isFalse();
+		// still pondering on the next detective's turn
+		pondering.turn(board, some(detectives), some(mrX));
+		assertThat(mrX.ponders).hasValue(1);
+	}
+
+	@Test public void testDoesNotPonderWithoutAnOpponentAi() {
+		var both = new StubAi();
+		pondering.turn(board, some(both), some(both));
+		pondering.turn(board, some(both), none());
+		assertThat(pondering.isPondering(both)).isFalse();
+		assertThat(both.ponders).hasValue(0);
+	}
+
+	@Test public void testStopsBeforeTheMoveIsPicked() throws InterruptedException {
+		var ai = new StubAi();
+		pondering.start(board, ai);
+		assertThat(ai.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		assertThat(Pondering.await(pondering.stop(ai))).isTrue();
+		ai.pickMove(board, new AtomicBoolean());
+		assertThat(ai.pickedWhilePondering).isFalse();
+		assertThat(pondering.isPondering(ai)).isFalse();
+		// an Ai that is not pondering moves right away
+		assertThat(pondering.stop(ai)).isDone();
+	}
+
+	@Test public void testStopsEveryAiWhenTheGameEnds() throws InterruptedException {
+		var mrX = new StubAi();
+		var detectives = new StubAi();
+		pondering.start(board, mrX);
+		pondering.start(board, detectives);
+		assertThat(mrX.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		assertThat(detectives.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		pondering.stopAll();
+		assertThat(mrX.stopped.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		assertThat(detectives.stopped.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+		assertThat(pondering.isPondering(mrX)).isFalse();
+		assertThat(pondering.isPondering(detectives)).isFalse();
+	}
+
+	@Test public void testReportsExceptionsThrownWhilePondering() {
+		var ai = new StubAi() {
+			@Override public void ponder(@Nonnull Board board, @Nonnull AtomicBoolean stop) {
+				throw new IllegalStateException("broken");
+			}
+		};
+		pondering.start(board, ai);
+		assertThat(Pondering.await(pondering.stop(ai))).isTrue();
+		synchronized (failures) {
+			assertThat(failures).hasSize(1);
+			assertThat(failures.get(0)).hasCauseInstanceOf(IllegalStateException.class);
+		}
+	}
+
+	/**
+	 * Ponders until told to stop and records whether it was asked for a move meanwhile
+	 */
+	private static class StubAi implements Ai {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final AtomicInteger ponders = new AtomicInteger();
+		volatile boolean pondering;
+		volatile boolean pickedWhilePondering;
+		volatile Board board;
+
+		@Nonnull @Override public String name() { return "stub"; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board,
+		                                        @Nonnull AtomicBoolean terminate) {
+			if (pondering) pickedWhilePondering = true;
+			return Mockito.mock(Move.class);
+		}
+
+		@Override public void ponder(@Nonnull Board board, @Nonnull AtomicBoolean stop) {
+			this.board = board;
+			ponders.incrementAndGet();
+			pondering = true;
+			started.countDown();
+			try {
+				while (!stop.get()) Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				pondering = false;
+				stopped.countDown();
+			}
+		}
+	}
+}
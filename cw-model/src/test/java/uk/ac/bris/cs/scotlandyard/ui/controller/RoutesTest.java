@@ -0,0 +1,118 @@
+package uk.ac.bris.cs.scotlandyard.ui.controller;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.HistoryModel;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.MyModelFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that the routes the map redraws after the model went back or forward in its history are
+ * the ones it drew move by move
+ */
+public class RoutesTest {
+
+	private static final Player MR_X = new Player(MRX, defaultMrXTickets(), 106);
+	private static final ImmutableList<Player> DETECTIVES = ImmutableList.of(
+			new Player(RED, defaultDetectiveTickets(), 26),
+			new Player(GREEN, defaultDetectiveTickets(), 50),
+			new Player(BLUE, defaultDetectiveTickets(), 94));
+	private static final ImmutableMap<Piece, Integer> STARTS = ImmutableMap.of(
+			MRX, 106, RED, 26, GREEN, 50, BLUE, 94);
+
+	@Test public void testUndoThenResyncRedrawsTheBoard() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		HistoryModel model = new MyModelFactory().build(setup, MR_X, DETECTIVES);
+		var map = new RedrawingObserver();
+		model.registerObserver(map);
+		// what the map has drawn after every ply, one move at a time
+		var drawn = new ArrayList<ImmutableMap<Piece, ImmutableList<Integer>>>();
+		drawn.add(Routes.of(STARTS, map.played));
+		var random = new Random(3);
+		for (int ply = 0; ply < 12; ply++) {
+			var moves = model.getCurrentBoard().getAvailableMoves().asList();
+			model.chooseMove(moves.get(random.nextInt(moves.size())));
+			drawn.add(Routes.of(STARTS, map.played));
+		}
+		for (int ply = 11; ply >= 0; ply--) {
+			model.undo();
+			assertThat(map.redrawn).isEqualTo(drawn.get(ply));
+			assertCountersOn(model.getCurrentBoard(), map.redrawn);
+		}
+		model.jumpToPly(model.getLastPly());
+		assertThat(map.redrawn).isEqualTo(drawn.get(12));
+		assertCountersOn(model.getCurrentBoard(), map.redrawn);
+	}
+
+	@Test public void testDoubleMovesGoThroughTheirFirstDestination() {
+		var routes = Routes.of(STARTS, List.of(
+				new DoubleMove(MRX, 106, Ticket.TAXI, 105, Ticket.BUS, 87),
+				new SingleMove(RED, 26, Ticket.TAXI, 27)));
+		assertThat(routes.get(MRX)).containsExactly(106, 105, 87);
+		assertThat(routes.get(RED)).containsExactly(26, 27);
+		assertThat(routes.get(GREEN)).containsExactly(50);
+	}
+
+	@Test public void testRejectsMovesOfPiecesWithoutAStart() {
+		assertThatThrownBy(() -> Routes.of(ImmutableMap.of(MRX, 106),
+				List.of(new SingleMove(RED, 26, Ticket.TAXI, 27))))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static void assertCountersOn(Board board,
+	                                     ImmutableMap<Piece, ImmutableList<Integer>> routes) {
+		for (var player : DETECTIVES) {
+			var detective = (Detective) player.piece();
+			assertThat(board.getDetectiveLocation(detective))
+					.contains(Iterables.getLast(routes.get(detective)));
+		}
+	}
+
+	/**
+	 * Keeps the moves made like the map does and redraws from them on a history change
+	 */
+	private static final class RedrawingObserver implements Model.MoveObserver {
+		final List<Move> played = new ArrayList<>();
+		ImmutableMap<Piece, ImmutableList<Integer>> redrawn;
+
+		@Override public void onMoveMade(@Nonnull Board board, @Nonnull Move move) {
+			played.add(move);
+		}
+
+		@Override public void onHistoryChanged(@Nonnull Board board, @Nonnull List<Move> moves) {
+			played.clear();
+			played.addAll(moves);
+			redrawn = Routes.of(STARTS, moves);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+
+/**
+ * The Ais found on the classpath, by name.
+ * <br>
+ * Found the same way as the UI does it, but every lookup returns a factory rather than an
+ * instance, since each game needs its own Ai. An Ai can be looked up by its {@link Ai#name()} or
+ * by its simple or fully qualified class name.
+ */
+final class AiCatalog {
+
+	private final ImmutableSortedMap<String, Constructor<? extends Ai>> byName;
+	private final ImmutableSortedMap<String, Constructor<? extends Ai>> byClass;
+
+	private AiCatalog(ImmutableSortedMap<String, Constructor<? extends Ai>> byName,
+	                  ImmutableSortedMap<String, Constructor<? extends Ai>> byClass) {
+		this.byName = byName;
+		this.byClass = byClass;
+	}
+
+	/**
+	 * Scans the classpath; classes that are abstract or lack a public no-arg constructor are
+	 * skipped
+	 *
+	 * @return the catalog
+	 */
+	@Nonnull static AiCatalog scan() {
+		return of(new FastClasspathScanner().scan().getNamesOfClassesImplementing(Ai.class));
+	}
+
+	/**
+	 * @param found the fully qualified names of the classes to catalog; classes that cannot be
+	 * loaded, are not Ais, are abstract or lack a public no-arg constructor are skipped
+	 * @return the catalog
+	 */
+	@Nonnull static AiCatalog of(@Nonnull Iterable<String> found) {
+		var byName = new TreeMap<String, Constructor<? extends Ai>>();
+		var byClass = new TreeMap<String, Constructor<? extends Ai>>();
+		for (String name : found) {
+			Class<? extends Ai> clazz;
+			try {
+				clazz = Class.forName(name).asSubclass(Ai.class);
+			} catch (ClassNotFoundException | LinkageError | ClassCastException e) {
+				continue;
+			}
+			if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) continue;
+			Constructor<? extends Ai> constructor;
+			try {
+				constructor = clazz.getConstructor();
+			} catch (NoSuchMethodException e) {
+				continue;
+			}
+			byClass.put(clazz.getName(), constructor);
+			byClass.putIfAbsent(clazz.getSimpleName(), constructor);
+			byName.putIfAbsent(instantiate(constructor).name(), constructor);
+		}
+		return new AiCatalog(ImmutableSortedMap.copyOf(byName), ImmutableSortedMap.copyOf(byClass));
+	}
+
+	/**
+	 * @return the names of all Ais found
+	 */
+	@Nonnull Iterable<String> names() { return byName.keySet(); }
+
+	/**
+	 * @return the class of the Ai with the given name
+	 */
+	@Nonnull String describe(@Nonnull String name) {
+		return byName.get(name).getDeclaringClass().getName();
+	}
+
+	/**
+	 * @param name the {@link Ai#name()} or class name of an Ai
+	 * @return a factory creating a new instance of that Ai on every call
+	 */
+	@Nonnull Optional<Supplier<Ai>> find(@Nonnull String name) {
+		var constructor = byName.containsKey(name) ? byName.get(name) : byClass.get(name);
+		if (constructor == null) return Optional.empty();
+		return Optional.of(new Supplier<>() {
+			@Override public Ai get() { return instantiate(constructor); }
+
+			@Override public String toString() { return name; }
+		});
+	}
+
+	private static Ai instantiate(Constructor<? extends Ai> constructor) {
+		try {
+			return constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to create " + constructor.getDeclaringClass(),
+					e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import com.google.common.collect.EnumMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The outcome and move timings of one headless game
+ */
+public final class GameResult {
+
+	/**
+	 * The side that won a game
+	 */
+	public enum Side {
+		MRX, DETECTIVES;
+
+		@Nonnull Side other() { return this == MRX ? DETECTIVES : MRX; }
+	}
+
+	/**
+	 * How a game ended; everything but {@link #COMPLETED} is a forfeit by the losing side
+	 */
+	public enum Ending {
+		/**
+		 * The game was played to the end
+		 */
+		COMPLETED,
+		/**
+		 * An Ai did not return a move before the deadline
+		 */
+		TIMEOUT,
+		/**
+		 * An Ai returned a move that was not available
+		 */
+		INVALID_MOVE,
+		/**
+		 * An Ai threw an exception
+		 */
+		CRASHED
+	}
+
+	/**
+	 * Columns written by {@link #toCsv()}
+	 */
+	public static final String CSV_HEADER = "game,seed,winner,ending,rounds," +
+			"mrXMoves,mrXMeanMillis,mrXMaxMillis," +
+			"detectiveMoves,detectiveMeanMillis,detectiveMaxMillis,mrXStart";
+
+	public final int game;
+	public final long seed;
+	@Nonnull public final Side winner;
+	@Nonnull public final Ending ending;
+	/**
+	 * The number of rounds MrX played
+	 */
+	public final int rounds;
+	/**
+	 * Where MrX started
+	 */
+	public final int mrXStart;
+	public final MoveTimes mrX;
+	public final MoveTimes detectives;
+
+	GameResult(int game, long seed, @Nonnull Side winner, @Nonnull Ending ending, int rounds,
+	           int mrXStart, @Nonnull MoveTimes mrX, @Nonnull MoveTimes detectives) {
+		this.game = game;
+		this.seed = seed;
+		this.winner = Objects.requireNonNull(winner);
+		this.ending = Objects.requireNonNull(ending);
+		this.rounds = rounds;
+		this.mrXStart = mrXStart;
+		this.mrX = Objects.requireNonNull(mrX);
+		this.detectives = Objects.requireNonNull(detectives);
+	}
+
+	/**
+	 * Time spent by one side picking its moves in a game, and the tickets those moves used
+	 */
+	public static final class MoveTimes {
+		private int moves;
+		private long totalNanos;
+		private long maxNanos;
+		private long[] nanos = new long[16];
+		private final Multiset<Ticket> tickets = EnumMultiset.create(Ticket.class);
+
+		void add(long nanos) {
+			if (moves == this.nanos.length) this.nanos = Arrays.copyOf(this.nanos, moves * 2);
+			this.nanos[moves++] = nanos;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		void played(Move move) { move.tickets().forEach(tickets::add); }
+
+		public int moves() { return moves; }
+
+		/**
+		 * @param move from 0 to {@link #moves()}
+		 * @return the time taken to pick the given move
+		 */
+		public long nanos(int move) {
+			Objects.checkIndex(move, moves);
+			return nanos[move];
+		}
+
+		/**
+		 * @return the tickets used by the moves that were played; a double move uses its two
+		 * tickets and a {@link Ticket#DOUBLE}
+		 */
+		@Nonnull public ImmutableMultiset<Ticket> tickets() {
+			return ImmutableMultiset.copyOf(tickets);
+		}
+
+		public long totalNanos() { return totalNanos; }
+
+		public long maxNanos() { return maxNanos; }
+
+		public double meanMillis() {
+			return moves == 0 ? 0 : (double) totalNanos / moves / TimeUnit.MILLISECONDS.toNanos(1);
+		}
+
+		public double maxMillis() { return (double) maxNanos / TimeUnit.MILLISECONDS.toNanos(1); }
+	}
+
+	/**
+	 * @return this result as a line matching {@link #CSV_HEADER}
+	 */
+	@Nonnull public String toCsv() {
+		return String.format(Locale.ROOT, "%d,%d,%s,%s,%d,%d,%.3f,%.3f,%d,%.3f,%.3f,%d",
+				game, seed, winner, ending, rounds,
+				mrX.moves(), mrX.meanMillis(), mrX.maxMillis(),
+				detectives.moves(), detectives.meanMillis(), detectives.maxMillis(), mrXStart);
+	}
+
+	@Override public String toString() {
+		return "GameResult{game=" + game + ", seed=" + seed + ", winner=" + winner +
+				", ending=" + ending + ", rounds=" + rounds + "}";
+	}
+}
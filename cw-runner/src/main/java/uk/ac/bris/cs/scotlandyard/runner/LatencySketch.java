@@ -0,0 +1,93 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A histogram of durations with buckets that grow with the duration, so any quantile is known to
+ * within 1/16 of its value while the histogram keeps the same size however many durations it
+ * has seen.
+ * <br>
+ * Each power of two is split into 16 buckets. Sketches merge exactly, so one can be kept per
+ * thread and the sketches combined at the end. Not thread safe.
+ */
+public final class LatencySketch {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+
+	private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB];
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * @param nanos a duration, negative ones count as zero
+	 */
+	public void add(long nanos) {
+		nanos = Math.max(0, nanos);
+		counts[index(nanos)]++;
+		count++;
+		total += nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/**
+	 * Adds everything the other sketch has seen to this one
+	 */
+	public void merge(@Nonnull LatencySketch other) {
+		for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+		count += other.count;
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	public long count() { return count; }
+
+	public long maxNanos() { return max; }
+
+	public double meanNanos() { return count == 0 ? 0 : (double) total / count; }
+
+	/**
+	 * @param quantile from 0 to 1
+	 * @return the duration below which the given share of durations fall, or 0 if the sketch is
+	 * empty
+	 */
+	public long quantileNanos(double quantile) {
+		if (quantile < 0 || quantile > 1)
+			throw new IllegalArgumentException("quantile " + quantile + " not in [0, 1]");
+		if (count == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(max, lowest(i) + width(i) / 2);
+		}
+		return max;
+	}
+
+	/**
+	 * @return {@link #quantileNanos(double)} in milliseconds
+	 */
+	public double quantileMillis(double quantile) {
+		return (double) quantileNanos(quantile) / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	static int index(long nanos) {
+		if (nanos < SUB) return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB - 1);
+		return (exponent - SUB_BITS + 1) * SUB + sub;
+	}
+
+	static long lowest(int index) {
+		if (index < SUB) return index;
+		int exponent = index / SUB + SUB_BITS - 1;
+		return (long) (SUB + index % SUB) << (exponent - SUB_BITS);
+	}
+
+	private static long width(int index) {
+		return index < SUB ? 1 : 1L << (index / SUB - 1);
+	}
+}
@@ -0,0 +1,317 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyModelFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.TimeManager;
+import uk.ac.bris.cs.scotlandyard.record.GameRecordWriter;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Ending;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.MoveTimes;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Side;
+
+/**
+ * Plays many games between two Ais without a UI, several at a time.
+ * <br>
+ * Every game gets fresh Ai instances and runs on the model built by {@link MyModelFactory}. The
+ * start locations of game {@code i} are drawn from {@code seed + i}, and both Ais are started with
+ * that seed, so any single game can be replayed on its own. Moves are picked on separate threads under the same rule as the UI: an Ai
+ * that has not returned when the move timeout passes has its terminate flag set and loses the
+ * game, as does one that returns a move that is not available or throws.
+ * <br>
+ * Given a {@link GameRecordWriter}, every game is also recorded; forfeited games are recorded with
+ * the side that won by forfeit as the winner.
+ */
+public final class Tournament implements AutoCloseable {
+
+	private static final int DETECTIVES = 5;
+
+	private final GameSetup setup;
+	private final Supplier<Ai> mrX;
+	private final Supplier<Ai> detectives;
+	private final Duration timeout;
+	private final int threads;
+	private final ExecutorService games;
+	private final ExecutorService moves;
+	@Nullable private final GameRecordWriter records;
+
+	/**
+	 * @param setup the graph and reveal rounds of every game
+	 * @param mrX creates the Ai playing MrX, once per game
+	 * @param detectives creates the Ai playing the detectives, once per game
+	 * @param timeout the time allowed for each move
+	 * @param threads the number of games played at the same time
+	 */
+	public Tournament(@Nonnull GameSetup setup,
+	                  @Nonnull Supplier<Ai> mrX,
+	                  @Nonnull Supplier<Ai> detectives,
+	                  @Nonnull Duration timeout,
+	                  int threads) {
+		this(setup, mrX, detectives, timeout, threads, null);
+	}
+
+	/**
+	 * @param setup the graph and reveal rounds of every game
+	 * @param mrX creates the Ai playing MrX, once per game
+	 * @param detectives creates the Ai playing the detectives, once per game
+	 * @param timeout the time allowed for each move
+	 * @param threads the number of games played at the same time
+	 * @param records where to record the games, or null to not record them
+	 */
+	public Tournament(@Nonnull GameSetup setup,
+	                  @Nonnull Supplier<Ai> mrX,
+	                  @Nonnull Supplier<Ai> detectives,
+	                  @Nonnull Duration timeout,
+	                  int threads,
+	                  @Nullable GameRecordWriter records) {
+		if (threads < 1) throw new IllegalArgumentException("threads < 1");
+		if (timeout.isNegative() || timeout.isZero())
+			throw new IllegalArgumentException("Timeout must be positive, got " + timeout);
+		this.setup = Objects.requireNonNull(setup);
+		this.mrX = Objects.requireNonNull(mrX);
+		this.detectives = Objects.requireNonNull(detectives);
+		this.timeout = timeout;
+		this.threads = threads;
+		this.records = records;
+		this.games = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("game-%d")
+				.setDaemon(true)
+				.build());
+		// an Ai that ignores its terminate flag keeps its thread, so these are not pooled
+		this.moves = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setNameFormat("ai-thread-%d")
+				.setDaemon(true)
+				.build());
+	}
+
+	/**
+	 * @return the number of games played at the same time
+	 */
+	public int threads() { return threads; }
+
+	/**
+	 * Plays the games and waits for all of them
+	 *
+	 * @param count the number of games
+	 * @param seed the seed of the first game
+	 * @param listener called with each result as soon as its game ends, from the game's thread
+	 * @return the results ordered by game
+	 */
+	@Nonnull public ImmutableList<GameResult> run(int count, long seed,
+	                                              @Nonnull Consumer<GameResult> listener)
+			throws InterruptedException {
+		var futures = new ArrayList<Future<GameResult>>(count);
+		for (int i = 0; i < count; i++) {
+			int game = i;
+			futures.add(games.submit(() -> {
+				var result = play(game, seed + game);
+				listener.accept(result);
+				return result;
+			}));
+		}
+		var results = ImmutableList.<GameResult>builder();
+		try {
+			for (var future : futures) results.add(future.get());
+		} catch (ExecutionException e) {
+			futures.forEach(f -> f.cancel(true));
+			throw new IllegalStateException("Game failed outside of an Ai", e.getCause());
+		}
+		return results.build();
+	}
+
+	/**
+	 * Plays one game on the calling thread
+	 *
+	 * @param game the index of the game, used in the result only
+	 * @param seed the seed for the start locations
+	 * @return the result
+	 */
+	@Nonnull public GameResult play(int game, long seed) throws InterruptedException {
+		var random = new Random(seed);
+		var locations = ScotlandYard.generateDetectiveLocations(random.nextInt(), DETECTIVES);
+		int mrXLocation;
+		do {
+			mrXLocation = ScotlandYard.generateMrXLocation(random.nextInt());
+		} while (locations.contains(mrXLocation));
+		var players = new ArrayList<Player>(DETECTIVES);
+		for (int i = 0; i < DETECTIVES; i++)
+			players.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+					ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		var mrXPlayer = new Player(MrX.MRX, ScotlandYard.defaultMrXTickets(), mrXLocation);
+		var detectivePlayers = ImmutableList.copyOf(players);
+		var model = new MyModelFactory().build(setup, mrXPlayer, detectivePlayers);
+		if (records == null) return play(game, seed, mrXLocation, model);
+
+		var recorder = records.record(seed, setup, mrXPlayer, detectivePlayers);
+		model.registerObserver(recorder);
+		var result = play(game, seed, mrXLocation, model);
+		// a completed game has been recorded already, on GAME_OVER
+		recorder.end(result.winner == Side.MRX ? ImmutableSet.of(MrX.MRX) :
+				detectivePlayers.stream().map(Player::piece).collect(ImmutableSet.toImmutableSet()));
+		return result;
+	}
+
+	private GameResult play(int game, long seed, int mrXStart, Model model)
+			throws InterruptedException {
+		var mrXAi = mrX.get();
+		var detectivesAi = detectives.get();
+		var time = new TimeManager(timeout);
+		var mrXTimes = new MoveTimes();
+		var detectiveTimes = new MoveTimes();
+		mrXAi.onStart(time, seed);
+		detectivesAi.onStart(time, seed);
+		try {
+			while (true) {
+				var board = model.getCurrentBoard();
+				var winner = board.getWinner();
+				if (!winner.isEmpty()) {
+					var side = winner.stream().anyMatch(Piece::isMrX) ? Side.MRX : Side.DETECTIVES;
+					return result(game, seed, mrXStart, side, Ending.COMPLETED, model,
+							mrXTimes, detectiveTimes);
+				}
+				var available = board.getAvailableMoves();
+				var side = available.stream().anyMatch(m -> m.commencedBy().isMrX()) ?
+						Side.MRX : Side.DETECTIVES;
+				var ai = side == Side.MRX ? mrXAi : detectivesAi;
+				var terminate = new AtomicBoolean(false);
+				long start = System.nanoTime();
+				Future<Move> picked = moves.submit(() -> ai.pickMove(board, terminate));
+				Move move;
+				try {
+					move = picked.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					terminate.set(true);
+					picked.cancel(true);
+					return result(game, seed, mrXStart, side.other(), Ending.TIMEOUT, model,
+							mrXTimes, detectiveTimes);
+				} catch (ExecutionException e) {
+					return result(game, seed, mrXStart, side.other(), Ending.CRASHED, model,
+							mrXTimes, detectiveTimes);
+				} catch (InterruptedException e) {
+					terminate.set(true);
+					picked.cancel(true);
+					throw e;
+				}
+				(side == Side.MRX ? mrXTimes : detectiveTimes).add(System.nanoTime() - start);
+				if (!available.contains(move))
+					return result(game, seed, mrXStart, side.other(), Ending.INVALID_MOVE, model,
+							mrXTimes, detectiveTimes);
+				model.chooseMove(move);
+				(side == Side.MRX ? mrXTimes : detectiveTimes).played(move);
+			}
+		} finally {
+			mrXAi.onTerminate();
+			detectivesAi.onTerminate();
+		}
+	}
+
+	private static GameResult result(int game, long seed, int mrXStart, Side winner, Ending ending,
+	                                 Model model, MoveTimes mrX, MoveTimes detectives) {
+		int rounds = model.getCurrentBoard().getMrXTravelLog().size();
+		return new GameResult(game, seed, winner, ending, rounds, mrXStart, mrX, detectives);
+	}
+
+	/**
+	 * Stops the game and Ai threads; games in progress are abandoned
+	 */
+	@Override public void close() {
+		games.shutdownNow();
+		moves.shutdownNow();
+	}
+
+	@Override public String toString() {
+		return "Tournament{timeout=" + timeout + ", threads=" + threads + ", rounds=" +
+				setup.rounds.size() + ", seats=" + Arrays.asList(mrX, detectives) + "}";
+	}
+
+	/**
+	 * Totals over many results
+	 */
+	public static final class Summary {
+		private final List<GameResult> results;
+
+		public Summary(@Nonnull List<GameResult> results) {
+			this.results = ImmutableList.copyOf(results);
+		}
+
+		public int games() { return results.size(); }
+
+		public long wins(@Nonnull Side side) {
+			return results.stream().filter(r -> r.winner == side).count();
+		}
+
+		/**
+		 * @return the number of games the given side lost by forfeit
+		 */
+		public long forfeits(@Nonnull Side side) {
+			return results.stream()
+					.filter(r -> r.winner != side && r.ending != Ending.COMPLETED)
+					.count();
+		}
+
+		public long endings(@Nonnull Ending ending) {
+			return results.stream().filter(r -> r.ending == ending).count();
+		}
+
+		public double meanMillis(@Nonnull Side side) {
+			long moves = 0;
+			long nanos = 0;
+			for (var result : results) {
+				var times = side == Side.MRX ? result.mrX : result.detectives;
+				moves += times.moves();
+				nanos += times.totalNanos();
+			}
+			return moves == 0 ? 0 : (double) nanos / moves / TimeUnit.MILLISECONDS.toNanos(1);
+		}
+
+		public double maxMillis(@Nonnull Side side) {
+			return results.stream()
+					.mapToDouble(r -> (side == Side.MRX ? r.mrX : r.detectives).maxMillis())
+					.max().orElse(0);
+		}
+
+		@Override public String toString() {
+			var builder = new StringBuilder();
+			builder.append(String.format("%d games%n", games()));
+			for (Side side : Side.values()) {
+				builder.append(String.format(
+						"%-10s wins %5d (%5.1f%%)  forfeits %4d  mean %8.1fms  max %8.1fms%n",
+						side, wins(side), games() == 0 ? 0 : 100.0 * wins(side) / games(),
+						forfeits(side), meanMillis(side), maxMillis(side)));
+			}
+			for (Ending ending : Ending.values()) {
+				if (ending != Ending.COMPLETED && endings(ending) > 0)
+					builder.append(String.format("%s: %d%n", ending, endings(ending)));
+			}
+			return builder.toString();
+		}
+	}
+}
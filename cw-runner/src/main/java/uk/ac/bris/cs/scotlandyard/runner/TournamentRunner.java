@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.record.GameRecordWriter;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Ending;
+
+/**
+ * Plays a tournament between two Ais from the command line and writes one CSV line per game.
+ * <br>
+ * Exits with 1 on bad arguments and with 2 if any game ended in a forfeit, so a scheduled build
+ * fails when an Ai starts timing out or crashing.
+ */
+public final class TournamentRunner {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: TournamentRunner --mrx=<ai> --detectives=<ai> [options]",
+			"  --games=<n>         games to play (default 100)",
+			"  --seed=<n>          seed of the first game (default 0)",
+			"  --threads=<n>       games played at the same time (default: processors / 2)",
+			"  --timeout-ms=<n>    time allowed per move (default 15000)",
+			"  --output=<file>     CSV results (default tournament.csv)",
+			"  --record=<file>     also append every game to a game record file",
+			"  --stats=<prefix>    also write statistics to <prefix>.json and <prefix>.csv",
+			"  --list              list the Ais found and exit");
+
+	private TournamentRunner() {}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) usage("Unexpected argument " + arg);
+			int equals = arg.indexOf('=');
+			if (equals < 0) options.put(arg.substring(2), "");
+			else options.put(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+
+		var catalog = AiCatalog.scan();
+		if (options.containsKey("list")) {
+			for (String name : catalog.names())
+				System.out.printf("%s (%s)%n", name, catalog.describe(name));
+			return;
+		}
+		var mrX = catalog.find(options.getOrDefault("mrx", ""))
+				.orElseGet(() -> usage("Unknown or missing --mrx, try --list"));
+		var detectives = catalog.find(options.getOrDefault("detectives", ""))
+				.orElseGet(() -> usage("Unknown or missing --detectives, try --list"));
+		int games = number(options, "games", 100);
+		long seed = number(options, "seed", 0);
+		int threads = number(options, "threads",
+				Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		var timeout = Duration.ofMillis(number(options, "timeout-ms", 15_000));
+		var output = Paths.get(options.getOrDefault("output", "tournament.csv"));
+		var record = options.containsKey("record") ? Paths.get(options.get("record")) : null;
+		var stats = options.get("stats");
+		if (games < 1 || threads < 1 || timeout.isZero() || timeout.isNegative())
+			usage("--games, --threads and --timeout-ms must be positive");
+
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		System.out.printf("%s (MrX) vs %s (detectives): %d games, %d threads, %dms per move%n",
+				mrX, detectives, games, threads, timeout.toMillis());
+		String pairing = mrX + " vs " + detectives;
+		// one per game thread, so adding a result takes no lock
+		Map<Thread, TournamentStats> perThread = new ConcurrentHashMap<>();
+		Tournament.Summary summary;
+		try (var writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+		     var records = record == null ? null : GameRecordWriter.append(record);
+		     var tournament = new Tournament(setup, mrX, detectives, timeout, threads, records)) {
+			writer.println(GameResult.CSV_HEADER);
+			var results = tournament.run(games, seed, result -> {
+				perThread.computeIfAbsent(Thread.currentThread(), t -> new TournamentStats())
+						.add(pairing, result);
+				// lines arrive in the order games finish; partial output survives a killed run
+				synchronized (writer) {
+					writer.println(result.toCsv());
+					writer.flush();
+					if (writer.checkError())
+						throw new UncheckedIOException(new IOException("Unable to write " + output));
+					try {
+						if (records != null) records.flush();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+			summary = new Tournament.Summary(results);
+		}
+		System.out.print(summary);
+		System.out.printf("Results written to %s%n", output.toAbsolutePath());
+		if (record != null) System.out.printf("Games appended to %s%n", record.toAbsolutePath());
+		if (stats != null) {
+			var total = new TournamentStats();
+			perThread.values().forEach(total::merge);
+			var json = Paths.get(stats + ".json");
+			var csv = Paths.get(stats + ".csv");
+			try (var writer = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+				total.writeJson(writer);
+			}
+			try (var writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+				total.writeCsv(writer);
+			}
+			System.out.printf("Statistics written to %s and %s%n", json.toAbsolutePath(),
+					csv.toAbsolutePath());
+		}
+		if (summary.games() != summary.endings(Ending.COMPLETED)) System.exit(2);
+	}
+
+	private static int number(Map<String, String> options, String name, int fallback) {
+		String value = options.get(name);
+		if (value == null) return fallback;
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return usage("--" + name + " is not a number: " + value);
+		}
+	}
+
+	private static <T> T usage(String message) {
+		System.err.println(message);
+		System.err.println(USAGE);
+		System.exit(1);
+		throw new AssertionError();
+	}
+}
@@ -0,0 +1,333 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Ending;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.MoveTimes;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Side;
+
+/**
+ * Statistics over any number of game results, added one at a time:
+ * <ul>
+ *     <li>wins and forfeits per pairing of Ais, and per MrX start location</li>
+ *     <li>the rounds MrX lasted in the games the detectives won on the board</li>
+ *     <li>how many of each ticket each side used per game</li>
+ *     <li>move latency percentiles per side</li>
+ * </ul>
+ * Nothing is kept per game, so memory does not grow with the number of results. Statistics
+ * merge exactly; keep one per thread and {@link #merge} them at the end. Not thread safe.
+ */
+public final class TournamentStats {
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private final Map<String, Tally> pairings = new TreeMap<>();
+	private final Map<Integer, Tally> starts = new TreeMap<>();
+	private final Distribution captureRounds = new Distribution();
+	private final Map<Side, Map<Ticket, Distribution>> tickets = new EnumMap<>(Side.class);
+	private final Map<Side, LatencySketch> latency = new EnumMap<>(Side.class);
+	private long games;
+
+	public TournamentStats() {
+		for (Side side : Side.values()) {
+			var distributions = new EnumMap<Ticket, Distribution>(Ticket.class);
+			for (Ticket ticket : Ticket.values()) distributions.put(ticket, new Distribution());
+			tickets.put(side, distributions);
+			latency.put(side, new LatencySketch());
+		}
+	}
+
+	/**
+	 * @param pairing the Ais that played, such as {@code "MrXAi vs DetectiveAi"}
+	 * @param result the result of one game
+	 */
+	public void add(@Nonnull String pairing, @Nonnull GameResult result) {
+		games++;
+		pairings.computeIfAbsent(Objects.requireNonNull(pairing), p -> new Tally()).add(result);
+		starts.computeIfAbsent(result.mrXStart, s -> new Tally()).add(result);
+		if (result.winner == Side.DETECTIVES && result.ending == Ending.COMPLETED)
+			captureRounds.add(result.rounds);
+		for (Side side : Side.values()) {
+			MoveTimes times = side == Side.MRX ? result.mrX : result.detectives;
+			var used = times.tickets();
+			tickets.get(side).forEach((ticket, counts) -> counts.add(used.count(ticket)));
+			var sketch = latency.get(side);
+			for (int i = 0; i < times.moves(); i++) sketch.add(times.nanos(i));
+		}
+	}
+
+	/**
+	 * Adds everything the other statistics have seen to these
+	 */
+	public void merge(@Nonnull TournamentStats other) {
+		games += other.games;
+		other.pairings.forEach((k, v) -> pairings.computeIfAbsent(k, x -> new Tally()).merge(v));
+		other.starts.forEach((k, v) -> starts.computeIfAbsent(k, x -> new Tally()).merge(v));
+		captureRounds.merge(other.captureRounds);
+		for (Side side : Side.values()) {
+			tickets.get(side).forEach((t, d) -> d.merge(other.tickets.get(side).get(t)));
+			latency.get(side).merge(other.latency.get(side));
+		}
+	}
+
+	public long games() { return games; }
+
+	@Nonnull public ImmutableSortedMap<String, Tally> pairings() {
+		return ImmutableSortedMap.copyOf(pairings);
+	}
+
+	/**
+	 * @return the tallies by MrX start location
+	 */
+	@Nonnull public ImmutableSortedMap<Integer, Tally> starts() {
+		return ImmutableSortedMap.copyOf(starts);
+	}
+
+	/**
+	 * @return the rounds MrX lasted in games the detectives won without a forfeit
+	 */
+	@Nonnull public Distribution captureRounds() { return captureRounds; }
+
+	/**
+	 * @return the number of the given ticket the given side used per game
+	 */
+	@Nonnull public Distribution tickets(@Nonnull Side side, @Nonnull Ticket ticket) {
+		return tickets.get(side).get(ticket);
+	}
+
+	@Nonnull public LatencySketch latency(@Nonnull Side side) { return latency.get(side); }
+
+	/**
+	 * Writes the statistics as one JSON object
+	 */
+	public void writeJson(@Nonnull Appendable out) throws IOException {
+		out.append("{\n  \"games\": ").append(Long.toString(games)).append(",\n");
+		out.append("  \"pairings\": {");
+		String separator = "\n";
+		for (var entry : pairings.entrySet()) {
+			out.append(separator).append("    ").append(quote(entry.getKey())).append(": ");
+			entry.getValue().writeJson(out);
+			separator = ",\n";
+		}
+		out.append("\n  },\n  \"mrXStarts\": {");
+		separator = "\n";
+		for (var entry : starts.entrySet()) {
+			out.append(separator).append("    \"").append(entry.getKey().toString()).append("\": ");
+			entry.getValue().writeJson(out);
+			separator = ",\n";
+		}
+		out.append("\n  },\n  \"captureRounds\": ");
+		captureRounds.writeJson(out);
+		out.append(",\n  \"tickets\": {");
+		separator = "\n";
+		for (Side side : Side.values()) {
+			out.append(separator).append("    \"").append(side.name()).append("\": {");
+			String inner = "\n";
+			for (var entry : tickets.get(side).entrySet()) {
+				out.append(inner).append("      \"").append(entry.getKey().name()).append("\": ");
+				entry.getValue().writeJson(out);
+				inner = ",\n";
+			}
+			out.append("\n    }");
+			separator = ",\n";
+		}
+		out.append("\n  },\n  \"latencyMillis\": {");
+		separator = "\n";
+		for (Side side : Side.values()) {
+			var sketch = latency.get(side);
+			out.append(separator).append("    \"").append(side.name()).append("\": {")
+					.append("\"moves\": ").append(Long.toString(sketch.count()))
+					.append(", \"mean\": ").append(number(millis(sketch.meanNanos())));
+			for (double quantile : QUANTILES)
+				out.append(", \"").append(percentile(quantile)).append("\": ")
+						.append(number(sketch.quantileMillis(quantile)));
+			out.append(", \"max\": ").append(number(millis(sketch.maxNanos()))).append('}');
+			separator = ",\n";
+		}
+		out.append("\n  }\n}\n");
+	}
+
+	/**
+	 * Writes the statistics as CSV with one value per line
+	 */
+	public void writeCsv(@Nonnull Appendable out) throws IOException {
+		out.append("section,key,metric,value\n");
+		row(out, "all", "", "games", Long.toString(games));
+		for (var entry : pairings.entrySet())
+			entry.getValue().writeCsv(out, "pairing", entry.getKey());
+		for (var entry : starts.entrySet())
+			entry.getValue().writeCsv(out, "mrXStart", entry.getKey().toString());
+		captureRounds.writeCsv(out, "captureRounds", "");
+		for (Side side : Side.values())
+			for (var entry : tickets.get(side).entrySet())
+				entry.getValue().writeCsv(out, "tickets", side + "/" + entry.getKey());
+		for (Side side : Side.values()) {
+			var sketch = latency.get(side);
+			String key = side.name();
+			row(out, "latencyMillis", key, "moves", Long.toString(sketch.count()));
+			row(out, "latencyMillis", key, "mean", number(millis(sketch.meanNanos())));
+			for (double quantile : QUANTILES)
+				row(out, "latencyMillis", key, percentile(quantile),
+						number(sketch.quantileMillis(quantile)));
+			row(out, "latencyMillis", key, "max", number(millis(sketch.maxNanos())));
+		}
+	}
+
+	/**
+	 * Wins and forfeits over some games
+	 */
+	public static final class Tally {
+		private long games;
+		private long mrXWins;
+		private long forfeits;
+
+		void add(GameResult result) {
+			games++;
+			if (result.winner == Side.MRX) mrXWins++;
+			if (result.ending != Ending.COMPLETED) forfeits++;
+		}
+
+		void merge(Tally other) {
+			games += other.games;
+			mrXWins += other.mrXWins;
+			forfeits += other.forfeits;
+		}
+
+		public long games() { return games; }
+
+		public long wins(@Nonnull Side side) {
+			return side == Side.MRX ? mrXWins : games - mrXWins;
+		}
+
+		public long forfeits() { return forfeits; }
+
+		public double winRate(@Nonnull Side side) {
+			return games == 0 ? 0 : (double) wins(side) / games;
+		}
+
+		private void writeJson(Appendable out) throws IOException {
+			out.append("{\"games\": ").append(Long.toString(games))
+					.append(", \"mrXWins\": ").append(Long.toString(wins(Side.MRX)))
+					.append(", \"detectiveWins\": ").append(Long.toString(wins(Side.DETECTIVES)))
+					.append(", \"forfeits\": ").append(Long.toString(forfeits))
+					.append(", \"mrXWinRate\": ").append(number(winRate(Side.MRX))).append('}');
+		}
+
+		private void writeCsv(Appendable out, String section, String key) throws IOException {
+			row(out, section, key, "games", Long.toString(games));
+			row(out, section, key, "mrXWins", Long.toString(wins(Side.MRX)));
+			row(out, section, key, "detectiveWins", Long.toString(wins(Side.DETECTIVES)));
+			row(out, section, key, "forfeits", Long.toString(forfeits));
+			row(out, section, key, "mrXWinRate", number(winRate(Side.MRX)));
+		}
+
+		@Override public String toString() {
+			return "Tally{games=" + games + ", mrXWins=" + mrXWins + ", forfeits=" + forfeits + "}";
+		}
+	}
+
+	/**
+	 * How often each small count came up
+	 */
+	public static final class Distribution {
+		private long[] counts = new long[8];
+		private long total;
+		private long sum;
+
+		void add(int value) {
+			if (value < 0) throw new IllegalArgumentException("Negative value " + value);
+			grow(value + 1);
+			counts[value]++;
+			total++;
+			sum += value;
+		}
+
+		void merge(Distribution other) {
+			grow(other.counts.length);
+			for (int i = 0; i < other.counts.length; i++) counts[i] += other.counts[i];
+			total += other.total;
+			sum += other.sum;
+		}
+
+		private void grow(int length) {
+			if (counts.length < length)
+				counts = Arrays.copyOf(counts, Math.max(length, counts.length * 2));
+		}
+
+		/**
+		 * @return the number of values seen
+		 */
+		public long total() { return total; }
+
+		/**
+		 * @return how many times the given value was seen
+		 */
+		public long count(int value) {
+			return value >= 0 && value < counts.length ? counts[value] : 0;
+		}
+
+		public double mean() { return total == 0 ? 0 : (double) sum / total; }
+
+		private void writeJson(Appendable out) throws IOException {
+			out.append("{\"total\": ").append(Long.toString(total))
+					.append(", \"mean\": ").append(number(mean()))
+					.append(", \"counts\": {");
+			String separator = "";
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) continue;
+				out.append(separator).append('"').append(Integer.toString(i)).append("\": ")
+						.append(Long.toString(counts[i]));
+				separator = ", ";
+			}
+			out.append("}}");
+		}
+
+		private void writeCsv(Appendable out, String section, String key) throws IOException {
+			row(out, section, key, "total", Long.toString(total));
+			row(out, section, key, "mean", number(mean()));
+			for (int i = 0; i < counts.length; i++)
+				if (counts[i] != 0) row(out, section, key, "=" + i, Long.toString(counts[i]));
+		}
+	}
+
+	private static void row(Appendable out, String section, String key, String metric,
+	                        String value) throws IOException {
+		out.append(section).append(',').append(csv(key)).append(',').append(metric).append(',')
+				.append(value).append('\n');
+	}
+
+	private static String csv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+			return value;
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static String quote(String value) {
+		var builder = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') builder.append('\\').append(c);
+			else if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+			else builder.append(c);
+		}
+		return builder.append('"').toString();
+	}
+
+	private static String percentile(double quantile) {
+		return "p" + Math.round(quantile * 100);
+	}
+
+	private static double millis(double nanos) { return nanos / 1e6; }
+
+	private static String number(double value) { return String.format(Locale.ROOT, "%.3f", value); }
+}
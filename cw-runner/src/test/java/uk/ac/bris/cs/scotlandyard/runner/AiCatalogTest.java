@@ -0,0 +1,83 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link AiCatalog} finds Ais by name and by class name and skips the classes it
+ * cannot create
+ */
+public class AiCatalogTest {
+
+	private static final AiCatalog CATALOG = AiCatalog.of(List.of(
+			Playable.class.getName(),
+			Unfinished.class.getName(),
+			Configured.class.getName(),
+			String.class.getName(),
+			"uk.ac.bris.cs.scotlandyard.runner.Missing"));
+
+	@Test public void testFindsAnAiByItsName() {
+		var ai = CATALOG.find(Playable.NAME);
+		assertThat(ai).isPresent();
+		assertThat(ai.get().get()).isInstanceOf(Playable.class);
+		assertThat(CATALOG.describe(Playable.NAME)).isEqualTo(Playable.class.getName());
+	}
+
+	@Test public void testFindsAnAiByItsClassName() {
+		assertThat(CATALOG.find(Playable.class.getSimpleName()).map(f -> f.get()))
+				.containsInstanceOf(Playable.class);
+		assertThat(CATALOG.find(Playable.class.getName()).map(f -> f.get()))
+				.containsInstanceOf(Playable.class);
+	}
+
+	@Test public void testEveryLookupCreatesANewAi() {
+		var factory = CATALOG.find(Playable.NAME).orElseThrow();
+		assertThat(factory.get()).isNotSameAs(factory.get());
+	}
+
+	@Test public void testSkipsClassesItCannotCreate() {
+		assertThat(CATALOG.names()).containsExactly(Playable.NAME);
+		assertThat(CATALOG.find(Unfinished.class.getName())).isEmpty();
+		assertThat(CATALOG.find(Configured.class.getName())).isEmpty();
+		assertThat(CATALOG.find(String.class.getName())).isEmpty();
+		assertThat(CATALOG.find("Missing")).isEmpty();
+	}
+
+	@Test public void testScanFindsTheProjectAis() {
+		var catalog = AiCatalog.scan();
+		assertThat(catalog.find("MrXAi")).isPresent();
+		assertThat(catalog.find("DetectiveAi")).isPresent();
+		assertThat(catalog.find(Playable.NAME)).isPresent();
+	}
+
+	public static class Playable implements Ai {
+		static final String NAME = "Catalog test Ai";
+
+		@Nonnull @Override public String name() { return NAME; }
+
+		@Nonnull @Override public Move pickMove(@Nonnull Board board,
+		                                        @Nonnull AtomicBoolean terminate) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	public abstract static class Unfinished implements Ai {
+		@Nonnull @Override public String name() { return "Unfinished"; }
+	}
+
+	public static class Configured extends Playable {
+		public Configured(int depth) {}
+
+		@Nonnull @Override public String name() { return "Configured"; }
+	}
+}
@@ -0,0 +1,140 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Ending;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.MoveTimes;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Side;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests that {@link TournamentStats} counts what it is given and merges exactly
+ */
+public class TournamentStatsTest {
+
+	@Test public void testCountsResults() {
+		var stats = new TournamentStats();
+		stats.add("a vs b", result(0, Side.MRX, Ending.COMPLETED, 24, 106));
+		stats.add("a vs b", result(1, Side.DETECTIVES, Ending.COMPLETED, 7, 106));
+		stats.add("a vs b", result(2, Side.DETECTIVES, Ending.TIMEOUT, 3, 45));
+		stats.add("c vs d", result(3, Side.DETECTIVES, Ending.COMPLETED, 7, 45));
+
+		assertThat(stats.games()).isEqualTo(4);
+		var ab = stats.pairings().get("a vs b");
+		assertThat(ab.games()).isEqualTo(3);
+		assertThat(ab.wins(Side.MRX)).isEqualTo(1);
+		assertThat(ab.wins(Side.DETECTIVES)).isEqualTo(2);
+		assertThat(ab.forfeits()).isEqualTo(1);
+		assertThat(stats.starts().keySet()).containsExactly(45, 106);
+		assertThat(stats.starts().get(45).winRate(Side.DETECTIVES)).isEqualTo(1.0);
+		// the forfeit is not a capture
+		assertThat(stats.captureRounds().total()).isEqualTo(2);
+		assertThat(stats.captureRounds().count(7)).isEqualTo(2);
+		assertThat(stats.tickets(Side.MRX, Ticket.TAXI).mean()).isEqualTo(2.0);
+		assertThat(stats.tickets(Side.MRX, Ticket.DOUBLE).count(1)).isEqualTo(4);
+		assertThat(stats.tickets(Side.DETECTIVES, Ticket.BUS).count(1)).isEqualTo(4);
+		assertThat(stats.latency(Side.MRX).count()).isEqualTo(8);
+	}
+
+	@Test public void testMergedStatsMatchOneAggregate() throws IOException {
+		var random = new Random(1);
+		var whole = new TournamentStats();
+		var parts = new ArrayList<TournamentStats>();
+		for (int i = 0; i < 4; i++) parts.add(new TournamentStats());
+		for (int game = 0; game < 500; game++) {
+			var result = result(game, random.nextBoolean() ? Side.MRX : Side.DETECTIVES,
+					Ending.values()[random.nextInt(Ending.values().length)],
+					1 + random.nextInt(24), 1 + random.nextInt(199));
+			String pairing = "ai" + random.nextInt(3) + " vs ai" + random.nextInt(3);
+			whole.add(pairing, result);
+			parts.get(random.nextInt(parts.size())).add(pairing, result);
+		}
+		var merged = new TournamentStats();
+		parts.forEach(merged::merge);
+		assertThat(json(merged)).isEqualTo(json(whole));
+		assertThat(csv(merged)).isEqualTo(csv(whole));
+	}
+
+	@Test public void testQuantilesAreWithinASixteenth() {
+		var random = new Random(2);
+		var sketch = new LatencySketch();
+		long[] values = new long[100_000];
+		for (int i = 0; i < values.length; i++) {
+			// a few microseconds to a few seconds
+			values[i] = (long) Math.exp(7 + random.nextDouble() * 15);
+			sketch.add(values[i]);
+		}
+		Arrays.sort(values);
+		for (double quantile : new double[]{0.01, 0.5, 0.9, 0.99, 0.999, 1}) {
+			long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+			assertThat((double) sketch.quantileNanos(quantile))
+					.isCloseTo(exact, within(exact / 16.0));
+		}
+		assertThat(sketch.maxNanos()).isEqualTo(values[values.length - 1]);
+	}
+
+	@Test public void testBucketsCoverEveryDuration() {
+		for (long nanos : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+			int index = LatencySketch.index(nanos);
+			assertThat(LatencySketch.lowest(index)).isLessThanOrEqualTo(nanos);
+			if (nanos < Long.MAX_VALUE)
+				assertThat(LatencySketch.index(nanos + 1)).isBetween(index, index + 1);
+		}
+	}
+
+	@Test public void testWritesJsonAndCsv() throws IOException {
+		var stats = new TournamentStats();
+		stats.add("say \"hi\", twice", result(0, Side.MRX, Ending.COMPLETED, 24, 106));
+		var json = json(stats);
+		assertThat(json).startsWith("{").endsWith("}\n")
+				.contains("\"games\": 1")
+				.contains("\"say \\\"hi\\\", twice\": {\"games\": 1, \"mrXWins\": 1")
+				.contains("\"p99\": ");
+		List<String> lines = Arrays.asList(csv(stats).split("\n"));
+		assertThat(lines.get(0)).isEqualTo("section,key,metric,value");
+		assertThat(lines).contains("pairing,\"say \"\"hi\"\", twice\",mrXWins,1",
+				"mrXStart,106,games,1",
+				"tickets,MRX/TAXI,=2,1",
+				"latencyMillis,MRX,moves,2");
+	}
+
+	/**
+	 * MrX moves twice, by taxi then by a double move; the detectives move once, by bus
+	 */
+	private static GameResult result(int game, Side winner, Ending ending, int rounds,
+	                                 int mrXStart) {
+		var mrX = new MoveTimes();
+		mrX.add(1_000_000 + game);
+		mrX.played(new Move.SingleMove(MRX, 1, Ticket.TAXI, 8));
+		mrX.add(2_000_000 + game);
+		mrX.played(new Move.DoubleMove(MRX, 8, Ticket.SECRET, 18, Ticket.TAXI, 43));
+		var detectives = new MoveTimes();
+		detectives.add(500_000);
+		detectives.played(new Move.SingleMove(RED, 13, Ticket.BUS, 14));
+		return new GameResult(game, game, winner, ending, rounds, mrXStart, mrX, detectives);
+	}
+
+	private static String json(TournamentStats stats) throws IOException {
+		var builder = new StringBuilder();
+		stats.writeJson(builder);
+		return builder.toString();
+	}
+
+	private static String csv(TournamentStats stats) throws IOException {
+		var builder = new StringBuilder();
+		stats.writeCsv(builder);
+		return builder.toString();
+	}
+}
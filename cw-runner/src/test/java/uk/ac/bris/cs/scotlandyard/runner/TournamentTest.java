@@ -0,0 +1,147 @@
+package uk.ac.bris.cs.scotlandyard.runner;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.record.GameRecord;
+import uk.ac.bris.cs.scotlandyard.record.GameRecordReader;
+import uk.ac.bris.cs.scotlandyard.record.GameRecordWriter;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Ending;
+import uk.ac.bris.cs.scotlandyard.runner.GameResult.Side;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link Tournament} plays reproducible games and forfeits misbehaving Ais
+ */
+public class TournamentTest {
+
+	private static GameSetup setup;
+
+	@BeforeClass public static void setUp() throws IOException {
+		setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	@Test public void testResultsDoNotDependOnThreads() throws InterruptedException {
+		assertThat(summarise(play(FirstMove::new, FirstMove::new, 1)))
+				.isEqualTo(summarise(play(FirstMove::new, FirstMove::new, 4)));
+	}
+
+	@Test public void testEveryResultIsReported() throws InterruptedException {
+		List<GameResult> reported = new CopyOnWriteArrayList<>();
+		List<GameResult> results;
+		try (var tournament = new Tournament(setup, FirstMove::new, FirstMove::new,
+				Duration.ofSeconds(5), 3)) {
+			results = tournament.run(6, 42, reported::add);
+		}
+		assertThat(results).extracting(r -> r.game).containsExactly(0, 1, 2, 3, 4, 5);
+		assertThat(reported).containsExactlyInAnyOrderElementsOf(results);
+		assertThat(results).allMatch(r -> r.ending == Ending.COMPLETED);
+		assertThat(results).allMatch(r -> r.mrX.moves() == r.rounds);
+	}
+
+	@Test public void testSlowAiForfeits() throws InterruptedException {
+		var results = new Tournament(setup, FirstMove::new, Sleeping::new,
+				Duration.ofMillis(100), 1).run(2, 0, r -> {});
+		assertThat(results).allSatisfy(r -> {
+			assertThat(r.ending).isEqualTo(Ending.TIMEOUT);
+			assertThat(r.winner).isEqualTo(Side.MRX);
+		});
+	}
+
+	@Test public void testCrashingAiForfeits() throws InterruptedException {
+		var results = new Tournament(setup, Throwing::new, FirstMove::new,
+				Duration.ofSeconds(5), 1).run(2, 0, r -> {});
+		assertThat(results).allSatisfy(r -> {
+			assertThat(r.ending).isEqualTo(Ending.CRASHED);
+			assertThat(r.winner).isEqualTo(Side.DETECTIVES);
+		});
+	}
+
+	@Test public void testGamesAreRecorded() throws IOException, InterruptedException {
+		var bytes = new ByteArrayOutputStream();
+		List<GameResult> results;
+		try (var records = new GameRecordWriter(bytes);
+		     var tournament = new Tournament(setup, FirstMove::new, Throwing::new,
+				     Duration.ofSeconds(5), 2, records)) {
+			results = tournament.run(4, 3, r -> {});
+		}
+		var recorded = new ArrayList<GameRecord>();
+		new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()))
+				.forEachRemaining(recorded::add);
+		assertThat(recorded).extracting(r -> r.seed).containsExactlyInAnyOrder(3L, 4L, 5L, 6L);
+		assertThat(recorded).allSatisfy(r -> {
+			// MrX moved, then the detectives crashed
+			assertThat(r.moves).hasSize(1);
+			assertThat(r.winner).containsExactly(MrX.MRX);
+		});
+		assertThat(results).allSatisfy(r -> assertThat(r.ending).isEqualTo(Ending.CRASHED));
+	}
+
+	private static List<GameResult> play(Supplier<Ai> mrX, Supplier<Ai> detectives, int threads)
+			throws InterruptedException {
+		try (var tournament = new Tournament(setup, mrX, detectives, Duration.ofSeconds(5),
+				threads)) {
+			return tournament.run(8, 7, r -> {});
+		}
+	}
+
+	private static List<String> summarise(List<GameResult> results) {
+		return results.stream()
+				.map(r -> r.game + ":" + r.winner + ":" + r.ending + ":" + r.rounds)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Plays the lowest move by its textual form, so its games depend on the seed alone
+	 */
+	private static final class FirstMove implements Ai {
+		@Nonnull @Override public String name() { return "first"; }
+
+		@Nonnull @Override
+		public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			return Collections.min(board.getAvailableMoves(),
+					Comparator.comparing(Move::toString));
+		}
+	}
+
+	private static final class Sleeping implements Ai {
+		@Nonnull @Override public String name() { return "sleeping"; }
+
+		@Nonnull @Override
+		public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			while (!terminate.get()) Thread.onSpinWait();
+			return board.getAvailableMoves().iterator().next();
+		}
+	}
+
+	private static final class Throwing implements Ai {
+		@Nonnull @Override public String name() { return "throwing"; }
+
+		@Nonnull @Override
+		public Move pickMove(@Nonnull Board board, @Nonnull AtomicBoolean terminate) {
+			throw new IllegalStateException("No move");
+		}
+	}
+}